@@ -1,44 +1,90 @@
 package com.example.android.bookfinder;
 
 import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
 import android.widget.ImageView;
 import android.widget.TextView;
-import com.squareup.picasso.Picasso;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import utilities.FrameMonitor;
+import utilities.Histogram;
+import utilities.MetricsRegistry;
+import utilities.ThumbnailLoader;
 import utilities.Utils;
 
 /**
  * A {@link BookAdapter} will create a list item layout for each book
- * in the data source (a list of {@link Book} objects) to be displayed in a ListView
+ * in the data source (a list of {@link BookDisplayModel} objects) to be displayed in a RecyclerView.
+ * A new list is compared with the displayed one on a background thread, and only the
+ * rows that changed are rebound.
  */
 
-public class BookAdapter extends ArrayAdapter<Book> {
+public class BookAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
 
-    private static final String LOG_TAG = BookAdapter.class.getName();
-    private static final String CURRENCY_GBP = "GBP";
-    private static final String CURRENCY_USD = "USD";
-    private static final String CURRENCY_EUR = "EUR";
+    // View types
+    private static final int VIEW_TYPE_BOOK = 0;
+    private static final int VIEW_TYPE_FOOTER = 1;
+
+    /** Thread computing the differences between the displayed list and a new one */
+    private static final Executor DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
+
+    /** Time taken to bind a book row, in nanoseconds */
+    private static final Histogram mBindTime = MetricsRegistry.getInstance()
+            .histogram("adapter.bind", Histogram.Unit.NANOSECONDS);
 
     private static Context mContext;
 
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final OnBookClickListener mClickListener;
+    private final ThumbnailLoader mThumbnailLoader;
+
+    /** Height covers are decoded at, in pixels */
+    private final int mThumbnailHeight;
+
+    /** Monitor of the frames the rows are bound in, may be null */
+    private FrameMonitor mFrameMonitor;
+
+    /** Books displayed; replaced, never modified */
+    private List<BookDisplayModel> mBooks = Collections.emptyList();
+
+    /** Incremented on every new list, so a diff finishing after a newer list is dropped */
+    private int mGeneration;
+
+    /** True while the loading indicator is shown below the books */
+    private boolean mShowFooter;
+
+    /**
+     * Listener for clicks on a book of the list
+     */
+    public interface OnBookClickListener {
+        void onBookClick(int position);
+    }
+
     /**
      * Constructor to create a new {@link BookAdapter} object
      * @param context
-     * @param books
+     * @param clickListener - Listener called when a book is clicked
      */
-    public BookAdapter(Context context, List<Book> books) {
-        super(context, 0, books);
+    public BookAdapter(Context context, OnBookClickListener clickListener) {
         mContext = context;
+        mClickListener = clickListener;
+        mThumbnailLoader = ThumbnailLoader.getInstance(context);
+        mThumbnailHeight = context.getResources().getDimensionPixelSize(R.dimen.list_image_height);
     }
 
     /**
      * This class describes the view items to create a list item
      */
-    public static class BookViewHolder {
+    public class BookViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
 
         TextView textViewTitle;
         TextView textViewAuthor;
@@ -46,8 +92,9 @@ public class BookAdapter extends ArrayAdapter<Book> {
         ImageView imageViewRating;
         ImageView imageViewBook;
 
-        // Find various views within ListView and set custom typeface on them
+        // Find various views within list item and set custom typeface on them
         public BookViewHolder(View itemView) {
+            super(itemView);
             textViewTitle = (TextView) itemView.findViewById(R.id.text_book_title);
             textViewAuthor = (TextView) itemView.findViewById(R.id.text_book_author);
             textViewPrice = (TextView) itemView.findViewById(R.id.text_book_price);
@@ -57,122 +104,241 @@ public class BookAdapter extends ArrayAdapter<Book> {
             Utils.setCustomTypeface(mContext, textViewTitle);
             Utils.setCustomTypeface(mContext, textViewAuthor);
             Utils.setCustomTypeface(mContext, textViewPrice);
+
+            itemView.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View view) {
+            int position = getAdapterPosition();
+            if (mClickListener != null && position != RecyclerView.NO_POSITION
+                    && position < mBooks.size()) {
+                mClickListener.onBookClick(position);
+            }
         }
     }
 
     /**
-     * Returns a list item view that displays information about the book at the given position
-     * in the list of books.
+     * This class describes the loading indicator shown below the books
      */
-    @Override
-    public View getView(int position, View convertView, ViewGroup parent) {
-
-        double price = 0;
-        String image = "";
-        String bookPrice = "";
-        String ratingsImage = "";
-        BookViewHolder holder;
-
-        if (convertView == null) {
-            convertView = LayoutInflater.from(getContext()).inflate(
-                    R.layout.book_list_item, parent, false);
-            holder = new BookViewHolder(convertView);
-            convertView.setTag(holder);
+    static class FooterViewHolder extends RecyclerView.ViewHolder {
+
+        FooterViewHolder(View itemView) {
+            super(itemView);
+            itemView.findViewById(R.id.progress_next_page).setVisibility(View.VISIBLE);
+        }
+    }
+
+    /** Getter method - Books displayed */
+    public List<BookDisplayModel> getBooks() {
+        return mBooks;
+    }
+
+    /**
+     * Show or hide the loading indicator below the books
+     */
+    public void setShowFooter(boolean showFooter) {
+        if (mShowFooter == showFooter) {
+            return;
+        }
+        mShowFooter = showFooter;
+        if (showFooter) {
+            notifyItemInserted(mBooks.size());
         } else {
-            holder = (BookViewHolder) convertView.getTag();
+            notifyItemRemoved(mBooks.size());
         }
+    }
 
-        // Find book at the given position in the list
-        Book currentBook = getItem(position);
+    /**
+     * Display a new list of books. Pages appended to the displayed list are inserted
+     * straight away; any other change is diffed on a background thread and only the
+     * rows that changed are rebound.
+     * @param books - New list of books, which must not be modified afterwards
+     */
+    public void submitList(final List<BookDisplayModel> books) {
+        final int generation = ++mGeneration;
+        final List<BookDisplayModel> oldBooks = mBooks;
 
+        if (books == oldBooks) {
+            return;
+        }
 
-        /** Set data to respective views within ListView */
+        // Nothing to compare with - insert or remove every row
+        if (oldBooks.isEmpty() || books.isEmpty()) {
+            mBooks = books;
+            if (!oldBooks.isEmpty()) {
+                notifyItemRangeRemoved(0, oldBooks.size());
+            }
+            if (!books.isEmpty()) {
+                notifyItemRangeInserted(0, books.size());
+            }
+            return;
+        }
 
-        // Set Title
-        holder.textViewTitle.setText(currentBook.getTitle());
+        // A page appended to the displayed books - only the new rows are inserted
+        if (startsWith(books, oldBooks)) {
+            mBooks = books;
+            notifyItemRangeInserted(oldBooks.size(), books.size() - oldBooks.size());
+            return;
+        }
 
-        // Set Author
-        holder.textViewAuthor.setText(currentBook.getAuthor());
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final DiffUtil.DiffResult result = DiffUtil.calculateDiff(
+                        new BookDiffCallback(oldBooks, books), false);
 
-        // Set Price and Currency Code if available, else set default value
-        price = currentBook.getRetailPrice();
-        if (price != 0.00) {
-            switch (currentBook.getCurrencyCode()) {
-                case CURRENCY_GBP:
-                    bookPrice = (getContext().getString(R.string.label_gbp, price));
-                    break;
-                case CURRENCY_USD:
-                    bookPrice = (getContext().getString(R.string.label_usd, price));
-                    break;
-                case CURRENCY_EUR:
-                    bookPrice = (getContext().getString(R.string.label_euro, price));
-                    break;
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        // A newer list was submitted while diffing
+                        if (generation != mGeneration) {
+                            return;
+                        }
+                        mBooks = books;
+                        result.dispatchUpdatesTo(BookAdapter.this);
+                    }
+                });
             }
-        } else {
-            bookPrice = getContext().getString(R.string.info_not_priced);
+        });
+    }
+
+    @Override
+    public int getItemCount() {
+        return mBooks.size() + (mShowFooter ? 1 : 0);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return (position < mBooks.size()) ? VIEW_TYPE_BOOK : VIEW_TYPE_FOOTER;
+    }
+
+    @Override
+    public RecyclerView.ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        LayoutInflater inflater = LayoutInflater.from(parent.getContext());
+        if (viewType == VIEW_TYPE_FOOTER) {
+            return new FooterViewHolder(inflater.inflate(R.layout.list_footer_loading, parent, false));
         }
-        holder.textViewPrice.setText(bookPrice);
+        return new BookViewHolder(inflater.inflate(R.layout.book_list_item, parent, false));
+    }
 
-        // Set ratings icons
-        ratingsImage = getRatingImageResource(currentBook.getRating());
-        int resId = mContext.getResources().getIdentifier(ratingsImage, "drawable", mContext.getPackageName());
-        holder.imageViewRating.setImageResource(resId);
+    /**
+     * Displays information about the book at the given position in the list of books.
+     */
+    @Override
+    public void onBindViewHolder(RecyclerView.ViewHolder viewHolder, int position) {
+        if (!(viewHolder instanceof BookViewHolder)) {
+            return;
+        }
 
-        // Set Image if available
-        image = currentBook.getThumbnailLink();
-        if (image != null && image.length() > 0) {
-            Picasso.with(getContext()).load(currentBook.getThumbnailLink()).into(holder.imageViewBook);
-        } else {
-            Picasso.with(getContext()).load(R.drawable.image_not_found).into(holder.imageViewBook);
+        long bindStart = System.nanoTime();
+        BookViewHolder holder = (BookViewHolder) viewHolder;
+
+        // Find book at the given position in the list; its text was formatted when it was loaded
+        BookDisplayModel currentBook = mBooks.get(position);
+
+        holder.textViewTitle.setText(currentBook.getTitle());
+        holder.textViewAuthor.setText(currentBook.getAuthor());
+        holder.textViewPrice.setText(currentBook.getListPrice());
+        holder.imageViewRating.setImageResource(currentBook.getRatingDrawableId());
+
+        // Set Image if available; the width follows from the cover's aspect ratio
+        mThumbnailLoader.load(currentBook.getThumbnailLink(), holder.imageViewBook,
+                0, mThumbnailHeight);
+
+        long bindNanos = System.nanoTime() - bindStart;
+        mBindTime.record(bindNanos);
+        if (mFrameMonitor != null) {
+            mFrameMonitor.onItemBound(position, bindNanos);
+        }
+    }
+
+    @Override
+    public void onViewRecycled(RecyclerView.ViewHolder viewHolder) {
+        // A cover still loading for a row scrolled away would hold up the visible rows
+        if (viewHolder instanceof BookViewHolder) {
+            mThumbnailLoader.cancel(((BookViewHolder) viewHolder).imageViewBook);
+        }
+    }
+
+    /**
+     * Setter method - Monitor told about each row bound, to tie slow frames to them
+     */
+    public void setFrameMonitor(FrameMonitor frameMonitor) {
+        mFrameMonitor = frameMonitor;
+    }
+
+    /**
+     * Prefetch the covers of the books about to be shown, so they are decoded before their rows
+     * scroll into view
+     * @param fromPosition - Position of the first book whose cover is prefetched
+     * @param count - Number of books whose covers are prefetched
+     */
+    public void prefetchThumbnails(int fromPosition, int count) {
+        int end = Math.min(fromPosition + count, mBooks.size());
+        for (int position = Math.max(fromPosition, 0); position < end; position++) {
+            mThumbnailLoader.prefetch(mBooks.get(position).getThumbnailLink(), 0, mThumbnailHeight);
         }
+    }
 
-        return convertView;
+    /**
+     * This method checks if a list starts with every book of another list
+     */
+    private static boolean startsWith(List<BookDisplayModel> books, List<BookDisplayModel> prefix) {
+        if (books.size() < prefix.size()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.size(); i++) {
+            if (books.get(i) != prefix.get(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
-     * This method gets rating resource id depending on the book's rating
-     * @param rating
-     * @return resource name
+     * Compares two lists of books: books are the same volume if their ids match, and their
+     * row is unchanged if every field displayed in the row is equal
      */
-    private String getRatingImageResource(double rating) {
-        String ratingResource;
-
-        switch (String.valueOf(rating)) {
-            case "0.5":
-                ratingResource = getContext().getString(R.string.rating_half);
-                break;
-            case "1.0":
-                ratingResource = getContext().getString(R.string.rating_one);
-                break;
-            case "1.5":
-                ratingResource = getContext().getString(R.string.rating_one_half);
-                break;
-            case "2.0":
-                ratingResource = getContext().getString(R.string.rating_two);
-                break;
-            case "2.5":
-                ratingResource = getContext().getString(R.string.rating_two_half);
-                break;
-            case "3.0":
-                ratingResource = getContext().getString(R.string.rating_three);
-                break;
-            case "3.5":
-                ratingResource = getContext().getString(R.string.rating_three_half);
-                break;
-            case "4.0":
-                ratingResource = getContext().getString(R.string.rating_four);
-                break;
-            case "4.5":
-                ratingResource = getContext().getString(R.string.rating_four_half);
-                break;
-            case "5.0":
-                ratingResource = getContext().getString(R.string.rating_five);
-                break;
-            default:
-                ratingResource = getContext().getString(R.string.rating_none);
-                break;
-        }
-
-        return ratingResource;
+    private static class BookDiffCallback extends DiffUtil.Callback {
+
+        private final List<BookDisplayModel> mOldBooks;
+        private final List<BookDisplayModel> mNewBooks;
+
+        BookDiffCallback(List<BookDisplayModel> oldBooks, List<BookDisplayModel> newBooks) {
+            mOldBooks = oldBooks;
+            mNewBooks = newBooks;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldBooks.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewBooks.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            Book oldBook = mOldBooks.get(oldItemPosition).getBook();
+            Book newBook = mNewBooks.get(newItemPosition).getBook();
+            if (TextUtils.isEmpty(oldBook.getId()) || TextUtils.isEmpty(newBook.getId())) {
+                return TextUtils.equals(oldBook.getTitle(), newBook.getTitle());
+            }
+            return oldBook.getId().equals(newBook.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            BookDisplayModel oldBook = mOldBooks.get(oldItemPosition);
+            BookDisplayModel newBook = mNewBooks.get(newItemPosition);
+            return TextUtils.equals(oldBook.getTitle(), newBook.getTitle())
+                    && TextUtils.equals(oldBook.getAuthor(), newBook.getAuthor())
+                    && TextUtils.equals(oldBook.getListPrice(), newBook.getListPrice())
+                    && oldBook.getRatingDrawableId() == newBook.getRatingDrawableId()
+                    && TextUtils.equals(oldBook.getThumbnailLink(), newBook.getThumbnailLink());
+        }
     }
 }
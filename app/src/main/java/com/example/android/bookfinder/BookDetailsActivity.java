@@ -5,16 +5,13 @@ import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
 import android.support.v7.app.AppCompatActivity;
-import android.util.Log;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.Button;
 import android.widget.ImageView;
 import android.widget.TextView;
-import com.squareup.picasso.Picasso;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
+import utilities.FrameMonitor;
+import utilities.ThumbnailLoader;
 import utilities.Utils;
 
 
@@ -35,10 +32,12 @@ public class BookDetailsActivity extends AppCompatActivity implements View.OnCli
     private Button mButtonBuy;
     private Button mButtonPreview;
 
-    private Book mSelectedBook;
+    private BookDisplayModel mSelectedBook;
     private String mBuyingLink;
     private String mPreviewLink;
-    private String mPublishedDate;
+
+    /** Monitor of the frames drawn while the details scroll */
+    private FrameMonitor mFrameMonitor;
 
 
     @Override
@@ -79,6 +78,28 @@ public class BookDetailsActivity extends AppCompatActivity implements View.OnCli
         /** Display Book Details */
         displayBookDetails();
 
+        /** Observe the frames drawn while the details scroll */
+        mFrameMonitor = FrameMonitor.getInstance(FrameMonitor.SCREEN_BOOK_DETAILS);
+        getWindow().getDecorView().getViewTreeObserver().addOnScrollChangedListener(
+                new ViewTreeObserver.OnScrollChangedListener() {
+                    @Override
+                    public void onScrollChanged() {
+                        mFrameMonitor.onScroll();
+                    }
+                });
+
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        mFrameMonitor.setRefreshRate(getWindowManager().getDefaultDisplay().getRefreshRate());
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        mFrameMonitor.stop();
     }
 
     /**
@@ -111,7 +132,8 @@ public class BookDetailsActivity extends AppCompatActivity implements View.OnCli
     }
 
     /**
-     * This method invokes individual methods to populate various views on the screen
+     * This method invokes individual methods to populate various views on the screen.
+     * The text displayed was formatted when the book was loaded.
      */
     public void displayBookDetails() {
         displayImage();         // Display image of the book
@@ -121,22 +143,17 @@ public class BookDetailsActivity extends AppCompatActivity implements View.OnCli
         displayPrice();         // Display price of the book
         setBuyingLink();        // Set buying link for button
         setPreviewLink();       // Set preview link for button
-        formatDate();           // Get formatted Published Date
         displayDetails();       // Display book details
         displayDescription();   // Display book description
     }
 
     /**
-     * Method to display book image using Picasso library
+     * Method to display book image, decoded at the size of its view
      */
     public void displayImage() {
-        String image = mSelectedBook.getThumbnailLink();
-
-        if (image != null && image.length() > 0) {
-            Picasso.with(mContext).load(image).into(mImageThumbnail);
-        } else {
-            Picasso.with(mContext).load(R.drawable.image_not_found).into(mImageThumbnail);
-        }
+        ThumbnailLoader.getInstance(mContext).load(mSelectedBook.getThumbnailLink(), mImageThumbnail,
+                getResources().getDimensionPixelSize(R.dimen.book_image_width),
+                getResources().getDimensionPixelSize(R.dimen.book_image_height));
     }
 
     /**
@@ -150,52 +167,28 @@ public class BookDetailsActivity extends AppCompatActivity implements View.OnCli
      * Method to display Author
      */
     public void displayAuthor() {
-        String author = mSelectedBook.getAuthor();
-
-        if (author != null && author.length() > 0) {
-            mTextAuthor.setText(author);
-        } else {
-            mTextAuthor.setText(getString(R.string.info_no_author));
-        }
+        mTextAuthor.setText(mSelectedBook.getDetailsAuthor());
     }
 
     /**
      * Method to display Rating
      */
     public void displayRating() {
-        double rating = mSelectedBook.getRating();
-        String output;
-
-        if (rating != 0.00) {
-            output = String.format(getString(R.string.label_rating), rating);
-        } else {
-            output = getString(R.string.info_no_rating);
-        }
-
-        mTextRating.setText(output);
+        mTextRating.setText(mSelectedBook.getDetailsRating());
     }
 
     /**
      * Method to display Price
      */
     public void displayPrice() {
-        double price = mSelectedBook.getRetailPrice();
-        String retailPrice;
-
-        if (price != 0.00) {
-            retailPrice = mSelectedBook.getCurrencyCode() + " " + price;
-        } else {
-            retailPrice = getString(R.string.info_no_price);
-        }
-
-        mTextPrice.setText(retailPrice);
+        mTextPrice.setText(mSelectedBook.getDetailsPrice());
     }
 
     /**
      * Method to set buying link
      */
     public void setBuyingLink() {
-        mBuyingLink = mSelectedBook.getBuyingLink();
+        mBuyingLink = mSelectedBook.getBook().getBuyingLink();
 
         if (mBuyingLink != null && mBuyingLink.length() == 0) {
             mButtonBuy.setVisibility(View.GONE);
@@ -206,7 +199,7 @@ public class BookDetailsActivity extends AppCompatActivity implements View.OnCli
      * Method to set preview link
      */
     public void setPreviewLink() {
-        mPreviewLink = mSelectedBook.getPreviewlLink();
+        mPreviewLink = mSelectedBook.getBook().getPreviewlLink();
 
         if (mPreviewLink != null && mPreviewLink.length() == 0) {
             mButtonPreview.setVisibility(View.GONE);
@@ -231,111 +224,18 @@ public class BookDetailsActivity extends AppCompatActivity implements View.OnCli
         startActivity(webIntent);
     }
 
-    /**
-     * Method to check if Published Date exists, then formats it if the extracted date is a valid date
-     */
-    public void formatDate() {
-        String date = mSelectedBook.getPublishedDate();
-        String dateNew = "";
-        mPublishedDate = "";
-
-        if (date != null && date.length() != 0) {
-            if (date.length() == 4 || date.length() == 7 || date.length() == 10 ) { // check if date is YYYY or YYYY-MM or YYYY-MM-DD
-                dateNew = date;
-            } else if (date.length() > 10) {
-                dateNew = date.substring(0, 10);
-            }
-
-            // Format dateNew
-            SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd");
-            SimpleDateFormat newFormat = new SimpleDateFormat("MMM yyyy");
-            try {
-                Date dt = inputFormat.parse(dateNew);
-                mPublishedDate = newFormat.format(dt);
-            }
-            catch(ParseException pe) {
-                Log.e(LOG_TAG, mContext.getString(R.string.exception_date_format), pe);
-            }
-        }
-    }
-
     /**
      * Method to display book details
      */
     public void displayDetails() {
-        String category;
-        String printType;
-        String language;
-        int pageCount;
-
-        StringBuilder sbDetails = new StringBuilder();
-
-        // Add Published Date
-        if (mPublishedDate != null && mPublishedDate.length() > 0) {
-            sbDetails.append(String.format(getString(R.string.label_published), mPublishedDate));
-            sbDetails.append(getString(R.string.newline));
-        }
-
-        // Add category
-        category = mSelectedBook.getCategories();
-        if (category != null && category.length() > 0) {
-            sbDetails.append(String.format(getString(R.string.label_category), category));
-            sbDetails.append(getString(R.string.newline));
-        }
-
-        // Add Print Type
-        printType = mSelectedBook.getPrintType();
-        if (printType != null && printType.length() > 0) {
-            sbDetails.append(String.format(getString(R.string.label_print_type), printType));
-            sbDetails.append(getString(R.string.newline));
-        }
-
-        // Add Language
-        if ((mSelectedBook.getLanguage() != null) && (mSelectedBook.getLanguage().length() > 0)) {
-            Locale locale = new Locale(mSelectedBook.getLanguage());
-            language = locale.getDisplayLanguage(locale);
-            sbDetails.append(String.format(getString(R.string.label_language), language));
-            sbDetails.append(getString(R.string.newline));
-        }
-
-        // Add Page Count
-        pageCount = mSelectedBook.getPageCount();
-        if (pageCount != 0) {
-            sbDetails.append(String.format(getString(R.string.label_page_count), pageCount));
-            sbDetails.append(getString(R.string.newline));
-        }
-
-        // Add EPUB Tag
-        if (mSelectedBook.isTagEpub()) {
-            sbDetails.append(getString(R.string.label_epub)).append(getString(R.string.label_avail));
-            sbDetails.append(getString(R.string.newline));
-        } else {
-            sbDetails.append(getString(R.string.label_epub)).append(getString(R.string.label_noavail));
-            sbDetails.append(getString(R.string.newline));
-        }
-
-        // Add PDF Tag
-        if (mSelectedBook.isTagPdf()) {
-            sbDetails.append(getString(R.string.label_pdf)).append(getString(R.string.label_avail));
-            sbDetails.append(getString(R.string.newline));
-        } else {
-            sbDetails.append(getString(R.string.label_pdf)).append(getString(R.string.label_noavail));
-            sbDetails.append(getString(R.string.newline));
-        }
-
-        mTextDetails.setText(sbDetails.toString());
+        mTextDetails.setText(mSelectedBook.getDetailsText());
     }
 
     /**
      * Method to display Book description
      */
     public void displayDescription() {
-        String description = mSelectedBook.getDescription();
-        if (description != null && description.length() > 0) {
-            mTextDesc.setText(description);
-        } else {
-            mTextDesc.setText(getString(R.string.info_no_desc));
-        }
+        mTextDesc.setText(mSelectedBook.getDetailsDescription());
     }
 
     @Override
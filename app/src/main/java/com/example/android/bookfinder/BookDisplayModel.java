@@ -0,0 +1,334 @@
+package com.example.android.bookfinder;
+
+import android.content.Context;
+import android.util.Log;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import utilities.Utils;
+
+/**
+ * A {@link BookDisplayModel} object holds a {@link Book} along with the text and resources
+ * displayed for it, in the book list and on the details screen.
+ * Models are built once on a background thread, so displaying a book only assigns values
+ * to views. They are never modified after being built.
+ */
+
+public final class BookDisplayModel {
+
+    private static final String LOG_TAG = BookDisplayModel.class.getName();
+
+    private static final String CURRENCY_GBP = "GBP";
+    private static final String CURRENCY_USD = "USD";
+    private static final String CURRENCY_EUR = "EUR";
+
+    // Formats of the published date, as sent by the API and as displayed
+    static final String DATE_FORMAT_INPUT = "yyyy-MM-dd";
+    static final String DATE_FORMAT_DISPLAY = "MMM yyyy";
+
+    /** Book displayed */
+    private final Book mBook;
+
+    /** Price shown in the book list (e.g. £9.99) */
+    private final String mListPrice;
+
+    /** Resource id of the rating drawable shown in the book list */
+    private final int mRatingDrawableId;
+
+    /** Author shown on the details screen, or a note that there is none */
+    private final String mDetailsAuthor;
+
+    /** Rating shown on the details screen (e.g. Rating - 4.5/5) */
+    private final String mDetailsRating;
+
+    /** Price shown on the details screen (e.g. GBP 9.99) */
+    private final String mDetailsPrice;
+
+    /** Published date shown on the details screen (e.g. Mar 2011), empty if unknown */
+    private final String mPublishedDate;
+
+    /** Published date, category, print type, language, page count and formats, one per line */
+    private final String mDetailsText;
+
+    /** Description shown on the details screen, or a note that there is none */
+    private final String mDetailsDescription;
+
+    private BookDisplayModel(Book book, String listPrice, int ratingDrawableId,
+                             String detailsAuthor, String detailsRating, String detailsPrice,
+                             String publishedDate, String detailsText, String detailsDescription) {
+        mBook = book;
+        mListPrice = listPrice;
+        mRatingDrawableId = ratingDrawableId;
+        mDetailsAuthor = detailsAuthor;
+        mDetailsRating = detailsRating;
+        mDetailsPrice = detailsPrice;
+        mPublishedDate = publishedDate;
+        mDetailsText = detailsText;
+        mDetailsDescription = detailsDescription;
+    }
+
+    /**
+     * Build the display models of a list of books.
+     * This is on a background thread.
+     * @param books - Books to display, in order
+     * @return models in the same order as the books
+     */
+    public static List<BookDisplayModel> createList(Context context, List<Book> books) {
+        if (books.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Shared by the books of the list, as most of them have the same language
+        Formatter formatter = new Formatter(context);
+
+        List<BookDisplayModel> models = new ArrayList<>(books.size());
+        for (Book book : books) {
+            models.add(formatter.format(book));
+        }
+        return models;
+    }
+
+    /** Getter method - Book */
+    public Book getBook() {
+        return mBook;
+    }
+
+    /** Getter method - Book Title */
+    public String getTitle() {
+        return mBook.getTitle();
+    }
+
+    /** Getter method - Book Author, as shown in the book list */
+    public String getAuthor() {
+        return mBook.getAuthor();
+    }
+
+    /** Getter method - Thumbnail Link */
+    public String getThumbnailLink() {
+        return mBook.getThumbnailLink();
+    }
+
+    /** Getter method - Price shown in the book list */
+    public String getListPrice() {
+        return mListPrice;
+    }
+
+    /** Getter method - Resource id of the rating drawable */
+    public int getRatingDrawableId() {
+        return mRatingDrawableId;
+    }
+
+    /** Getter method - Author shown on the details screen */
+    public String getDetailsAuthor() {
+        return mDetailsAuthor;
+    }
+
+    /** Getter method - Rating shown on the details screen */
+    public String getDetailsRating() {
+        return mDetailsRating;
+    }
+
+    /** Getter method - Price shown on the details screen */
+    public String getDetailsPrice() {
+        return mDetailsPrice;
+    }
+
+    /** Getter method - Formatted published date */
+    public String getPublishedDate() {
+        return mPublishedDate;
+    }
+
+    /** Getter method - Details text */
+    public String getDetailsText() {
+        return mDetailsText;
+    }
+
+    /** Getter method - Description shown on the details screen */
+    public String getDetailsDescription() {
+        return mDetailsDescription;
+    }
+
+    /**
+     * Format a published date if it is a valid date (e.g. 2011-03-01 becomes Mar 2011)
+     * @param date - Published date as sent by the API: YYYY, YYYY-MM, YYYY-MM-DD or longer
+     * @param inputFormat - Format of the API dates
+     * @param displayFormat - Format of the displayed dates
+     * @return formatted date, or empty if there is none
+     * @throws ParseException if the date isn't a valid date
+     */
+    static String formatDate(String date, SimpleDateFormat inputFormat,
+                             SimpleDateFormat displayFormat) throws ParseException {
+        String dateNew = "";
+
+        if (date == null || date.length() == 0) {
+            return "";
+        }
+        if (date.length() == 4 || date.length() == 7 || date.length() == 10) { // check if date is YYYY or YYYY-MM or YYYY-MM-DD
+            dateNew = date;
+        } else if (date.length() > 10) {
+            dateNew = date.substring(0, 10);
+        }
+
+        Date dt = inputFormat.parse(dateNew);
+        return displayFormat.format(dt);
+    }
+
+    /**
+     * Formats books into display models, reading each string resource once
+     */
+    private static class Formatter {
+
+        private final Context mContext;
+        private final String mNotPriced;
+        private final String mNoAuthor;
+        private final String mNoRating;
+        private final String mNoPrice;
+        private final String mNoDescription;
+        private final String mNewline;
+        private final String mEpubAvailable;
+        private final String mEpubNotAvailable;
+        private final String mPdfAvailable;
+        private final String mPdfNotAvailable;
+
+        // Date formats aren't thread safe, so each formatter has its own
+        private final SimpleDateFormat mInputFormat = new SimpleDateFormat(DATE_FORMAT_INPUT);
+        private final SimpleDateFormat mDisplayFormat = new SimpleDateFormat(DATE_FORMAT_DISPLAY);
+
+        /** Display names of languages, keyed by language code */
+        private final Map<String, String> mLanguageNames = new HashMap<>();
+
+        Formatter(Context context) {
+            mContext = context;
+            mNotPriced = context.getString(R.string.info_not_priced);
+            mNoAuthor = context.getString(R.string.info_no_author);
+            mNoRating = context.getString(R.string.info_no_rating);
+            mNoPrice = context.getString(R.string.info_no_price);
+            mNoDescription = context.getString(R.string.info_no_desc);
+            mNewline = context.getString(R.string.newline);
+            mEpubAvailable = context.getString(R.string.label_epub) + context.getString(R.string.label_avail);
+            mEpubNotAvailable = context.getString(R.string.label_epub) + context.getString(R.string.label_noavail);
+            mPdfAvailable = context.getString(R.string.label_pdf) + context.getString(R.string.label_avail);
+            mPdfNotAvailable = context.getString(R.string.label_pdf) + context.getString(R.string.label_noavail);
+        }
+
+        BookDisplayModel format(Book book) {
+            String author = book.getAuthor();
+            String description = book.getDescription();
+            String publishedDate = formatDate(book.getPublishedDate());
+
+            return new BookDisplayModel(book,
+                    formatListPrice(book),
+                    Utils.getRatingDrawableId(book.getRating()),
+                    (author != null && author.length() > 0) ? author : mNoAuthor,
+                    (book.getRating() != 0.00)
+                            ? mContext.getString(R.string.label_rating, book.getRating())
+                            : mNoRating,
+                    (book.getRetailPrice() != 0.00)
+                            ? book.getCurrencyCode() + " " + book.getRetailPrice()
+                            : mNoPrice,
+                    publishedDate,
+                    formatDetails(book, publishedDate),
+                    (description != null && description.length() > 0) ? description : mNoDescription);
+        }
+
+        /**
+         * Format the price shown in the book list, with the symbol of its currency
+         */
+        private String formatListPrice(Book book) {
+            double price = book.getRetailPrice();
+            if (price == 0.00) {
+                return mNotPriced;
+            }
+
+            String currencyCode = book.getCurrencyCode();
+            if (CURRENCY_GBP.equals(currencyCode)) {
+                return mContext.getString(R.string.label_gbp, price);
+            } else if (CURRENCY_USD.equals(currencyCode)) {
+                return mContext.getString(R.string.label_usd, price);
+            } else if (CURRENCY_EUR.equals(currencyCode)) {
+                return mContext.getString(R.string.label_euro, price);
+            }
+            return "";
+        }
+
+        /**
+         * Format the published date, logging a date that can't be parsed
+         * @return formatted date, or empty if there is none
+         */
+        private String formatDate(String date) {
+            try {
+                return BookDisplayModel.formatDate(date, mInputFormat, mDisplayFormat);
+            } catch (ParseException pe) {
+                Log.e(LOG_TAG, mContext.getString(R.string.exception_date_format), pe);
+                return "";
+            }
+        }
+
+        /**
+         * Build the details text of a book, one detail per line
+         */
+        private String formatDetails(Book book, String publishedDate) {
+            StringBuilder sbDetails = new StringBuilder();
+
+            // Add Published Date
+            if (publishedDate.length() > 0) {
+                sbDetails.append(mContext.getString(R.string.label_published, publishedDate));
+                sbDetails.append(mNewline);
+            }
+
+            // Add category
+            String category = book.getCategories();
+            if (category != null && category.length() > 0) {
+                sbDetails.append(mContext.getString(R.string.label_category, category));
+                sbDetails.append(mNewline);
+            }
+
+            // Add Print Type
+            String printType = book.getPrintType();
+            if (printType != null && printType.length() > 0) {
+                sbDetails.append(mContext.getString(R.string.label_print_type, printType));
+                sbDetails.append(mNewline);
+            }
+
+            // Add Language
+            String languageCode = book.getLanguage();
+            if (languageCode != null && languageCode.length() > 0) {
+                sbDetails.append(mContext.getString(R.string.label_language,
+                        getLanguageName(languageCode)));
+                sbDetails.append(mNewline);
+            }
+
+            // Add Page Count
+            int pageCount = book.getPageCount();
+            if (pageCount != 0) {
+                sbDetails.append(mContext.getString(R.string.label_page_count, pageCount));
+                sbDetails.append(mNewline);
+            }
+
+            // Add EPUB and PDF Tags
+            sbDetails.append(book.isTagEpub() ? mEpubAvailable : mEpubNotAvailable).append(mNewline);
+            sbDetails.append(book.isTagPdf() ? mPdfAvailable : mPdfNotAvailable).append(mNewline);
+
+            return sbDetails.toString();
+        }
+
+        /**
+         * Get the name of a language in that language (e.g. fr becomes français)
+         */
+        private String getLanguageName(String languageCode) {
+            String language = mLanguageNames.get(languageCode);
+            if (language == null) {
+                Locale locale = new Locale(languageCode);
+                language = locale.getDisplayLanguage(locale);
+                mLanguageNames.put(languageCode, language);
+            }
+            return language;
+        }
+    }
+}
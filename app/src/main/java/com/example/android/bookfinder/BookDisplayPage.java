@@ -0,0 +1,31 @@
+package com.example.android.bookfinder;
+
+import java.util.List;
+
+/**
+ * A {@link BookDisplayPage} object holds a {@link BookPage} of search results along with
+ * the display models of its books, built on the loader's background thread
+ */
+
+public class BookDisplayPage extends BookPage {
+
+    /** Display models of the books, in the same order */
+    private List<BookDisplayModel> mDisplayModels;
+
+    /**
+     * Constructs a new {@link BookDisplayPage} object holding the same books as a page,
+     * along with their display models
+     * @param page - Page of books
+     * @param displayModels - Display models of the books of the page, in the same order
+     */
+    public BookDisplayPage(BookPage page, List<BookDisplayModel> displayModels) {
+        super(page.getBooks(), page.getStartIndex(), page.getPageSize(), page.getTotalItems(),
+                page.isFailed());
+        mDisplayModels = displayModels;
+    }
+
+    /** Getter method - Display models of the books */
+    public List<BookDisplayModel> getDisplayModels() {
+        return mDisplayModels;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.android.bookfinder;
+
+import android.app.Application;
+import java.io.File;
+import utilities.AndroidLogger;
+import utilities.CoreLog;
+import utilities.QueryUtils;
+import utilities.StartupTimer;
+
+/**
+ * Application of Book Finder, created before any of its activities.
+ * Sets up the search engine of the bookfinder-core module for Android.
+ */
+
+public class BookFinderApplication extends Application {
+
+    /** Directory of the API response cache, within the app's cache directory */
+    private static final String RESPONSE_CACHE_DIR = "books-api";
+
+    @Override
+    public void onCreate() {
+        StartupTimer.markProcessStart();
+        super.onCreate();
+
+        CoreLog.setLogger(new AndroidLogger());
+        QueryUtils.setResponseCacheDirectory(new File(getCacheDir(), RESPONSE_CACHE_DIR));
+
+        // Refresh the results of the frequent searches while the device charges
+        PrefetchJobService.schedule(this);
+    }
+}
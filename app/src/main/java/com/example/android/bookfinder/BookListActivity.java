@@ -6,43 +6,74 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.Loader;
 import android.content.SharedPreferences;
-import android.net.ConnectivityManager;
-import android.net.NetworkInfo;
-import android.net.Uri;
 import android.os.Bundle;
 import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
-import android.widget.AdapterView;
-import android.widget.ListView;
 import android.widget.TextView;
+import android.widget.Toast;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import utilities.BookResultCache;
+import utilities.FrameMonitor;
+import utilities.ThumbnailLoader;
 import utilities.Utils;
 
 
-public class BookListActivity extends AppCompatActivity implements LoaderCallbacks<List<Book>> {
+public class BookListActivity extends AppCompatActivity implements LoaderCallbacks<BookDisplayPage> {
 
     public static final String LOG_TAG = BookListActivity.class.getName();
 
     /** Constant value for the BookLoader ID */
     private static final int BOOK_LOADER_ID = 1;
 
-    /** Google API URL */
-    private static final String BOOKS_REQUEST_BASE_URL = "https://www.googleapis.com/books/v1/volumes?q=";
+    /** Constant value for the ID of the BookLoader fetching the following pages */
+    private static final int BOOK_PAGE_LOADER_ID = 2;
 
-    private static final int NUM_RESULTS_DEFAULT = 10;
+    /** Loader argument holding the start index of the page to fetch */
+    private static final String ARG_START_INDEX = "startIndex";
+
+    // Saved state keys of the paging state
+    private static final String STATE_NEXT_START_INDEX = "nextStartIndex";
+    private static final String STATE_LOADING_PAGE = "loadingPage";
+
+    /** Number of rows left below the visible ones when the next page starts loading */
+    private static final int NEXT_PAGE_THRESHOLD = 5;
+
+    /** Number of rows below the visible ones whose covers are prefetched */
+    private static final int PREFETCH_ROWS = 6;
 
     final Context mContext = this;
     private static String mBookTitleSearched;
     private static String mBookAuthorSearched;
     private BookAdapter mAdapter;
+
+    /** Monitor of the frames drawn while the list scrolls */
+    private FrameMonitor mFrameMonitor;
     private TextView mEmptyStateTextView;
-    public static List<Book> mListBook;
+    public static List<BookDisplayModel> mListBook;
+
+    /** Books of every page loaded so far; a new list is built for each page */
+    private List<BookDisplayModel> mBooks = new ArrayList<>();
+
+    /** Volume ids of the books in the list, so a book found by two pages is shown once */
+    private final Set<String> mShownIds = new HashSet<>();
+
+    // Paging state
+    private int mNextStartIndex;
+    private boolean mHasMorePages;
+    private boolean mIsLoadingPage;
+
+    /** Start index reached before the activity was recreated, 0 once the pages are restored */
+    private int mRestoredStartIndex;
 
 
     @Override
@@ -57,115 +88,261 @@ public class BookListActivity extends AppCompatActivity implements LoaderCallbac
             mBookAuthorSearched = bundle.getString("bookAuthor");
         }
 
-        // Find a reference to the {@link ListView} in the layout
-        ListView bookListView = (ListView) findViewById(R.id.list_books);
+        // Find a reference to the {@link RecyclerView} in the layout
+        RecyclerView bookListView = (RecyclerView) findViewById(R.id.list_books);
+        final LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        bookListView.setLayoutManager(layoutManager);
 
         // Set empty view
         mEmptyStateTextView = (TextView) findViewById(R.id.text_empty_list);
         Utils.setCustomTypeface(mContext, mEmptyStateTextView);
-        bookListView.setEmptyView(mEmptyStateTextView);
-
-        // Create a new adapter that takes the list of books as input
-        mListBook = new ArrayList<Book>();
-        mAdapter = new BookAdapter(this, mListBook);
-
-        // Create a new adapter that takes the list of books as input
-        bookListView.setAdapter(mAdapter);
-
-        // Get a reference to the ConnectivityManager to check state of network connectivity
-        ConnectivityManager connMgr = (ConnectivityManager)
-                getSystemService(Context.CONNECTIVITY_SERVICE);
 
-        // Get details on the currently active default data network
-        NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
-
-        // If there is a network connection, fetch data
-        if (networkInfo != null && networkInfo.isConnected()) {
-            // Get a reference to the LoaderManager, in order to interact with loaders.
-            LoaderManager loaderManager = getLoaderManager();
-            loaderManager.initLoader(BOOK_LOADER_ID, null, this);
-        } else {
-            // Hide loading indicator and show empty state view
-            View progressIndicator = findViewById(R.id.progress_indicator);
-            mEmptyStateTextView.setText(R.string.error_no_connection);
-        }
-
-        // Set an OnClickListener on BookListView to launch BookDetailsActivity
-        bookListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+        // Create a new adapter and launch BookDetailsActivity when a book is clicked
+        mListBook = new ArrayList<BookDisplayModel>();
+        mAdapter = new BookAdapter(this, new BookAdapter.OnBookClickListener() {
             @Override
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long l) {
+            public void onBookClick(int position) {
+                // BookDetailsActivity reads the selected book from the displayed list
+                mListBook = mAdapter.getBooks();
 
                 Intent intent = new Intent(mContext, BookDetailsActivity.class);
                 intent.putExtra("position", position);
                 startActivity(intent);
             }
         });
+        bookListView.setAdapter(mAdapter);
+
+        mFrameMonitor = FrameMonitor.getInstance(FrameMonitor.SCREEN_BOOK_LIST);
+        mAdapter.setFrameMonitor(mFrameMonitor);
+
+        // Prefetch the covers of the rows below, and fetch the next page in the background
+        // as the user nears the bottom of the list
+        bookListView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(final RecyclerView recyclerView, int dx, int dy) {
+                mFrameMonitor.onScroll();
+
+                int lastVisiblePosition = layoutManager.findLastVisibleItemPosition();
+                if (lastVisiblePosition != RecyclerView.NO_POSITION) {
+                    mAdapter.prefetchThumbnails(lastVisiblePosition + 1, PREFETCH_ROWS);
+                }
+
+                int totalItemCount = layoutManager.getItemCount();
+                if (totalItemCount > 0
+                        && lastVisiblePosition >= totalItemCount - 1 - NEXT_PAGE_THRESHOLD) {
+                    // The adapter can't be changed from within a scroll callback
+                    recyclerView.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            loadNextPage();
+                        }
+                    });
+                }
+            }
+        });
+
+        // Fetch data; without a network connection the books are searched in the local catalog
+        LoaderManager loaderManager = getLoaderManager();
+        loaderManager.initLoader(BOOK_LOADER_ID, null, this);
+
+        // After a configuration change, the pages appended before are restored once the first
+        // page is delivered, and a page still loading is delivered to this activity
+        if (savedInstanceState != null) {
+            mRestoredStartIndex = savedInstanceState.getInt(STATE_NEXT_START_INDEX);
+            if (loaderManager.getLoader(BOOK_PAGE_LOADER_ID) != null) {
+                mIsLoadingPage = savedInstanceState.getBoolean(STATE_LOADING_PAGE);
+                loaderManager.initLoader(BOOK_PAGE_LOADER_ID, null, this);
+            }
+        }
     }
 
     @Override
-    public Loader<List<Book>> onCreateLoader(int i, Bundle bundle) {
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putInt(STATE_NEXT_START_INDEX, mNextStartIndex);
+        outState.putBoolean(STATE_LOADING_PAGE, mIsLoadingPage);
+    }
 
-        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
-        String orderBy = sharedPrefs.getString(
-                getString(R.string.settings_order_by_key),
-                getString(R.string.settings_order_by_default)
-        );
+    @Override
+    protected void onResume() {
+        super.onResume();
+        mFrameMonitor.setRefreshRate(getWindowManager().getDefaultDisplay().getRefreshRate());
+    }
 
-        String maxResults = sharedPrefs.getString(
-                getString(R.string.settings_maxresults_key),
-                getString(R.string.settings_maxresults_default)
-        );
+    @Override
+    protected void onPause() {
+        super.onPause();
+        mFrameMonitor.stop();
+    }
 
-        Uri baseUri = Uri.parse(prepareSearchQuery());
-        Uri.Builder uriBuilder = baseUri.buildUpon();
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
 
-        // Append parameters obtained fro, SharedPreferences
-        uriBuilder.appendQueryParameter("maxResults", maxResults);
-        uriBuilder.appendQueryParameter("orderBy", orderBy);
+        // Covers of this list are no longer needed
+        ThumbnailLoader.getInstance(mContext).cancelPrefetches();
+    }
 
-        return new BookLoader(mContext, uriBuilder.toString());
+    @Override
+    public Loader<BookDisplayPage> onCreateLoader(int i, Bundle bundle) {
+        int startIndex = (bundle != null) ? bundle.getInt(ARG_START_INDEX) : 0;
+        return new BookLoader(mContext, preparePageQuery(startIndex));
     }
 
     @Override
-    public void onLoadFinished(Loader<List<Book>> loader, List<Book> books) {
+    public void onLoadFinished(Loader<BookDisplayPage> loader, BookDisplayPage page) {
 
-        // Hide progress indicator because the data has been loaded
+        // Hide progress indicators because the data has been loaded
         View progressIndicator = findViewById(R.id.progress_indicator);
         progressIndicator.setVisibility(View.GONE);
+        if (loader.getId() == BOOK_PAGE_LOADER_ID) {
+            mIsLoadingPage = false;
+        }
+        mAdapter.setShowFooter(mIsLoadingPage);
+
+        // A following page that isn't the next one is already in the list, e.g. the last page
+        // delivered again after a configuration change
+        if (loader.getId() == BOOK_PAGE_LOADER_ID && page != null
+                && page.getStartIndex() != mNextStartIndex) {
+            return;
+        }
 
         // Set empty state text when no books found
-        mEmptyStateTextView.setText(R.string.info_no_books);
+        if (!Utils.isNetworkConnected(mContext)) {
+            mEmptyStateTextView.setText(R.string.error_no_connection);
+        } else if (page != null && page.isFailed()) {
+            mEmptyStateTextView.setText(R.string.error_load_books);
+        } else {
+            mEmptyStateTextView.setText(R.string.info_no_books);
+        }
+
+        // A following page that failed is requested again on the next scroll; the books
+        // shown are kept and paging goes on
+        if (loader.getId() == BOOK_PAGE_LOADER_ID && page != null && page.isFailed()) {
+            Toast.makeText(mContext, R.string.error_load_more_books, Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        // The first page replaces previous book data; following pages are appended
+        List<BookDisplayModel> books;
+        if (loader.getId() == BOOK_LOADER_ID) {
+            books = new ArrayList<>();
+            mShownIds.clear();
+        } else {
+            books = new ArrayList<>(mBooks);
+        }
 
-        // Clear the adapter of previous book data
-        mAdapter.clear();
+        // If there is a valid list of {@link Book}s, then add them to the new list
+        if (page != null) {
+            addNewBooks(books, page.getDisplayModels());
+            mNextStartIndex = page.getNextStartIndex();
+            mHasMorePages = page.hasMore();
+        } else {
+            mHasMorePages = false;
+        }
 
-        // If there is a valid list of {@link Book}s, then add them to the adapter's
-        // data set. This will trigger the ListView to update.
-        if (books != null && !books.isEmpty()) {
-            mAdapter.addAll(books);
+        if (loader.getId() == BOOK_LOADER_ID) {
+            restoreAppendedPages(books);
         }
+
+        // The adapter rebinds only the rows that changed
+        mBooks = books;
+        mAdapter.submitList(books);
+        mEmptyStateTextView.setVisibility(books.isEmpty() ? View.VISIBLE : View.GONE);
     }
 
     /**
-     * This method prepares the final query used to fetch data from Google API
-     * @return search query
+     * This method adds books to the list, skipping the books already shown, as local and
+     * network pages may overlap
      */
-    public String prepareSearchQuery() {
+    private void addNewBooks(List<BookDisplayModel> books, List<BookDisplayModel> newBooks) {
+        for (BookDisplayModel book : newBooks) {
+            String id = book.getBook().getId();
+            if (id == null || id.isEmpty() || mShownIds.add(id)) {
+                books.add(book);
+            }
+        }
+    }
 
-        StringBuilder stringBuilder = new StringBuilder(BOOKS_REQUEST_BASE_URL);
-        stringBuilder.append("+intitle:").append(mBookTitleSearched);
+    /**
+     * This method appends the pages that followed the first page before the activity was
+     * recreated, from the {@link BookResultCache}, so the list and its scroll position are
+     * kept. Paging resumes from the first page no longer in memory.
+     */
+    private void restoreAppendedPages(List<BookDisplayModel> books) {
+        BookResultCache resultCache = BookResultCache.getInstance();
+        while (mHasMorePages && mNextStartIndex < mRestoredStartIndex) {
+            BookPage page = resultCache.get(preparePageQuery(mNextStartIndex).getCacheKey());
+            if (page == null) {
+                break;
+            }
+            addNewBooks(books, BookDisplayModel.createList(mContext, page.getBooks()));
+            mNextStartIndex = page.getNextStartIndex();
+            mHasMorePages = page.hasMore();
+        }
+        mRestoredStartIndex = 0;
+    }
 
-        // Add author to query if entered by user
-        if ((mBookAuthorSearched != null) && (mBookAuthorSearched.length() != 0)) {
-            stringBuilder.append("+inauthor:").append(mBookAuthorSearched);
+    /**
+     * This method starts loading the next page of books, unless a page is already
+     * loading or all the pages have been loaded
+     */
+    private void loadNextPage() {
+        if (mIsLoadingPage || !mHasMorePages) {
+            return;
         }
 
-        return(stringBuilder.toString());
+        mIsLoadingPage = true;
+        mAdapter.setShowFooter(true);
+
+        Bundle args = new Bundle();
+        args.putInt(ARG_START_INDEX, mNextStartIndex);
+        getLoaderManager().restartLoader(BOOK_PAGE_LOADER_ID, args, this);
+    }
+
+    /**
+     * This method prepares the canonical query of a page of the search, with the order and
+     * page size of the settings
+     * @param startIndex - Index of the first book of the page
+     * @return search query
+     */
+    private BookQuery preparePageQuery(int startIndex) {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
+        String orderBy = sharedPrefs.getString(
+                getString(R.string.settings_order_by_key),
+                getString(R.string.settings_order_by_default)
+        );
+
+        String maxResults = sharedPrefs.getString(
+                getString(R.string.settings_maxresults_key),
+                getString(R.string.settings_maxresults_default)
+        );
+
+        // Parameters obtained from SharedPreferences; maxResults is used as the page size
+        return prepareSearchQuery(orderBy, Integer.parseInt(maxResults), startIndex);
+    }
+
+    /**
+     * This method prepares the canonical query of a page of the search
+     * @return search query
+     */
+    private BookQuery prepareSearchQuery(String orderBy, int pageSize, int startIndex) {
+        return new BookQuery.Builder()
+                .setTitle(mBookTitleSearched)
+                .setAuthor(mBookAuthorSearched)
+                .setOrderBy(orderBy)
+                .setPageSize(pageSize)
+                .setStartIndex(startIndex)
+                .build();
     }
 
     @Override
-    public void onLoaderReset(Loader<List<Book>> loader) {
-        mAdapter.clear();
+    public void onLoaderReset(Loader<BookDisplayPage> loader) {
+        if (loader.getId() == BOOK_LOADER_ID) {
+            mBooks = new ArrayList<>();
+            mAdapter.submitList(mBooks);
+            mShownIds.clear();
+        }
     }
 
     @Override
@@ -177,6 +354,7 @@ public class BookListActivity extends AppCompatActivity implements LoaderCallbac
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main, menu);
+        menu.findItem(R.id.action_metrics).setVisible(BuildConfig.DEBUG);
         return true;
     }
 
@@ -190,6 +368,10 @@ public class BookListActivity extends AppCompatActivity implements LoaderCallbac
             startActivity(settingsIntent);
             return true;
         }
+        if (id == R.id.action_metrics) {
+            startActivity(new Intent(this, MetricsActivity.class));
+            return true;
+        }
         return super.onOptionsItemSelected(item);
     }
 }
@@ -2,47 +2,210 @@ package com.example.android.bookfinder;
 
 import android.content.AsyncTaskLoader;
 import android.content.Context;
-import java.util.List;
+import android.os.OperationCanceledException;
+import com.example.android.bookfinder.data.BookCatalog;
+import utilities.BookResultCache;
+import java.util.concurrent.atomic.AtomicLong;
+import utilities.CancellationToken;
+import utilities.Histogram;
+import utilities.MetricsRegistry;
 import utilities.QueryUtils;
+import utilities.Utils;
 
 /**
- * Loads a list of Books by using an AsyncTask to perform the
+ * Loads a page of Books by using an AsyncTask to perform the
  * network request to the Google Books API URL.
+ * A page fetched recently is served from the local {@link BookCatalog}, so only the pages
+ * the catalog can't fill are requested. Without a network, or when the first page fails
+ * to load, the page is searched in the catalog instead.
+ * The display models of the books are built here too, so the UI thread only assigns them.
  */
 
-public class BookLoader extends AsyncTaskLoader<List<Book>> {
+public class BookLoader extends AsyncTaskLoader<BookDisplayPage> {
 
-    private static final String LOG_TAG = BookLoader.class.getName();
+    // Metrics of the loads, kept in the MetricsRegistry; times are in nanoseconds
+    private static final MetricsRegistry mMetrics = MetricsRegistry.getInstance();
+    private static final Histogram mLoadTime =
+            mMetrics.histogram("loader.load", Histogram.Unit.NANOSECONDS);
+    private static final Histogram mCatalogTime =
+            mMetrics.histogram("loader.catalog", Histogram.Unit.NANOSECONDS);
+    private static final Histogram mFetchTime =
+            mMetrics.histogram("loader.fetch", Histogram.Unit.NANOSECONDS);
+    private static final Histogram mDisplayModelTime =
+            mMetrics.histogram("loader.display_models", Histogram.Unit.NANOSECONDS);
+    private static final AtomicLong mMemoryHitCounter = mMetrics.counter("loader.memory_hits");
+    private static final AtomicLong mCatalogHitCounter = mMetrics.counter("loader.catalog_hits");
+    private static final AtomicLong mOfflineCounter = mMetrics.counter("loader.offline");
 
     private String mUrl;
+    private int mStartIndex;
+    private int mPageSize;
+    private BookResultCache.Key mCacheKey;
+
+    /** Page delivered by the last load, kept so it is not fetched again when the activity restarts */
+    private BookDisplayPage mPage;
+
+    /** Token of the load running in the background, canceled to abort its request */
+    private CancellationToken mCancellationToken;
 
     /**
      * Constructs a new {@link BookLoader} object
      * @param context
-     * @param url
+     * @param query - Canonical search, with the index and number of books of the page to load
      */
-    public BookLoader (Context context, String url) {
+    public BookLoader (Context context, BookQuery query) {
         super(context);
-        mUrl = url;
+        mUrl = query.isEmpty() ? null : query.getSearchUrl();
+        mStartIndex = query.getStartIndex();
+        mPageSize = query.getPageSize();
+        mCacheKey = query.getCacheKey();
     }
 
     @Override
     protected void onStartLoading() {
-        forceLoad();
+        if (mPage != null) {
+            deliverResult(mPage);
+        } else {
+            forceLoad();
+        }
+    }
+
+    @Override
+    public void deliverResult(BookDisplayPage page) {
+        mPage = page;
+        super.deliverResult(page);
+    }
+
+    /** Getter method - Search URL without paging parameters */
+    public String getUrl() {
+        return mUrl;
     }
 
     /**
      * This is on a background thread.
      */
     @Override
-    public List<Book> loadInBackground() {
+    public BookDisplayPage loadInBackground() {
+        long loadStart = System.nanoTime();
+        BookPage page = loadPage();
+        if (page == null) {
+            return null;
+        }
+
+        long displayModelStart = System.nanoTime();
+        BookDisplayPage displayPage = new BookDisplayPage(page,
+                BookDisplayModel.createList(getContext(), page.getBooks()));
+        mDisplayModelTime.recordSince(displayModelStart);
+        mLoadTime.recordSince(loadStart);
+        return displayPage;
+    }
+
+    /**
+     * Load the page of books from memory, the local catalog or the network, or search the
+     * catalog when there is no network
+     */
+    private BookPage loadPage() {
         if (mUrl == null) {
             return null;
         }
 
-        // Perform network request, parse the response, and extract a list of books
-        // matching search criteria
-        List<Book> books = QueryUtils.fetchBookData(mUrl, getContext());
-        return books;
+        // Return the page straight from memory if the same search was loaded recently
+        BookResultCache resultCache = BookResultCache.getInstance();
+        BookPage page = resultCache.get(mCacheKey);
+        if (page != null) {
+            mMemoryHitCounter.incrementAndGet();
+            return page;
+        }
+
+        // Serve the page from the catalog if it was fetched recently, as the API returned it
+        BookCatalog catalog = BookCatalog.getInstance(getContext());
+        long catalogStart = System.nanoTime();
+        page = catalog.findPage(mCacheKey.getTitle(), mCacheKey.getAuthor(),
+                mCacheKey.getOrderBy(), mStartIndex, mPageSize);
+        mCatalogTime.recordSince(catalogStart);
+        if (page != null) {
+            mCatalogHitCounter.incrementAndGet();
+            resultCache.put(mCacheKey, page);
+            return page;
+        }
+
+        // A search of the catalog ranks books by their best rank in any search, so it is
+        // only used when the API can't be reached
+        if (!Utils.isNetworkConnected(getContext())) {
+            mOfflineCounter.incrementAndGet();
+            return searchCatalog(catalog);
+        }
+
+        CancellationToken token;
+        synchronized (this) {
+            if (isLoadInBackgroundCanceled()) {
+                throw new OperationCanceledException();
+            }
+            mCancellationToken = new CancellationToken();
+            token = mCancellationToken;
+        }
+
+        long fetchStart = System.nanoTime();
+        try {
+            // Perform network request, parse the response, and extract the page of books
+            // matching search criteria. The response cache revalidates what it holds.
+            page = QueryUtils.fetchBookPage(mUrl, mStartIndex, mPageSize, token);
+        } finally {
+            synchronized (this) {
+                mCancellationToken = null;
+            }
+        }
+        mFetchTime.recordSince(fetchStart);
+
+        // A canceled load may hold a partial page; it is never delivered or cached
+        if (token.isCanceled()) {
+            throw new OperationCanceledException();
+        }
+
+        // A failed first page falls back to the books found locally; a failed following page
+        // is returned as it is, so it is requested again
+        if (page.isFailed()) {
+            if (mStartIndex == 0) {
+                BookPage localPage = searchCatalog(catalog);
+                if (!localPage.getBooks().isEmpty()) {
+                    mCatalogHitCounter.incrementAndGet();
+                    return localPage;
+                }
+            }
+            return page;
+        }
+
+        // Keep pages with books for later loaders and for offline searches
+        if (!page.getBooks().isEmpty()) {
+            resultCache.put(mCacheKey, page);
+            catalog.addPage(mCacheKey.getTitle(), mCacheKey.getAuthor(), mCacheKey.getOrderBy(),
+                    page);
+        }
+        return page;
+    }
+
+    /**
+     * Search the local catalog for the page of books loaded
+     */
+    private BookPage searchCatalog(BookCatalog catalog) {
+        long catalogStart = System.nanoTime();
+        BookPage page = catalog.search(mCacheKey.getTitle(), mCacheKey.getAuthor(),
+                mCacheKey.getOrderBy(), mStartIndex, mPageSize);
+        mCatalogTime.recordSince(catalogStart);
+        return page;
+    }
+
+    /**
+     * Abort the request of the load running in the background, closing its socket
+     */
+    @Override
+    public void cancelLoadInBackground() {
+        super.cancelLoadInBackground();
+
+        synchronized (this) {
+            if (mCancellationToken != null) {
+                mCancellationToken.cancel();
+            }
+        }
     }
 }
@@ -1,22 +1,56 @@
 package com.example.android.bookfinder;
 
+import android.app.LoaderManager.LoaderCallbacks;
 import android.content.Context;
 import android.content.Intent;
+import android.content.Loader;
+import android.content.SharedPreferences;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
+import com.example.android.bookfinder.data.SearchHistory;
+import java.util.Collections;
+import utilities.InputValidator;
+import utilities.QueryUtils;
+import utilities.StartupTimer;
 import utilities.Utils;
 
 
-public class MainActivity extends AppCompatActivity implements View.OnClickListener {
+public class MainActivity extends AppCompatActivity implements View.OnClickListener,
+        LoaderCallbacks<BookDisplayPage> {
 
     public static final String LOG_TAG = MainActivity.class.getName();
 
+    /** Constant value for the ID of the BookLoader fetching live results */
+    private static final int LIVE_LOADER_ID = 1;
+
+    // Loader arguments holding the input of the live search
+    private static final String ARG_BOOK_TITLE = "bookTitle";
+    private static final String ARG_BOOK_AUTHOR = "bookAuthor";
+
+    /** Saved state key of the URL of the newest live search */
+    private static final String STATE_LIVE_URL = "liveSearchUrl";
+
+    /** Time without typing after which the live search starts, in milliseconds */
+    private static final long LIVE_SEARCH_DELAY = 300;
+
+    /** Shortest book title searched while typing */
+    private static final int LIVE_SEARCH_MIN_LENGTH = 3;
+
+    /** Number of live results fetched when the Max Results setting needs several requests */
+    private static final int LIVE_RESULTS_COUNT = 10;
+
     final Context mContext = this;
     private String mBookTitle;
     private String mBookAuthor;
@@ -26,6 +60,20 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
     private EditText mEditBookTitle;
     private EditText mEditBookAuthor;
     private Button mButtonSearch;
+    private RecyclerView mLiveResultsView;
+
+    // Live search state
+    private final Handler mLiveSearchHandler = new Handler();
+    private BookAdapter mLiveAdapter;
+    private String mLiveSearchUrl;
+
+    /** Starts the live search once typing has paused */
+    private final Runnable mLiveSearchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            startLiveSearch();
+        }
+    };
 
 
     @Override
@@ -38,6 +86,7 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         mEditBookTitle = (EditText) findViewById(R.id.edit_book_title);
         mEditBookAuthor = (EditText) findViewById(R.id.edit_book_author);
         mButtonSearch = (Button) findViewById(R.id.button_search_books);
+        mLiveResultsView = (RecyclerView) findViewById(R.id.list_live_results);
 
         /** Set custom font on views */
         setCustomTypeface();
@@ -49,6 +98,60 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         mEditBookTitle.addTextChangedListener(new QuizTextWatcher(mEditBookTitle));
         mEditBookAuthor.addTextChangedListener(new QuizTextWatcher(mEditBookAuthor));
 
+        /** Set up the live results list */
+        mLiveAdapter = new BookAdapter(this, new BookAdapter.OnBookClickListener() {
+            @Override
+            public void onBookClick(int position) {
+                // BookDetailsActivity reads the selected book from the shared book list
+                BookListActivity.mListBook = mLiveAdapter.getBooks();
+
+                Intent intent = new Intent(mContext, BookDetailsActivity.class);
+                intent.putExtra("position", position);
+                startActivity(intent);
+            }
+        });
+        mLiveResultsView.setLayoutManager(new LinearLayoutManager(this));
+        mLiveResultsView.setAdapter(mLiveAdapter);
+
+        /** Reconnect to the live search after a configuration change */
+        if (savedInstanceState != null) {
+            mLiveSearchUrl = savedInstanceState.getString(STATE_LIVE_URL);
+        }
+        if (getLoaderManager().getLoader(LIVE_LOADER_ID) != null) {
+            getLoaderManager().initLoader(LIVE_LOADER_ID, null, this);
+        }
+
+        /** Report the cold start time once the first frame is drawn */
+        final View contentView = findViewById(android.R.id.content);
+        contentView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                contentView.getViewTreeObserver().removeOnPreDrawListener(this);
+
+                // Runs after the frame being drawn now
+                contentView.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (StartupTimer.markInteractive()) {
+                            reportFullyDrawn();
+                        }
+                    }
+                });
+                return true;
+            }
+        });
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        outState.putString(STATE_LIVE_URL, mLiveSearchUrl);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        mLiveSearchHandler.removeCallbacks(mLiveSearchRunnable);
     }
 
     /**
@@ -81,13 +184,140 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         if (validateInput()) {
             Intent intent = new Intent(mContext, BookListActivity.class);
 
-            // Replace spaces with + sign for URL to be used to fetch data
-            intent.putExtra("bookTitle", mBookTitle.replaceAll(" ", "+"));
-            intent.putExtra("bookAuthor", mBookAuthor.replaceAll(" ", "+"));
+            // The text is passed as typed; BookQuery normalizes and encodes it
+            intent.putExtra("bookTitle", mBookTitle);
+            intent.putExtra("bookAuthor", mBookAuthor);
+
+            // Remember the search, so its results are loaded while the app next starts
+            PreferenceManager.getDefaultSharedPreferences(mContext).edit()
+                    .putString(getString(R.string.pref_last_title_key), mBookTitle)
+                    .putString(getString(R.string.pref_last_author_key), mBookAuthor)
+                    .apply();
+
+            // Count the search, so its results are refreshed in the background if it is frequent
+            final BookQuery query = new BookQuery.Builder()
+                    .setTitle(mBookTitle)
+                    .setAuthor(mBookAuthor)
+                    .build();
+            final Context appContext = getApplicationContext();
+            AsyncTask.execute(new Runnable() {
+                @Override
+                public void run() {
+                    SearchHistory.getInstance(appContext).addSearch(query);
+                }
+            });
+
             startActivity(intent);
         }
     }
 
+    /**
+     * This method schedules a live search for the current input, canceling the live search
+     * in flight, if any, as its results are already out of date
+     */
+    private void scheduleLiveSearch() {
+        mLiveSearchHandler.removeCallbacks(mLiveSearchRunnable);
+
+        Loader<BookDisplayPage> loader = getLoaderManager().getLoader(LIVE_LOADER_ID);
+        if (loader != null) {
+            loader.cancelLoad();
+        }
+
+        if (isLiveSearchEnabled()) {
+            mLiveSearchHandler.postDelayed(mLiveSearchRunnable, LIVE_SEARCH_DELAY);
+        }
+    }
+
+    /**
+     * This method starts a live search for the current input if it can be searched,
+     * replacing the previous live search
+     */
+    private void startLiveSearch() {
+        String bookTitle = mEditBookTitle.getText().toString().trim();
+        String bookAuthor = mEditBookAuthor.getText().toString().trim();
+
+        // Input errors are only reported when the Search button is pressed
+        if (bookTitle.length() < LIVE_SEARCH_MIN_LENGTH
+                || (Utils.checkEmptyString(bookAuthor) && !InputValidator.isValidAuthor(bookAuthor))) {
+            return;
+        }
+
+        Bundle args = new Bundle();
+        args.putString(ARG_BOOK_TITLE, bookTitle);
+        args.putString(ARG_BOOK_AUTHOR, bookAuthor);
+        getLoaderManager().restartLoader(LIVE_LOADER_ID, args, this);
+    }
+
+    /**
+     * This method checks if live search is turned on in the settings
+     */
+    private boolean isLiveSearchEnabled() {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
+        return sharedPrefs.getBoolean(getString(R.string.settings_live_search_key), true);
+    }
+
+    /**
+     * Getter method - Number of live results: the Max Results preference, so pressing Search
+     * can reuse the live results as the first page, unless a page that large takes several
+     * API requests, which is too costly on every pause in typing
+     */
+    private int getLiveResultsCount() {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
+        int maxResults = Integer.parseInt(sharedPrefs.getString(
+                getString(R.string.settings_maxresults_key),
+                getString(R.string.settings_maxresults_default)
+        ));
+        return (maxResults <= QueryUtils.MAX_PAGE_SIZE) ? maxResults : LIVE_RESULTS_COUNT;
+    }
+
+    /**
+     * Getter method - Order By preference
+     */
+    private String getOrderBy() {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
+        return sharedPrefs.getString(
+                getString(R.string.settings_order_by_key),
+                getString(R.string.settings_order_by_default)
+        );
+    }
+
+    @Override
+    public Loader<BookDisplayPage> onCreateLoader(int i, Bundle bundle) {
+        // Built like the first page of BookListActivity while Max Results takes one request,
+        // so pressing Search can reuse the results
+        BookQuery query = new BookQuery.Builder()
+                .setTitle(bundle.getString(ARG_BOOK_TITLE))
+                .setAuthor(bundle.getString(ARG_BOOK_AUTHOR))
+                .setOrderBy(getOrderBy())
+                .setPageSize(getLiveResultsCount())
+                .build();
+        mLiveSearchUrl = query.getSearchUrl();
+        return new BookLoader(mContext, query);
+    }
+
+    @Override
+    public void onLoadFinished(Loader<BookDisplayPage> loader, BookDisplayPage page) {
+        // Only the results of the newest input are shown
+        String url = ((BookLoader) loader).getUrl();
+        if (url == null || !url.equals(mLiveSearchUrl)) {
+            return;
+        }
+
+        // Results for a longer input mostly repeat the previous ones, so only changed rows rebind
+        if (page != null && !page.getBooks().isEmpty()) {
+            mLiveAdapter.submitList(page.getDisplayModels());
+            mLiveResultsView.setVisibility(View.VISIBLE);
+        } else {
+            mLiveAdapter.submitList(Collections.<BookDisplayModel>emptyList());
+            mLiveResultsView.setVisibility(View.GONE);
+        }
+    }
+
+    @Override
+    public void onLoaderReset(Loader<BookDisplayPage> loader) {
+        mLiveAdapter.submitList(Collections.<BookDisplayModel>emptyList());
+    }
+
     /**
      * This method checks if an input string contains number or invalid characters.
      */
@@ -105,7 +335,7 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         /** Check if Book Author is valid if entered; it is an optional field */
         if (Utils.checkEmptyString(mBookAuthor)) {
             // Book Author not empty so check if input is valid
-            if (!Utils.checkValidString(mBookAuthor)) {
+            if (!InputValidator.isValidAuthor(mBookAuthor)) {
                 mEditBookAuthor.setBackgroundResource(R.color.colorError);
                 mEditBookAuthor.setError(getString(R.string.error_invalid_string));
                 return false;
@@ -134,6 +364,13 @@ public class MainActivity extends AppCompatActivity implements View.OnClickListe
         }
 
         public void afterTextChanged(Editable editable) {
+            // Flag an author that can't become valid as soon as it is typed; the error
+            // message itself is only shown when the Search button is pressed
+            if (view == mEditBookAuthor && !InputValidator.isBlank(editable)
+                    && !InputValidator.isValidAuthorPrefix(editable)) {
+                mEditBookAuthor.setBackgroundResource(R.color.colorError);
+            }
+            scheduleLiveSearch();
         }
     }
 }
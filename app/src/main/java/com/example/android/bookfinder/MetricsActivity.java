@@ -0,0 +1,72 @@
+package com.example.android.bookfinder;
+
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+import utilities.MetricsRegistry;
+
+/**
+ * Debug screen showing the {@link MetricsRegistry}: the latency of each stage of the searches,
+ * payload sizes, book counts and the counters of the caches and the network client.
+ * The same dump is printed by adb shell dumpsys activity
+ * com.example.android.bookfinder/.MetricsActivity while the screen is open.
+ */
+
+public class MetricsActivity extends AppCompatActivity {
+
+    private TextView mMetricsTextView;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        mMetricsTextView = (TextView) findViewById(R.id.text_metrics);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showMetrics();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.metrics, menu);
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int id = item.getItemId();
+        if (id == R.id.action_refresh_metrics) {
+            showMetrics();
+            return true;
+        }
+        if (id == R.id.action_reset_metrics) {
+            MetricsRegistry.getInstance().reset();
+            showMetrics();
+            return true;
+        }
+        return super.onOptionsItemSelected(item);
+    }
+
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        try {
+            MetricsRegistry.getInstance().dump(writer);
+        } catch (IOException e) {
+            // A PrintWriter doesn't throw
+        }
+    }
+
+    private void showMetrics() {
+        mMetricsTextView.setText(MetricsRegistry.getInstance().dump());
+    }
+}
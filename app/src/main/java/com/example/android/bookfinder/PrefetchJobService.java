@@ -0,0 +1,170 @@
+package com.example.android.bookfinder;
+
+import android.annotation.TargetApi;
+import android.app.job.JobInfo;
+import android.app.job.JobParameters;
+import android.app.job.JobScheduler;
+import android.app.job.JobService;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Build;
+import android.preference.PreferenceManager;
+import android.util.Log;
+import com.example.android.bookfinder.data.BookCatalog;
+import com.example.android.bookfinder.data.SearchHistory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import utilities.BookResultCache;
+import utilities.CancellationToken;
+import utilities.Histogram;
+import utilities.MetricsRegistry;
+import utilities.QueryUtils;
+import utilities.ThumbnailLoader;
+
+/**
+ * Background job refreshing the results of the searches the user runs most often, with the
+ * covers of their books, while the device is charging on an unmetered network.
+ * The results go to the response cache, the memory cache, the local catalog and the cover cache.
+ * The catalog serves a page for 24 hours, longer than the interval of the job, so one of these
+ * searches run in the 24 hours after a prefetch opens without a request.
+ * JobScheduler needs API 21; on older devices searches are only cached when they are run.
+ */
+
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class PrefetchJobService extends JobService {
+
+    private static final String LOG_TAG = PrefetchJobService.class.getName();
+
+    /** Constant value for the ID of the prefetch job */
+    private static final int PREFETCH_JOB_ID = 1;
+
+    /** Time between two runs of the job; it waits longer while its conditions aren't met */
+    private static final long PREFETCH_INTERVAL = TimeUnit.HOURS.toMillis(12);
+
+    /** Number of frequent searches whose results are refreshed */
+    private static final int PREFETCH_SEARCHES_COUNT = 5;
+
+    // Metrics of the prefetches, kept in the MetricsRegistry; times are in nanoseconds
+    private static final MetricsRegistry mMetrics = MetricsRegistry.getInstance();
+    private static final Histogram mRunTime =
+            mMetrics.histogram("prefetch.run", Histogram.Unit.NANOSECONDS);
+    private static final AtomicLong mSearchCounter = mMetrics.counter("prefetch.searches");
+    private static final AtomicLong mThumbnailCounter = mMetrics.counter("prefetch.thumbnails");
+
+    /** Token of the run in progress, canceled when the job must stop; used on the main thread */
+    private CancellationToken mCancellationToken;
+
+    /**
+     * Schedule the job, unless it is already scheduled or the device is older than API 21.
+     * The job is kept across reboots.
+     */
+    public static void schedule(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP) {
+            return;
+        }
+
+        // Scheduling the job again would restart its interval on every launch
+        JobScheduler jobScheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        for (JobInfo job : jobScheduler.getAllPendingJobs()) {
+            if (job.getId() == PREFETCH_JOB_ID) {
+                return;
+            }
+        }
+
+        jobScheduler.schedule(new JobInfo.Builder(PREFETCH_JOB_ID,
+                new ComponentName(context, PrefetchJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_UNMETERED)
+                .setRequiresCharging(true)
+                .setPeriodic(PREFETCH_INTERVAL)
+                .setPersisted(true)
+                .build());
+    }
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        final CancellationToken token = new CancellationToken();
+        mCancellationToken = token;
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                prefetchSearches(token);
+                if (!token.isCanceled()) {
+                    jobFinished(params, false);
+                }
+            }
+        }, LOG_TAG).start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        // Charging or the unmetered network was lost; the job runs again once they are back
+        if (mCancellationToken != null) {
+            mCancellationToken.cancel();
+            mCancellationToken = null;
+        }
+        return true;
+    }
+
+    /**
+     * This method fetches the first page of the most frequent searches, as BookListActivity
+     * would load it, and stores the pages and their covers in the caches.
+     * This is on a background thread.
+     */
+    private void prefetchSearches(CancellationToken token) {
+        long runStart = System.nanoTime();
+        Context context = getApplicationContext();
+
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String orderBy = sharedPrefs.getString(
+                context.getString(R.string.settings_order_by_key),
+                context.getString(R.string.settings_order_by_default)
+        );
+        int pageSize = Integer.parseInt(sharedPrefs.getString(
+                context.getString(R.string.settings_maxresults_key),
+                context.getString(R.string.settings_maxresults_default)
+        ));
+
+        List<BookQuery> searches =
+                SearchHistory.getInstance(context).getFrequentSearches(PREFETCH_SEARCHES_COUNT);
+        BookCatalog catalog = BookCatalog.getInstance(context);
+        ThumbnailLoader thumbnailLoader = ThumbnailLoader.getInstance(context);
+
+        for (BookQuery search : searches) {
+            // Built like the first page of BookListActivity
+            BookQuery query = search.buildUpon()
+                    .setOrderBy(orderBy)
+                    .setPageSize(pageSize)
+                    .build();
+            BookPage page = QueryUtils.fetchBookPage(query.getSearchUrl(), 0, pageSize, token);
+            if (token.isCanceled()) {
+                return;
+            }
+            // A failed page is not cached, so the search is fetched again when it is run
+            if (page.isFailed() || page.getBooks().isEmpty()) {
+                continue;
+            }
+
+            BookResultCache.Key cacheKey = query.getCacheKey();
+            BookResultCache.getInstance().put(cacheKey, page);
+            catalog.addPage(cacheKey.getTitle(), cacheKey.getAuthor(), cacheKey.getOrderBy(), page);
+            mSearchCounter.incrementAndGet();
+
+            for (Book book : page.getBooks()) {
+                if (token.isCanceled()) {
+                    return;
+                }
+                if (thumbnailLoader.download(book.getThumbnailLink())) {
+                    mThumbnailCounter.incrementAndGet();
+                }
+            }
+        }
+
+        mRunTime.recordSince(runStart);
+        Log.d(LOG_TAG, "Prefetched " + searches.size() + " searches");
+    }
+}
@@ -1,31 +1,184 @@
 package com.example.android.bookfinder;
 
+import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.os.Handler;
+import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+import com.example.android.bookfinder.data.BookCatalog;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import utilities.BookResultCache;
+import utilities.QueryUtils;
+import utilities.StartupTimer;
+import utilities.Utils;
+
+/**
+ * Splash screen shown while the app warms up: it creates the typefaces, resolves the rating
+ * drawables, connects to the Books API host and reads the results of the last search from the
+ * local catalog.
+ * The search screen is launched as soon as the warm-up finishes, or once the deadline passes.
+ */
 
 public class SplashActivity extends AppCompatActivity {
 
-    // Splash screen timer
-    private static int SPLASH_TIME_OUT = 3000;
+    private static final String LOG_TAG = SplashActivity.class.getName();
+
+    /** Longest time the splash screen waits for the warm-up, in milliseconds */
+    private static final long WARM_UP_DEADLINE = 1000;
+
+    private final Handler mHandler = new Handler();
+
+    /** True once the search screen was launched, or the splash screen closed */
+    private boolean mLaunched;
+
+    /** Launches the search screen when every warm-up task has finished */
+    private final Runnable mWarmedUpRunnable = new Runnable() {
+        @Override
+        public void run() {
+            launchMainActivity(false);
+        }
+    };
+
+    /** Launches the search screen when the warm-up takes too long */
+    private final Runnable mDeadlineRunnable = new Runnable() {
+        @Override
+        public void run() {
+            launchMainActivity(true);
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
 
-        new Handler().postDelayed(new Runnable() {
+        final Context appContext = getApplicationContext();
+        Runnable[] tasks = {
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        Utils.preloadTypefaces(appContext);
+                    }
+                },
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        Utils.preloadRatingDrawables(appContext);
+                    }
+                },
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        if (Utils.isNetworkConnected(appContext)) {
+                            QueryUtils.warmUpConnection();
+                        }
+                    }
+                },
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        loadLastResults(appContext);
+                    }
+                }
+        };
+
+        // Run the tasks side by side; the last one to finish launches the search screen.
+        // Tasks still running at the deadline carry on after the splash screen has closed.
+        final AtomicInteger remainingTasks = new AtomicInteger(tasks.length);
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.length);
+        for (final Runnable task : tasks) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        Log.e(LOG_TAG, appContext.getString(R.string.exception_warm_up), e);
+                    } finally {
+                        if (remainingTasks.decrementAndGet() == 0) {
+                            mHandler.post(mWarmedUpRunnable);
+                        }
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+
+        mHandler.postDelayed(mDeadlineRunnable, WARM_UP_DEADLINE);
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+
+        // Closed before the warm-up finished - don't open the search screen over another app
+        mHandler.removeCallbacks(mWarmedUpRunnable);
+        mHandler.removeCallbacks(mDeadlineRunnable);
+        mLaunched = true;
+    }
+
+    /**
+     * This method launches the search screen and closes the splash screen, once
+     * @param timedOut - True if the warm-up didn't finish in time
+     */
+    private void launchMainActivity(boolean timedOut) {
+        if (mLaunched) {
+            return;
+        }
+        mLaunched = true;
+        mHandler.removeCallbacks(mDeadlineRunnable);
+
+        StartupTimer.markWarmUpFinished(timedOut);
+        startActivity(new Intent(SplashActivity.this, MainActivity.class));
+
+        // Close splash activity
+        finish();
+    }
 
-            /** Display splash screen with a timer */
-            @Override
-            public void run() {
-                // This method executes once the timer is over
-                startActivity(new Intent(SplashActivity.this, MainActivity.class));
+    /**
+     * This method reads the first page of the last search from the catalog into memory, so
+     * searching for it again shows its results straight away. Only a page fetched recently is
+     * read; nothing is requested from the network, which would hold up the splash screen.
+     * This is on a background thread.
+     */
+    private static void loadLastResults(Context context) {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
+        String bookTitle = sharedPrefs.getString(context.getString(R.string.pref_last_title_key), null);
+        if (bookTitle == null) {
+            return;
+        }
+        String bookAuthor = sharedPrefs.getString(
+                context.getString(R.string.pref_last_author_key), "");
+        String orderBy = sharedPrefs.getString(
+                context.getString(R.string.settings_order_by_key),
+                context.getString(R.string.settings_order_by_default)
+        );
+        int pageSize = Integer.parseInt(sharedPrefs.getString(
+                context.getString(R.string.settings_maxresults_key),
+                context.getString(R.string.settings_maxresults_default)
+        ));
 
-                // Close splash activity
-                finish();
-            }
-        }, SPLASH_TIME_OUT);
+        // Built like the first page of BookListActivity
+        BookQuery query = new BookQuery.Builder()
+                .setTitle(bookTitle)
+                .setAuthor(bookAuthor)
+                .setOrderBy(orderBy)
+                .setPageSize(pageSize)
+                .build();
+        BookResultCache resultCache = BookResultCache.getInstance();
+        BookResultCache.Key cacheKey = query.getCacheKey();
+        if (resultCache.get(cacheKey) != null) {
+            return;
+        }
 
+        BookPage page = BookCatalog.getInstance(context).findPage(cacheKey.getTitle(),
+                cacheKey.getAuthor(), cacheKey.getOrderBy(), 0, pageSize);
+        if (page != null) {
+            resultCache.put(cacheKey, page);
+        }
     }
 }
@@ -0,0 +1,402 @@
+package com.example.android.bookfinder.data;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.example.android.bookfinder.Book;
+import com.example.android.bookfinder.BookPage;
+import com.example.android.bookfinder.data.BookContract.BookEntry;
+import com.example.android.bookfinder.data.BookContract.BookIndex;
+import com.example.android.bookfinder.data.BookContract.PageBookEntry;
+import com.example.android.bookfinder.data.BookContract.PageEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * On-device catalog of every book fetched from the Google Books API.
+ * The pages of results fetched recently are kept as the API returned them, so a search run
+ * again is answered from the catalog before going to the network. Books are also indexed by
+ * title, author, category and description, so any search can be answered without a network.
+ */
+
+public final class BookCatalog {
+
+    /** Largest number of books kept; the books fetched least recently are removed first */
+    private static final int MAX_BOOKS = 5000;
+
+    /**
+     * Longest time a page of results is served from the catalog instead of the API.
+     * It outlives the interval of the background prefetch, so prefetched pages are served.
+     */
+    private static final long PAGE_MAX_AGE = TimeUnit.HOURS.toMillis(24);
+
+    /** Value of the Order By preference listing the newest books first */
+    private static final String ORDER_BY_NEWEST = "newest";
+
+    /** Separates the words of a search; anything but letters and digits */
+    private static final Pattern WORD_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    /** Book columns other than the volume id, in the order they are bound */
+    private static final String[] BOOK_COLUMNS = {
+            BookEntry.COLUMN_TITLE,
+            BookEntry.COLUMN_AUTHOR,
+            BookEntry.COLUMN_PUBLISHED_DATE,
+            BookEntry.COLUMN_CATEGORY,
+            BookEntry.COLUMN_LANGUAGE,
+            BookEntry.COLUMN_PAGE_COUNT,
+            BookEntry.COLUMN_PRINT_TYPE,
+            BookEntry.COLUMN_RETAIL_PRICE,
+            BookEntry.COLUMN_CURRENCY_CODE,
+            BookEntry.COLUMN_BUYING_LINK,
+            BookEntry.COLUMN_EPUB,
+            BookEntry.COLUMN_PDF,
+            BookEntry.COLUMN_RATING,
+            BookEntry.COLUMN_DESCRIPTION,
+            BookEntry.COLUMN_THUMBNAIL_LINK,
+            BookEntry.COLUMN_PREVIEW_LINK
+    };
+
+    /** Selects a page by title, author, order, start index and page size */
+    private static final String PAGE_SELECTION = PageEntry.COLUMN_TITLE + " = ? AND "
+            + PageEntry.COLUMN_AUTHOR + " = ? AND " + PageEntry.COLUMN_ORDER_BY + " = ? AND "
+            + PageEntry.COLUMN_START_INDEX + " = ? AND " + PageEntry.COLUMN_PAGE_SIZE + " = ?";
+
+    private static BookCatalog mInstance;
+
+    private final BookDbHelper mDbHelper;
+
+    private BookCatalog(Context context) {
+        mDbHelper = new BookDbHelper(context);
+    }
+
+    /**
+     * Return the catalog shared by the whole process
+     */
+    public static synchronized BookCatalog getInstance(Context context) {
+        if (mInstance == null) {
+            mInstance = new BookCatalog(context.getApplicationContext());
+        }
+        return mInstance;
+    }
+
+    /** Getter method - Helper of the database, shared with the {@link SearchHistory} */
+    BookDbHelper getDbHelper() {
+        return mDbHelper;
+    }
+
+    /**
+     * Add a page of fetched books to the catalog, replacing the books already in it.
+     * Books without a volume id can't be told apart and are not added.
+     * @param books - Books in the order the API returned them
+     * @param startIndex - Index of the first book in the API results
+     */
+    public void addBooks(List<Book> books, int startIndex) {
+        if (books.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            // Both statements bind the book columns, best rank, update time and volume id in order
+            StringBuilder updateSql = new StringBuilder("UPDATE " + BookEntry.TABLE_NAME + " SET ");
+            for (String column : BOOK_COLUMNS) {
+                updateSql.append(column).append(" = ?, ");
+            }
+            updateSql.append(BookEntry.COLUMN_BEST_RANK).append(" = MIN(")
+                    .append(BookEntry.COLUMN_BEST_RANK).append(", ?), ")
+                    .append(BookEntry.COLUMN_UPDATED_AT).append(" = ? WHERE ")
+                    .append(BookEntry.COLUMN_VOLUME_ID).append(" = ?");
+
+            StringBuilder insertSql = new StringBuilder("INSERT INTO " + BookEntry.TABLE_NAME + " (");
+            StringBuilder values = new StringBuilder();
+            for (String column : BOOK_COLUMNS) {
+                insertSql.append(column).append(", ");
+                values.append("?, ");
+            }
+            insertSql.append(BookEntry.COLUMN_BEST_RANK).append(", ")
+                    .append(BookEntry.COLUMN_UPDATED_AT).append(", ")
+                    .append(BookEntry.COLUMN_VOLUME_ID).append(") VALUES (")
+                    .append(values).append("?, ?, ?)");
+
+            SQLiteStatement update = db.compileStatement(updateSql.toString());
+            SQLiteStatement insert = db.compileStatement(insertSql.toString());
+
+            for (int i = 0; i < books.size(); i++) {
+                Book book = books.get(i);
+                if (book.getId() == null || book.getId().isEmpty()) {
+                    continue;
+                }
+
+                bindBook(update, book, startIndex + i, now);
+                if (update.executeUpdateDelete() == 0) {
+                    bindBook(insert, book, startIndex + i, now);
+                    insert.executeInsert();
+                }
+            }
+
+            // Keep the catalog to its maximum size
+            db.execSQL("DELETE FROM " + BookEntry.TABLE_NAME + " WHERE " + BookEntry._ID
+                    + " IN (SELECT " + BookEntry._ID + " FROM " + BookEntry.TABLE_NAME
+                    + " ORDER BY " + BookEntry.COLUMN_UPDATED_AT + " DESC LIMIT -1 OFFSET "
+                    + MAX_BOOKS + ")");
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Add a page of fetched results to the catalog: its books, and the page itself, so it can be
+     * served again by {@link #findPage}. Replaces the page fetched before for the same search.
+     * @param title - Canonical title searched
+     * @param author - Canonical author searched, may be empty
+     * @param orderBy - Canonical order of the search
+     * @param page - Page of books, in the order the API returned them
+     */
+    public void addPage(String title, String author, String orderBy, BookPage page) {
+        List<Book> books = page.getBooks();
+        if (books.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            addBooks(books, page.getStartIndex());
+
+            String[] pageArgs = {title, author, orderBy, String.valueOf(page.getStartIndex()),
+                    String.valueOf(page.getPageSize())};
+            db.delete(PageBookEntry.TABLE_NAME, PageBookEntry.COLUMN_PAGE_ID + " IN (SELECT "
+                    + PageEntry._ID + " FROM " + PageEntry.TABLE_NAME + " WHERE " + PAGE_SELECTION
+                    + ")", pageArgs);
+            db.delete(PageEntry.TABLE_NAME, PAGE_SELECTION, pageArgs);
+
+            ContentValues values = new ContentValues();
+            values.put(PageEntry.COLUMN_TITLE, title);
+            values.put(PageEntry.COLUMN_AUTHOR, author);
+            values.put(PageEntry.COLUMN_ORDER_BY, orderBy);
+            values.put(PageEntry.COLUMN_START_INDEX, page.getStartIndex());
+            values.put(PageEntry.COLUMN_PAGE_SIZE, page.getPageSize());
+            values.put(PageEntry.COLUMN_TOTAL_ITEMS, page.getTotalItems());
+            values.put(PageEntry.COLUMN_BOOK_COUNT, books.size());
+            values.put(PageEntry.COLUMN_FETCHED_AT, now);
+            long pageId = db.insert(PageEntry.TABLE_NAME, null, values);
+
+            // Books without a volume id aren't kept, so their page is never served again
+            SQLiteStatement insert = db.compileStatement("INSERT INTO " + PageBookEntry.TABLE_NAME
+                    + " (" + PageBookEntry.COLUMN_PAGE_ID + ", " + PageBookEntry.COLUMN_POSITION
+                    + ", " + PageBookEntry.COLUMN_VOLUME_ID + ") VALUES (?, ?, ?)");
+            for (int i = 0; i < books.size(); i++) {
+                String volumeId = books.get(i).getId();
+                if (volumeId == null || volumeId.isEmpty()) {
+                    continue;
+                }
+                insert.bindLong(1, pageId);
+                insert.bindLong(2, i);
+                insert.bindString(3, volumeId);
+                insert.executeInsert();
+            }
+
+            // Forget the pages too old to be served
+            String[] expiredArgs = {String.valueOf(now - PAGE_MAX_AGE)};
+            db.delete(PageBookEntry.TABLE_NAME, PageBookEntry.COLUMN_PAGE_ID + " IN (SELECT "
+                    + PageEntry._ID + " FROM " + PageEntry.TABLE_NAME + " WHERE "
+                    + PageEntry.COLUMN_FETCHED_AT + " < ?)", expiredArgs);
+            db.delete(PageEntry.TABLE_NAME, PageEntry.COLUMN_FETCHED_AT + " < ?", expiredArgs);
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Return a page of results fetched within the last 24 hours for the same search, page index
+     * and page size, with its books in the order and the total the API gave them
+     * @param title - Canonical title searched
+     * @param author - Canonical author searched, may be empty
+     * @param orderBy - Canonical order of the search
+     * @param startIndex - Index of the first book of the page
+     * @param pageSize - Number of books of the page
+     * @return page, or null if it wasn't fetched recently or some of its books are gone
+     */
+    public BookPage findPage(String title, String author, String orderBy, int startIndex,
+                             int pageSize) {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+
+        long pageId;
+        int totalItems;
+        int bookCount;
+        Cursor pageCursor = db.query(PageEntry.TABLE_NAME, new String[]{PageEntry._ID,
+                        PageEntry.COLUMN_TOTAL_ITEMS, PageEntry.COLUMN_BOOK_COUNT},
+                PAGE_SELECTION + " AND " + PageEntry.COLUMN_FETCHED_AT + " >= ?",
+                new String[]{title, author, orderBy, String.valueOf(startIndex),
+                        String.valueOf(pageSize),
+                        String.valueOf(System.currentTimeMillis() - PAGE_MAX_AGE)},
+                null, null, null);
+        try {
+            if (!pageCursor.moveToFirst()) {
+                return null;
+            }
+            pageId = pageCursor.getLong(0);
+            totalItems = pageCursor.getInt(1);
+            bookCount = pageCursor.getInt(2);
+        } finally {
+            pageCursor.close();
+        }
+
+        List<Book> books = new ArrayList<>(bookCount);
+        Cursor cursor = db.rawQuery("SELECT b.* FROM " + PageBookEntry.TABLE_NAME + " p JOIN "
+                + BookEntry.TABLE_NAME + " b ON b." + BookEntry.COLUMN_VOLUME_ID + " = p."
+                + PageBookEntry.COLUMN_VOLUME_ID + " WHERE p." + PageBookEntry.COLUMN_PAGE_ID
+                + " = ? ORDER BY p." + PageBookEntry.COLUMN_POSITION,
+                new String[]{String.valueOf(pageId)});
+        try {
+            while (cursor.moveToNext()) {
+                books.add(readBook(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        // A book may have been removed to keep the catalog to its size, or had no volume id
+        if (books.size() != bookCount) {
+            return null;
+        }
+        return new BookPage(books, startIndex, pageSize, totalItems);
+    }
+
+    /**
+     * Search the catalog for books matching a title and author.
+     * Every word searched must match the start of a word of the book's title or author.
+     * @param title - Book title searched
+     * @param author - Book author searched, may be empty
+     * @param orderBy - Order By preference (e.g. relevance)
+     * @param startIndex - Index of the first book to return
+     * @param pageSize - Number of books to return
+     * @return page of matching books, whose total is the number of matching books in the catalog
+     */
+    public BookPage search(String title, String author, String orderBy, int startIndex, int pageSize) {
+        String matchQuery = buildMatchQuery(title, author);
+        if (matchQuery == null) {
+            return new BookPage(null, startIndex, pageSize, 0);
+        }
+
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+        String matchingIds = "SELECT " + BookIndex.COLUMN_DOCID + " FROM " + BookIndex.TABLE_NAME
+                + " WHERE " + BookIndex.TABLE_NAME + " MATCH ?";
+
+        int totalItems = (int) DatabaseUtils.longForQuery(db,
+                "SELECT COUNT(*) FROM (" + matchingIds + ")", new String[]{matchQuery});
+
+        // Rank by the best position the book has had in API results, as the API ranks relevance
+        String sortOrder = ORDER_BY_NEWEST.equals(orderBy)
+                ? BookEntry.COLUMN_PUBLISHED_DATE + " DESC"
+                : BookEntry.COLUMN_BEST_RANK + " ASC, " + BookEntry.COLUMN_UPDATED_AT + " DESC";
+
+        List<Book> books = new ArrayList<>();
+        Cursor cursor = db.rawQuery("SELECT * FROM " + BookEntry.TABLE_NAME
+                + " WHERE " + BookEntry._ID + " IN (" + matchingIds + ")"
+                + " ORDER BY " + sortOrder
+                + " LIMIT " + pageSize + " OFFSET " + startIndex, new String[]{matchQuery});
+        try {
+            while (cursor.moveToNext()) {
+                books.add(readBook(cursor));
+            }
+        } finally {
+            cursor.close();
+        }
+
+        return new BookPage(books, startIndex, pageSize, totalItems);
+    }
+
+    /**
+     * Build the full-text query matching every word of the title and author as a prefix,
+     * e.g. title:lord* title:rings* author:tolkien*
+     * @return query, or null if there is no word to search
+     */
+    static String buildMatchQuery(String title, String author) {
+        StringBuilder query = new StringBuilder();
+        appendPrefixTerms(query, BookEntry.COLUMN_TITLE, title);
+        appendPrefixTerms(query, BookEntry.COLUMN_AUTHOR, author);
+        return (query.length() > 0) ? query.toString() : null;
+    }
+
+    private static void appendPrefixTerms(StringBuilder query, String column, String text) {
+        if (text == null) {
+            return;
+        }
+        for (String word : WORD_SEPARATOR.split(text.toLowerCase(Locale.US))) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            query.append(column).append(':').append(word).append('*');
+        }
+    }
+
+    private static void bindBook(SQLiteStatement statement, Book book, int rank, long now) {
+        statement.clearBindings();
+        int index = 1;
+        bindString(statement, index++, (book.getTitle() != null) ? book.getTitle() : "");
+        bindString(statement, index++, book.getAuthor());
+        bindString(statement, index++, book.getPublishedDate());
+        bindString(statement, index++, book.getCategories());
+        bindString(statement, index++, book.getLanguage());
+        statement.bindLong(index++, book.getPageCount());
+        bindString(statement, index++, book.getPrintType());
+        statement.bindDouble(index++, book.getRetailPrice());
+        bindString(statement, index++, book.getCurrencyCode());
+        bindString(statement, index++, book.getBuyingLink());
+        statement.bindLong(index++, book.isTagEpub() ? 1 : 0);
+        statement.bindLong(index++, book.isTagPdf() ? 1 : 0);
+        statement.bindDouble(index++, book.getRating());
+        bindString(statement, index++, book.getDescription());
+        bindString(statement, index++, book.getThumbnailLink());
+        bindString(statement, index++, book.getPreviewlLink());
+        statement.bindLong(index++, rank);
+        statement.bindLong(index++, now);
+        statement.bindString(index, book.getId());
+    }
+
+    private static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    private static Book readBook(Cursor cursor) {
+        return new Book(
+                cursor.getString(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_VOLUME_ID)),
+                cursor.getString(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_TITLE)),
+                cursor.getString(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_AUTHOR)),
+                cursor.getString(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_PUBLISHED_DATE)),
+                cursor.getString(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_CATEGORY)),
+                cursor.getString(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_LANGUAGE)),
+                cursor.getInt(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_PAGE_COUNT)),
+                cursor.getString(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_PRINT_TYPE)),
+                cursor.getDouble(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_RETAIL_PRICE)),
+                cursor.getString(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_CURRENCY_CODE)),
+                cursor.getString(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_BUYING_LINK)),
+                cursor.getInt(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_EPUB)) != 0,
+                cursor.getInt(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_PDF)) != 0,
+                cursor.getDouble(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_RATING)),
+                cursor.getString(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_DESCRIPTION)),
+                cursor.getString(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_THUMBNAIL_LINK)),
+                cursor.getString(cursor.getColumnIndexOrThrow(BookEntry.COLUMN_PREVIEW_LINK)));
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.android.bookfinder.data;
+
+import android.provider.BaseColumns;
+
+/**
+ * Table and column names of the local book catalog
+ */
+
+public final class BookContract {
+
+    /**
+     * This is a private constructor and only meant to hold static variables,
+     * which can be accessed directly from the class name BookContract
+     */
+    private BookContract() {
+    }
+
+    /**
+     * Every book fetched from the Google Books API, one row per volume
+     */
+    public static final class BookEntry implements BaseColumns {
+
+        public static final String TABLE_NAME = "books";
+
+        public static final String COLUMN_VOLUME_ID = "volume_id";
+        public static final String COLUMN_TITLE = "title";
+        public static final String COLUMN_AUTHOR = "author";
+        public static final String COLUMN_PUBLISHED_DATE = "published_date";
+        public static final String COLUMN_CATEGORY = "category";
+        public static final String COLUMN_LANGUAGE = "language";
+        public static final String COLUMN_PAGE_COUNT = "page_count";
+        public static final String COLUMN_PRINT_TYPE = "print_type";
+        public static final String COLUMN_RETAIL_PRICE = "retail_price";
+        public static final String COLUMN_CURRENCY_CODE = "currency_code";
+        public static final String COLUMN_BUYING_LINK = "buying_link";
+        public static final String COLUMN_EPUB = "epub";
+        public static final String COLUMN_PDF = "pdf";
+        public static final String COLUMN_RATING = "rating";
+        public static final String COLUMN_DESCRIPTION = "description";
+        public static final String COLUMN_THUMBNAIL_LINK = "thumbnail_link";
+        public static final String COLUMN_PREVIEW_LINK = "preview_link";
+
+        /** Best position the book has had in a page of API results, used to rank local results */
+        public static final String COLUMN_BEST_RANK = "best_rank";
+
+        /** Time the book was last fetched, in milliseconds */
+        public static final String COLUMN_UPDATED_AT = "updated_at";
+    }
+
+    /**
+     * Pages of API results, one row per search and page, so a page fetched recently is served
+     * again in the order and with the total the API gave it
+     */
+    public static final class PageEntry implements BaseColumns {
+
+        public static final String TABLE_NAME = "result_pages";
+
+        /** Canonical title searched, as built by BookQuery */
+        public static final String COLUMN_TITLE = "title";
+
+        /** Canonical author searched, as built by BookQuery; empty if none */
+        public static final String COLUMN_AUTHOR = "author";
+
+        public static final String COLUMN_ORDER_BY = "order_by";
+        public static final String COLUMN_START_INDEX = "start_index";
+        public static final String COLUMN_PAGE_SIZE = "page_size";
+
+        /** Total number of books matching the search, as reported by the API */
+        public static final String COLUMN_TOTAL_ITEMS = "total_items";
+
+        /** Number of books the API returned for the page */
+        public static final String COLUMN_BOOK_COUNT = "book_count";
+
+        /** Time the page was fetched, in milliseconds */
+        public static final String COLUMN_FETCHED_AT = "fetched_at";
+    }
+
+    /**
+     * Books of each page of API results, in the order the API returned them
+     */
+    public static final class PageBookEntry {
+
+        public static final String TABLE_NAME = "result_page_books";
+
+        /** Row id of the page in the result pages table */
+        public static final String COLUMN_PAGE_ID = "page_id";
+
+        /** Position of the book within the page */
+        public static final String COLUMN_POSITION = "position";
+
+        /** Volume id of the book in the books table */
+        public static final String COLUMN_VOLUME_ID = "volume_id";
+    }
+
+    /**
+     * Searches run by the user, one row per canonical title and author,
+     * used to refresh the results of the frequent ones in the background
+     */
+    public static final class SearchEntry implements BaseColumns {
+
+        public static final String TABLE_NAME = "searches";
+
+        /** Canonical title searched, as built by BookQuery */
+        public static final String COLUMN_TITLE = "title";
+
+        /** Canonical author searched, as built by BookQuery; empty if none */
+        public static final String COLUMN_AUTHOR = "author";
+
+        /** Number of times the search was run */
+        public static final String COLUMN_SEARCH_COUNT = "search_count";
+
+        /** Time the search was last run, in milliseconds */
+        public static final String COLUMN_LAST_SEARCHED_AT = "last_searched_at";
+    }
+
+    /**
+     * Full-text index of the title, author, category and description of the books table
+     */
+    public static final class BookIndex {
+
+        public static final String TABLE_NAME = "books_fts";
+
+        /** Row id of the indexed book in the books table */
+        public static final String COLUMN_DOCID = "docid";
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.android.bookfinder.data;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import com.example.android.bookfinder.data.BookContract.BookEntry;
+import com.example.android.bookfinder.data.BookContract.BookIndex;
+import com.example.android.bookfinder.data.BookContract.PageBookEntry;
+import com.example.android.bookfinder.data.BookContract.PageEntry;
+import com.example.android.bookfinder.data.BookContract.SearchEntry;
+
+/**
+ * Creates and upgrades the database of the local book catalog
+ */
+
+public class BookDbHelper extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "catalog.db";
+    private static final int DATABASE_VERSION = 3;
+
+    /** Columns of the books table indexed for full-text search */
+    private static final String INDEXED_COLUMNS = BookEntry.COLUMN_TITLE + ", "
+            + BookEntry.COLUMN_AUTHOR + ", "
+            + BookEntry.COLUMN_CATEGORY + ", "
+            + BookEntry.COLUMN_DESCRIPTION;
+
+    /**
+     * Constructs a new {@link BookDbHelper} object
+     * @param context
+     */
+    public BookDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + BookEntry.TABLE_NAME + " ("
+                + BookEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + BookEntry.COLUMN_VOLUME_ID + " TEXT NOT NULL UNIQUE, "
+                + BookEntry.COLUMN_TITLE + " TEXT NOT NULL, "
+                + BookEntry.COLUMN_AUTHOR + " TEXT, "
+                + BookEntry.COLUMN_PUBLISHED_DATE + " TEXT, "
+                + BookEntry.COLUMN_CATEGORY + " TEXT, "
+                + BookEntry.COLUMN_LANGUAGE + " TEXT, "
+                + BookEntry.COLUMN_PAGE_COUNT + " INTEGER NOT NULL DEFAULT 0, "
+                + BookEntry.COLUMN_PRINT_TYPE + " TEXT, "
+                + BookEntry.COLUMN_RETAIL_PRICE + " REAL NOT NULL DEFAULT 0, "
+                + BookEntry.COLUMN_CURRENCY_CODE + " TEXT, "
+                + BookEntry.COLUMN_BUYING_LINK + " TEXT, "
+                + BookEntry.COLUMN_EPUB + " INTEGER NOT NULL DEFAULT 0, "
+                + BookEntry.COLUMN_PDF + " INTEGER NOT NULL DEFAULT 0, "
+                + BookEntry.COLUMN_RATING + " REAL NOT NULL DEFAULT 0, "
+                + BookEntry.COLUMN_DESCRIPTION + " TEXT, "
+                + BookEntry.COLUMN_THUMBNAIL_LINK + " TEXT, "
+                + BookEntry.COLUMN_PREVIEW_LINK + " TEXT, "
+                + BookEntry.COLUMN_BEST_RANK + " INTEGER NOT NULL, "
+                + BookEntry.COLUMN_UPDATED_AT + " INTEGER NOT NULL);");
+
+        // External content index: the text is stored once, in the books table
+        db.execSQL("CREATE VIRTUAL TABLE " + BookIndex.TABLE_NAME + " USING fts4("
+                + "content=\"" + BookEntry.TABLE_NAME + "\", " + INDEXED_COLUMNS + ");");
+
+        // Keep the index in step with the books table
+        String deleteFromIndex = "DELETE FROM " + BookIndex.TABLE_NAME
+                + " WHERE " + BookIndex.COLUMN_DOCID + " = old.rowid; ";
+        String insertIntoIndex = "INSERT INTO " + BookIndex.TABLE_NAME
+                + "(" + BookIndex.COLUMN_DOCID + ", " + INDEXED_COLUMNS + ") VALUES (new.rowid, new."
+                + BookEntry.COLUMN_TITLE + ", new." + BookEntry.COLUMN_AUTHOR + ", new."
+                + BookEntry.COLUMN_CATEGORY + ", new." + BookEntry.COLUMN_DESCRIPTION + "); ";
+
+        db.execSQL("CREATE TRIGGER books_bu BEFORE UPDATE ON " + BookEntry.TABLE_NAME
+                + " BEGIN " + deleteFromIndex + "END;");
+        db.execSQL("CREATE TRIGGER books_bd BEFORE DELETE ON " + BookEntry.TABLE_NAME
+                + " BEGIN " + deleteFromIndex + "END;");
+        db.execSQL("CREATE TRIGGER books_au AFTER UPDATE ON " + BookEntry.TABLE_NAME
+                + " BEGIN " + insertIntoIndex + "END;");
+        db.execSQL("CREATE TRIGGER books_ai AFTER INSERT ON " + BookEntry.TABLE_NAME
+                + " BEGIN " + insertIntoIndex + "END;");
+
+        db.execSQL("CREATE INDEX books_updated_at ON " + BookEntry.TABLE_NAME
+                + " (" + BookEntry.COLUMN_UPDATED_AT + ");");
+
+        db.execSQL("CREATE TABLE " + PageEntry.TABLE_NAME + " ("
+                + PageEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + PageEntry.COLUMN_TITLE + " TEXT NOT NULL, "
+                + PageEntry.COLUMN_AUTHOR + " TEXT NOT NULL, "
+                + PageEntry.COLUMN_ORDER_BY + " TEXT NOT NULL, "
+                + PageEntry.COLUMN_START_INDEX + " INTEGER NOT NULL, "
+                + PageEntry.COLUMN_PAGE_SIZE + " INTEGER NOT NULL, "
+                + PageEntry.COLUMN_TOTAL_ITEMS + " INTEGER NOT NULL, "
+                + PageEntry.COLUMN_BOOK_COUNT + " INTEGER NOT NULL, "
+                + PageEntry.COLUMN_FETCHED_AT + " INTEGER NOT NULL, "
+                + "UNIQUE (" + PageEntry.COLUMN_TITLE + ", " + PageEntry.COLUMN_AUTHOR + ", "
+                + PageEntry.COLUMN_ORDER_BY + ", " + PageEntry.COLUMN_START_INDEX + ", "
+                + PageEntry.COLUMN_PAGE_SIZE + "));");
+
+        db.execSQL("CREATE TABLE " + PageBookEntry.TABLE_NAME + " ("
+                + PageBookEntry.COLUMN_PAGE_ID + " INTEGER NOT NULL, "
+                + PageBookEntry.COLUMN_POSITION + " INTEGER NOT NULL, "
+                + PageBookEntry.COLUMN_VOLUME_ID + " TEXT NOT NULL, "
+                + "PRIMARY KEY (" + PageBookEntry.COLUMN_PAGE_ID + ", "
+                + PageBookEntry.COLUMN_POSITION + "));");
+
+        db.execSQL("CREATE TABLE " + SearchEntry.TABLE_NAME + " ("
+                + SearchEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + SearchEntry.COLUMN_TITLE + " TEXT NOT NULL, "
+                + SearchEntry.COLUMN_AUTHOR + " TEXT NOT NULL, "
+                + SearchEntry.COLUMN_SEARCH_COUNT + " INTEGER NOT NULL, "
+                + SearchEntry.COLUMN_LAST_SEARCHED_AT + " INTEGER NOT NULL, "
+                + "UNIQUE (" + SearchEntry.COLUMN_TITLE + ", " + SearchEntry.COLUMN_AUTHOR + "));");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Only fetched results and search history are kept, so the database is rebuilt
+        db.execSQL("DROP TABLE IF EXISTS " + BookIndex.TABLE_NAME);
+        db.execSQL("DROP TABLE IF EXISTS " + BookEntry.TABLE_NAME);
+        db.execSQL("DROP TABLE IF EXISTS " + PageBookEntry.TABLE_NAME);
+        db.execSQL("DROP TABLE IF EXISTS " + PageEntry.TABLE_NAME);
+        db.execSQL("DROP TABLE IF EXISTS " + SearchEntry.TABLE_NAME);
+        onCreate(db);
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.android.bookfinder.data;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import com.example.android.bookfinder.BookQuery;
+import com.example.android.bookfinder.data.BookContract.SearchEntry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches run by the user, counted by canonical title and author, so the results of the
+ * frequent ones can be refreshed in the background before they are searched again.
+ * Kept in the database of the {@link BookCatalog}. Must not be used on the main thread.
+ */
+
+public final class SearchHistory {
+
+    /** Searches not run for this long are forgotten */
+    private static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(30);
+
+    /** Largest number of searches kept; the searches run least recently are removed first */
+    private static final int MAX_SEARCHES = 100;
+
+    private static SearchHistory mInstance;
+
+    private final BookDbHelper mDbHelper;
+
+    private SearchHistory(Context context) {
+        mDbHelper = BookCatalog.getInstance(context).getDbHelper();
+    }
+
+    /**
+     * Return the search history shared by the whole process
+     */
+    public static synchronized SearchHistory getInstance(Context context) {
+        if (mInstance == null) {
+            mInstance = new SearchHistory(context.getApplicationContext());
+        }
+        return mInstance;
+    }
+
+    /**
+     * Count a search run by the user; searches differing only in case, spacing or paging
+     * are counted as one
+     * @param query - Search run
+     */
+    public void addSearch(BookQuery query) {
+        if (query.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            SQLiteStatement update = db.compileStatement("UPDATE " + SearchEntry.TABLE_NAME
+                    + " SET " + SearchEntry.COLUMN_SEARCH_COUNT + " = "
+                    + SearchEntry.COLUMN_SEARCH_COUNT + " + 1, "
+                    + SearchEntry.COLUMN_LAST_SEARCHED_AT + " = ? WHERE "
+                    + SearchEntry.COLUMN_TITLE + " = ? AND " + SearchEntry.COLUMN_AUTHOR + " = ?");
+            update.bindLong(1, now);
+            update.bindString(2, query.getTitle());
+            update.bindString(3, query.getAuthor());
+            if (update.executeUpdateDelete() == 0) {
+                SQLiteStatement insert = db.compileStatement("INSERT INTO " + SearchEntry.TABLE_NAME
+                        + " (" + SearchEntry.COLUMN_TITLE + ", " + SearchEntry.COLUMN_AUTHOR + ", "
+                        + SearchEntry.COLUMN_SEARCH_COUNT + ", "
+                        + SearchEntry.COLUMN_LAST_SEARCHED_AT + ") VALUES (?, ?, 1, ?)");
+                insert.bindString(1, query.getTitle());
+                insert.bindString(2, query.getAuthor());
+                insert.bindLong(3, now);
+                insert.executeInsert();
+            }
+
+            // Forget old searches, and keep the history to its maximum size
+            db.delete(SearchEntry.TABLE_NAME, SearchEntry.COLUMN_LAST_SEARCHED_AT + " < ?",
+                    new String[]{String.valueOf(now - MAX_AGE_MILLIS)});
+            db.execSQL("DELETE FROM " + SearchEntry.TABLE_NAME + " WHERE " + SearchEntry._ID
+                    + " IN (SELECT " + SearchEntry._ID + " FROM " + SearchEntry.TABLE_NAME
+                    + " ORDER BY " + SearchEntry.COLUMN_LAST_SEARCHED_AT + " DESC LIMIT -1 OFFSET "
+                    + MAX_SEARCHES + ")");
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Return the searches run most often within the last 30 days, the most recent first
+     * among searches run as often
+     * @param limit - Largest number of searches returned
+     * @return searches, without order or paging; set them with {@link BookQuery#buildUpon()}
+     */
+    public List<BookQuery> getFrequentSearches(int limit) {
+        long since = System.currentTimeMillis() - MAX_AGE_MILLIS;
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+
+        List<BookQuery> searches = new ArrayList<>();
+        Cursor cursor = db.query(SearchEntry.TABLE_NAME,
+                new String[]{SearchEntry.COLUMN_TITLE, SearchEntry.COLUMN_AUTHOR},
+                SearchEntry.COLUMN_LAST_SEARCHED_AT + " >= ?", new String[]{String.valueOf(since)},
+                null, null, SearchEntry.COLUMN_SEARCH_COUNT + " DESC, "
+                        + SearchEntry.COLUMN_LAST_SEARCHED_AT + " DESC", String.valueOf(limit));
+        try {
+            while (cursor.moveToNext()) {
+                searches.add(new BookQuery.Builder()
+                        .setTitle(cursor.getString(0))
+                        .setAuthor(cursor.getString(1))
+                        .build());
+            }
+        } finally {
+            cursor.close();
+        }
+        return searches;
+    }
+}
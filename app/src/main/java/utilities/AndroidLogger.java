@@ -0,0 +1,25 @@
+package utilities;
+
+import android.util.Log;
+
+/**
+ * {@link Logger} writing the messages of the search engine to logcat
+ */
+
+public final class AndroidLogger implements Logger {
+
+    @Override
+    public void debug(String tag, String message) {
+        Log.d(tag, message);
+    }
+
+    @Override
+    public void warn(String tag, String message, Throwable error) {
+        Log.w(tag, message, error);
+    }
+
+    @Override
+    public void error(String tag, String message, Throwable error) {
+        Log.e(tag, message, error);
+    }
+}
@@ -0,0 +1,220 @@
+package utilities;
+
+import android.view.Choreographer;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the frames of a screen while it scrolls, from the time between consecutive
+ * {@link Choreographer} frames, and records them in the {@link MetricsRegistry}:
+ * a histogram of frame durations, and counts of frames, janky frames (which missed at least
+ * one vsync) and frozen frames (longer than 700 ms). The rows bound during a janky frame are
+ * logged with it, so the stutter can be tied to the rows whose binding caused it.
+ * Frames are only observed while the screen scrolls and for a few frames after, so an idle
+ * screen doesn't wake up on every vsync. All methods must be called on the main thread.
+ */
+
+public final class FrameMonitor implements Choreographer.FrameCallback {
+
+    // Screens monitored
+    public static final String SCREEN_BOOK_LIST = "book_list";
+    public static final String SCREEN_BOOK_DETAILS = "book_details";
+
+    /** Frames longer than this are frozen, as in Android vitals */
+    private static final long FROZEN_FRAME_NANOS = TimeUnit.MILLISECONDS.toNanos(700);
+
+    /** Refresh rate assumed until the display's is set */
+    private static final float DEFAULT_REFRESH_RATE = 60;
+
+    /** Frames observed after the last scroll, to catch the frames settling it */
+    private static final int IDLE_FRAMES = 10;
+
+    /** Rows of a frame whose positions are logged; the rest are only counted */
+    private static final int MAX_BOUND_POSITIONS = 8;
+
+    /** Janky frames kept in the log */
+    private static final int JANK_LOG_SIZE = 16;
+
+    private static final Map<String, FrameMonitor> mMonitors = new HashMap<>();
+
+    private final Histogram mFrameTime;
+    private final AtomicLong mFrameCounter;
+    private final AtomicLong mJankyFrameCounter;
+    private final AtomicLong mFrozenFrameCounter;
+    private final AtomicLong mJankyFramesWithBindsCounter;
+
+    private long mJankThresholdNanos;
+    private boolean mIsRunning;
+    private long mLastFrameNanos;
+    private int mIdleFrames;
+
+    // Rows bound since the last frame started
+    private final int[] mBoundPositions = new int[MAX_BOUND_POSITIONS];
+    private int mBoundCount;
+    private long mBindNanos;
+
+    // Ring buffer of the recent janky frames, formatted only when dumped
+    private final long[] mJankDurations = new long[JANK_LOG_SIZE];
+    private final long[] mJankBindNanos = new long[JANK_LOG_SIZE];
+    private final int[] mJankBoundCounts = new int[JANK_LOG_SIZE];
+    private final int[][] mJankBoundPositions = new int[JANK_LOG_SIZE][MAX_BOUND_POSITIONS];
+    private int mJankLogCount;
+    private int mNextJank;
+
+    private FrameMonitor(String screen) {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        String prefix = "frames." + screen + ".";
+        mFrameTime = metrics.histogram(prefix + "duration", Histogram.Unit.NANOSECONDS);
+        mFrameCounter = metrics.counter(prefix + "total");
+        mJankyFrameCounter = metrics.counter(prefix + "janky");
+        mFrozenFrameCounter = metrics.counter(prefix + "frozen");
+        mJankyFramesWithBindsCounter = metrics.counter(prefix + "janky_with_binds");
+        metrics.registerSection("Recent janky frames - " + screen, new MetricsRegistry.Section() {
+            @Override
+            public void dump(Appendable out) throws IOException {
+                dumpJankLog(out);
+            }
+        });
+        setRefreshRate(DEFAULT_REFRESH_RATE);
+    }
+
+    /**
+     * Return the monitor of a screen; it outlives the activities showing the screen
+     * @param screen - Name of the screen, e.g. {@link #SCREEN_BOOK_LIST}
+     */
+    public static FrameMonitor getInstance(String screen) {
+        FrameMonitor monitor = mMonitors.get(screen);
+        if (monitor == null) {
+            monitor = new FrameMonitor(screen);
+            mMonitors.put(screen, monitor);
+        }
+        return monitor;
+    }
+
+    /**
+     * Set the refresh rate of the display, from which a janky frame is told apart
+     * @param refreshRate - Frames per second, e.g. from Display.getRefreshRate()
+     */
+    public void setRefreshRate(float refreshRate) {
+        if (refreshRate <= 0) {
+            refreshRate = DEFAULT_REFRESH_RATE;
+        }
+        // A frame taking one and a half vsync intervals has missed one
+        mJankThresholdNanos = (long) (TimeUnit.SECONDS.toNanos(1) * 1.5 / refreshRate);
+    }
+
+    /**
+     * Called on every scroll of the screen; observes frames until it has been idle for a while
+     */
+    public void onScroll() {
+        mIdleFrames = 0;
+        if (!mIsRunning) {
+            mIsRunning = true;
+            mLastFrameNanos = 0;
+            mBoundCount = 0;
+            mBindNanos = 0;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    /**
+     * Called when a row is bound, to tie it to the frame it was bound in
+     * @param position - Position of the row in the adapter
+     * @param bindNanos - Time taken to bind the row
+     */
+    public void onItemBound(int position, long bindNanos) {
+        if (!mIsRunning) {
+            return;
+        }
+        if (mBoundCount < MAX_BOUND_POSITIONS) {
+            mBoundPositions[mBoundCount] = position;
+        }
+        mBoundCount++;
+        mBindNanos += bindNanos;
+    }
+
+    /**
+     * Stop observing frames, e.g. when the screen is paused
+     */
+    public void stop() {
+        if (mIsRunning) {
+            mIsRunning = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (!mIsRunning) {
+            return;
+        }
+
+        // The rows bound since the last callback were bound in the frame that just ended
+        if (mLastFrameNanos != 0) {
+            recordFrame(frameTimeNanos - mLastFrameNanos);
+        }
+        mLastFrameNanos = frameTimeNanos;
+        mBoundCount = 0;
+        mBindNanos = 0;
+
+        if (++mIdleFrames < IDLE_FRAMES) {
+            Choreographer.getInstance().postFrameCallback(this);
+        } else {
+            mIsRunning = false;
+        }
+    }
+
+    private void recordFrame(long durationNanos) {
+        mFrameTime.record(durationNanos);
+        mFrameCounter.incrementAndGet();
+        if (durationNanos < mJankThresholdNanos) {
+            return;
+        }
+
+        mJankyFrameCounter.incrementAndGet();
+        if (durationNanos >= FROZEN_FRAME_NANOS) {
+            mFrozenFrameCounter.incrementAndGet();
+        }
+        if (mBoundCount > 0) {
+            mJankyFramesWithBindsCounter.incrementAndGet();
+        }
+
+        synchronized (this) {
+            mJankDurations[mNextJank] = durationNanos;
+            mJankBindNanos[mNextJank] = mBindNanos;
+            mJankBoundCounts[mNextJank] = mBoundCount;
+            System.arraycopy(mBoundPositions, 0, mJankBoundPositions[mNextJank], 0,
+                    Math.min(mBoundCount, MAX_BOUND_POSITIONS));
+            mNextJank = (mNextJank + 1) % JANK_LOG_SIZE;
+            mJankLogCount = Math.min(mJankLogCount + 1, JANK_LOG_SIZE);
+        }
+    }
+
+    /**
+     * Write the recent janky frames, latest first, with the rows bound in each
+     */
+    private synchronized void dumpJankLog(Appendable out) throws IOException {
+        if (mJankLogCount == 0) {
+            out.append("none\n");
+            return;
+        }
+        for (int i = 1; i <= mJankLogCount; i++) {
+            int index = (mNextJank - i + JANK_LOG_SIZE) % JANK_LOG_SIZE;
+            int boundCount = mJankBoundCounts[index];
+            StringBuilder line = new StringBuilder(String.format(Locale.US,
+                    "%8.2f ms frame, %d rows bound in %.2f ms",
+                    mJankDurations[index] / 1e6, boundCount, mJankBindNanos[index] / 1e6));
+            for (int p = 0; p < Math.min(boundCount, MAX_BOUND_POSITIONS); p++) {
+                line.append(p == 0 ? ": " : ", ").append(mJankBoundPositions[index][p]);
+            }
+            if (boundCount > MAX_BOUND_POSITIONS) {
+                line.append(", ...");
+            }
+            out.append(line).append('\n');
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package utilities;
+
+/**
+ * Validates the author typed by the user, without allocating, so it can run on every keystroke.
+ * An author is one or more names separated by a single space, apostrophe or hyphen, where a name
+ * is made of letters of any script, their combining accents and dots, e.g. J. R. R. Tolkien,
+ * Gabriel García Márquez, O'Brien, O’Brien or Jean-Paul Sartre.
+ * Leading and trailing whitespace is ignored.
+ */
+
+public final class InputValidator {
+
+    // States of the validator while it reads the author
+    private static final int STATE_START = 0;
+    private static final int STATE_NAME = 1;
+    private static final int STATE_SEPARATOR = 2;
+
+    /** Typographic apostrophe, typed by many keyboards instead of ' */
+    private static final char RIGHT_SINGLE_QUOTATION_MARK = '\u2019';
+
+    /**
+     * This is a private constructor and only meant to hold static variables and methods,
+     * which can be accessed directly from the class name InputValidator
+     */
+    private InputValidator() {
+    }
+
+    /**
+     * Method to check if user input text is empty or only whitespace
+     * @return true/false
+     */
+    public static boolean isBlank(CharSequence input) {
+        if (input == null) {
+            return true;
+        }
+        for (int i = 0; i < input.length(); i++) {
+            if (!Character.isWhitespace(input.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method to check if user input text is a valid author
+     * @return true/false
+     */
+    public static boolean isValidAuthor(CharSequence input) {
+        return validate(input, false);
+    }
+
+    /**
+     * Method to check if user input text can still become a valid author as the user keeps
+     * typing, e.g. Jean- or O' while typing Jean-Paul or O'Brien
+     * @return true/false
+     */
+    public static boolean isValidAuthorPrefix(CharSequence input) {
+        return validate(input, true);
+    }
+
+    /**
+     * Read the author one code point at a time
+     * @param allowIncomplete - Accept an author ending with a separator
+     */
+    private static boolean validate(CharSequence input, boolean allowIncomplete) {
+        if (input == null) {
+            return false;
+        }
+
+        // Skip leading and trailing whitespace
+        int start = 0;
+        int end = input.length();
+        while (start < end && Character.isWhitespace(input.charAt(start))) {
+            start++;
+        }
+        while (end > start && Character.isWhitespace(input.charAt(end - 1))) {
+            end--;
+        }
+
+        int state = STATE_START;
+        int i = start;
+        while (i < end) {
+            int codePoint = Character.codePointAt(input, i);
+            i += Character.charCount(codePoint);
+
+            if (Character.isLetter(codePoint) || codePoint == '.') {
+                state = STATE_NAME;
+            } else if (isCombiningMark(codePoint)) {
+                // An accent belongs to the letter before it
+                if (state != STATE_NAME) {
+                    return false;
+                }
+            } else if (isSeparator(codePoint)) {
+                if (state != STATE_NAME) {
+                    return false;
+                }
+                state = STATE_SEPARATOR;
+            } else {
+                return false;
+            }
+        }
+
+        return state == STATE_NAME || (allowIncomplete && state == STATE_SEPARATOR);
+    }
+
+    private static boolean isSeparator(int codePoint) {
+        return codePoint == ' ' || codePoint == '\'' || codePoint == '-'
+                || codePoint == RIGHT_SINGLE_QUOTATION_MARK;
+    }
+
+    private static boolean isCombiningMark(int codePoint) {
+        int type = Character.getType(codePoint);
+        return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+                || type == Character.ENCLOSING_MARK;
+    }
+}
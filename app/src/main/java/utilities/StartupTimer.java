@@ -0,0 +1,80 @@
+package utilities;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Measures the cold start of the app: the time from the start of the process until the
+ * search screen has drawn its first frame and can be used.
+ * Only a start going through the splash screen is measured, as a process restored into
+ * another screen never shows the search screen first.
+ */
+
+public final class StartupTimer {
+
+    private static final String LOG_TAG = StartupTimer.class.getName();
+
+    /** Uptime at which the process started, 0 until it is known */
+    private static long mProcessStart;
+
+    /** Time the splash screen spent warming up, -1 until it launches the search screen */
+    private static long mWarmUpMillis = -1;
+
+    /** True if the splash screen stopped waiting before the warm-up finished */
+    private static boolean mWarmUpTimedOut;
+
+    /** Time from the start of the process until the search screen was drawn, -1 until then */
+    private static long mColdStartMillis = -1;
+
+    /**
+     * This is a private constructor and only meant to hold static variables and methods,
+     * which can be accessed directly from the class name StartupTimer
+     */
+    private StartupTimer() {
+    }
+
+    /**
+     * Record the start of the process; called first thing when the application is created
+     */
+    public static synchronized void markProcessStart() {
+        // Before Android N the process start is only known once the application is created
+        mProcessStart = (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N)
+                ? Process.getStartUptimeMillis()
+                : SystemClock.uptimeMillis();
+    }
+
+    /**
+     * Record the end of the splash screen
+     * @param timedOut - True if the splash screen stopped waiting before the warm-up finished
+     */
+    public static synchronized void markWarmUpFinished(boolean timedOut) {
+        if (mProcessStart == 0 || mWarmUpMillis >= 0) {
+            return;
+        }
+        mWarmUpMillis = SystemClock.uptimeMillis() - mProcessStart;
+        mWarmUpTimedOut = timedOut;
+    }
+
+    /**
+     * Record the first frame of the search screen and report the cold start time
+     * @return true if this was the end of a cold start, false if it was already reported
+     * or the process didn't start with the splash screen
+     */
+    public static synchronized boolean markInteractive() {
+        if (mWarmUpMillis < 0 || mColdStartMillis >= 0) {
+            return false;
+        }
+        mColdStartMillis = SystemClock.uptimeMillis() - mProcessStart;
+
+        Log.i(LOG_TAG, "Cold start to interactive: " + mColdStartMillis + " ms, splash screen "
+                + mWarmUpMillis + " ms" + (mWarmUpTimedOut ? " (warm-up timed out)" : ""));
+        return true;
+    }
+
+    /** Getter method - Time from process start to the first frame of the search screen, or -1 */
+    public static synchronized long getColdStartMillis() {
+        return mColdStartMillis;
+    }
+}
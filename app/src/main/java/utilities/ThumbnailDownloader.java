@@ -0,0 +1,134 @@
+package utilities;
+
+import android.net.Uri;
+import com.squareup.picasso.Downloader;
+import com.squareup.picasso.NetworkPolicy;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Picasso {@link Downloader} fetching book covers through {@link BooksHttpClient}, so they share
+ * its keep-alive connections, and keeping them in a {@link DiskResponseCache}.
+ * A cover found fresh on disk is decoded without going to the network; a stale one is
+ * revalidated with a conditional GET.
+ */
+
+final class ThumbnailDownloader implements Downloader {
+
+    // Header names
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    /** Shortest time a cover is served from disk without revalidation; covers rarely change */
+    private static final long MIN_FRESHNESS = 24 * 60 * 60 * 1000L;
+
+    private final DiskResponseCache mDiskCache;
+
+    /**
+     * Constructs a new {@link ThumbnailDownloader} object
+     * @param diskCache - Cache the covers are kept in
+     */
+    ThumbnailDownloader(DiskResponseCache diskCache) {
+        mDiskCache = diskCache;
+    }
+
+    /**
+     * Return the cover at the given URL from the disk cache or the network.
+     * This is on a Picasso thread.
+     */
+    @Override
+    public Response load(Uri uri, int networkPolicy) throws IOException {
+        String url = uri.toString();
+
+        DiskResponseCache.Entry cachedEntry = NetworkPolicy.shouldReadFromDiskCache(networkPolicy)
+                ? mDiskCache.get(url)
+                : null;
+        if (cachedEntry != null
+                && (cachedEntry.isFresh() || NetworkPolicy.isOfflineOnly(networkPolicy))) {
+            return new Response(cachedEntry.openBody(), true, cachedEntry.getLength());
+        }
+        if (NetworkPolicy.isOfflineOnly(networkPolicy)) {
+            throw new IOException("Cover not cached: " + url);
+        }
+
+        // Ask the server to confirm the cached cover is still valid
+        Map<String, String> requestHeaders = new HashMap<>();
+        if (cachedEntry != null) {
+            if (cachedEntry.getEtag() != null) {
+                requestHeaders.put(HEADER_IF_NONE_MATCH, cachedEntry.getEtag());
+            }
+            if (cachedEntry.getLastModified() != null) {
+                requestHeaders.put(HEADER_IF_MODIFIED_SINCE, cachedEntry.getLastModified());
+            }
+        }
+
+        BooksHttpClient.Response response = BooksHttpClient.getInstance()
+                .get(new URL(url), requestHeaders);
+        try {
+            int responseCode = response.getCode();
+            String cacheControl = response.getHeader(HEADER_CACHE_CONTROL);
+            long now = System.currentTimeMillis();
+            long expiresAt = Math.max(now + MIN_FRESHNESS,
+                    DiskResponseCache.computeExpiresAt(cacheControl, response.getExpiration(), now));
+
+            if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cachedEntry != null) {
+                mDiskCache.update(url, response.getHeader(HEADER_ETAG),
+                        response.getHeader(HEADER_LAST_MODIFIED), expiresAt);
+                return new Response(cachedEntry.openBody(), true, cachedEntry.getLength());
+            }
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Cover request failed with response code " + responseCode);
+            }
+
+            // Covers are small; read the whole body so it is cached even if decoding stops early
+            InputStream inputStream = response.getBody();
+            DiskResponseCache.Editor editor = null;
+            if (NetworkPolicy.shouldWriteToDiskCache(networkPolicy)
+                    && DiskResponseCache.isStorable(cacheControl)) {
+                editor = mDiskCache.edit(url);
+            }
+
+            byte[] body;
+            if (editor != null) {
+                try {
+                    body = readFully(editor.tee(inputStream));
+                } catch (IOException e) {
+                    editor.abort();
+                    throw e;
+                }
+                editor.commit(response.getHeader(HEADER_ETAG),
+                        response.getHeader(HEADER_LAST_MODIFIED), expiresAt);
+            } else {
+                body = readFully(inputStream);
+            }
+            return new Response(new ByteArrayInputStream(body), false, body.length);
+        } finally {
+            // Release the connection back to the keep-alive pool
+            response.close();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        // Connections belong to BooksHttpClient, which outlives Picasso
+    }
+
+    private static byte[] readFully(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            output.write(buffer, 0, read);
+        }
+        return output.toByteArray();
+    }
+}
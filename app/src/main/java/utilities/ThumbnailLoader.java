@@ -0,0 +1,178 @@
+package utilities;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.widget.ImageView;
+import com.example.android.bookfinder.R;
+import com.squareup.picasso.Callback;
+import com.squareup.picasso.LruCache;
+import com.squareup.picasso.Picasso;
+import com.squareup.picasso.RequestCreator;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Loads book covers into image views, and prefetches the covers of rows about to be shown.
+ * Covers are decoded at the size they are displayed at and kept in two tiers: decoded bitmaps
+ * in a memory LRU cache and downloaded files in a disk cache.
+ * Covers of visible rows are loaded before prefetched ones, and only a few prefetches
+ * run at a time so they never hold up the visible rows.
+ */
+
+public final class ThumbnailLoader {
+
+    /** Directory of the disk cache, within the app's cache directory */
+    private static final String DISK_CACHE_DIR = "thumbnails";
+
+    /** Maximum number of bytes of covers kept on disk */
+    private static final long DISK_CACHE_SIZE = 20 * 1024 * 1024;
+
+    /** Share of the app's memory used by decoded covers */
+    private static final int MEMORY_CACHE_DIVISOR = 8;
+
+    /** Largest number of prefetches running at the same time */
+    private static final int MAX_PREFETCHES_IN_FLIGHT = 4;
+
+    /** Tag of prefetch requests, so they can be canceled together */
+    private static final Object PREFETCH_TAG = new Object();
+
+    private static ThumbnailLoader mInstance;
+
+    private final Picasso mPicasso;
+    private final ThumbnailDownloader mDownloader;
+
+    /** Prefetches started and not finished yet; only used on the main thread */
+    private int mPrefetchesInFlight;
+
+    /** Counts a prefetch as finished, whatever its outcome */
+    private final Callback mPrefetchCallback = new Callback() {
+        @Override
+        public void onSuccess() {
+            mPrefetchesInFlight--;
+        }
+
+        @Override
+        public void onError() {
+            mPrefetchesInFlight--;
+        }
+    };
+
+    private ThumbnailLoader(Context context) {
+        ActivityManager activityManager =
+                (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryCacheSize = activityManager.getMemoryClass() * 1024 * 1024 / MEMORY_CACHE_DIVISOR;
+
+        DiskResponseCache diskCache = new DiskResponseCache(
+                new File(context.getCacheDir(), DISK_CACHE_DIR), DISK_CACHE_SIZE);
+        mDownloader = new ThumbnailDownloader(diskCache);
+
+        // Covers have no transparency, so 16 bits per pixel halve their memory
+        mPicasso = new Picasso.Builder(context)
+                .memoryCache(new LruCache(memoryCacheSize))
+                .downloader(mDownloader)
+                .defaultBitmapConfig(Bitmap.Config.RGB_565)
+                .build();
+    }
+
+    /**
+     * Return the loader shared by the whole process
+     */
+    public static synchronized ThumbnailLoader getInstance(Context context) {
+        if (mInstance == null) {
+            mInstance = new ThumbnailLoader(context.getApplicationContext());
+        }
+        return mInstance;
+    }
+
+    /**
+     * Load a cover into an image view ahead of any prefetch, replacing the cover it was loading.
+     * Without a cover, the image-not-found picture is shown.
+     * @param url - Cover URL, may be empty
+     * @param imageView - View displaying the cover
+     * @param targetWidth - Width the cover is decoded at, in pixels; 0 keeps the aspect ratio
+     * @param targetHeight - Height the cover is decoded at, in pixels; 0 keeps the aspect ratio
+     */
+    public void load(String url, ImageView imageView, int targetWidth, int targetHeight) {
+        if (url == null || url.length() == 0) {
+            mPicasso.load(R.drawable.image_not_found).into(imageView);
+            return;
+        }
+
+        request(url, targetWidth, targetHeight)
+                .priority(Picasso.Priority.HIGH)
+                .error(R.drawable.image_not_found)
+                .into(imageView);
+    }
+
+    /**
+     * Decode a cover into the memory cache before its row is shown.
+     * The prefetch is skipped if too many are already running; it is requested again as the
+     * list keeps scrolling. Must be called on the main thread.
+     * @param url - Cover URL, may be empty
+     * @param targetWidth - Width the row will decode the cover at, in pixels
+     * @param targetHeight - Height the row will decode the cover at, in pixels
+     */
+    public void prefetch(String url, int targetWidth, int targetHeight) {
+        if (url == null || url.length() == 0 || mPrefetchesInFlight >= MAX_PREFETCHES_IN_FLIGHT) {
+            return;
+        }
+
+        mPrefetchesInFlight++;
+        request(url, targetWidth, targetHeight)
+                .priority(Picasso.Priority.LOW)
+                .tag(PREFETCH_TAG)
+                .fetch(mPrefetchCallback);
+    }
+
+    /**
+     * Download a cover into the disk cache without decoding it, so it is shown without going to
+     * the network later, even after the app has restarted. A cover already fresh on disk is
+     * left as it is. This is a blocking call and must not run on the main thread.
+     * @param url - Cover URL, may be empty
+     * @return true if the cover is now in the disk cache
+     */
+    public boolean download(String url) {
+        if (url == null || url.length() == 0) {
+            return false;
+        }
+
+        try {
+            mDownloader.load(Uri.parse(url), 0).getInputStream().close();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stop loading a cover into an image view, e.g. when its row is recycled
+     */
+    public void cancel(ImageView imageView) {
+        mPicasso.cancelRequest(imageView);
+    }
+
+    /**
+     * Stop every prefetch, e.g. when the list is closed
+     */
+    public void cancelPrefetches() {
+        mPicasso.cancelTag(PREFETCH_TAG);
+        mPrefetchesInFlight = 0;
+    }
+
+    /**
+     * Build the request of a cover; a row and its prefetch build the same request,
+     * so they share one entry of the memory cache
+     */
+    private RequestCreator request(String url, int targetWidth, int targetHeight) {
+        RequestCreator request = mPicasso.load(url);
+        if (targetWidth > 0 || targetHeight > 0) {
+            request.resize(targetWidth, targetHeight).onlyScaleDown();
+            if (targetWidth > 0 && targetHeight > 0) {
+                request.centerInside();
+            }
+        }
+        return request;
+    }
+}
@@ -2,13 +2,16 @@ package utilities;
 
 import android.content.Context;
 import android.graphics.Typeface;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.support.v4.content.ContextCompat;
 import android.view.View;
 import android.widget.Button;
 import android.widget.EditText;
 import android.widget.TextView;
 import com.example.android.bookfinder.R;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * This class contains common methods
@@ -17,6 +20,29 @@ import java.util.regex.Pattern;
 
 public final class Utils {
 
+    // Typefaces set on UI elements
+    private static final String FONT_SERIF_SEMIBOLD = "fonts/sourceserifpro_semibold.otf";
+    private static final String FONT_SERIF_REGULAR = "fonts/sourceserifpro_regular.otf";
+    private static final String FONT_SANS_SEMIBOLD = "fonts/sourcesanspro_semibold.otf";
+
+    /** Rating drawables, by number of half stars from no rating to five stars */
+    private static final int[] RATING_DRAWABLES = {
+            R.drawable.rating_none,
+            R.drawable.rating_half,
+            R.drawable.rating_one,
+            R.drawable.rating_one_half,
+            R.drawable.rating_two,
+            R.drawable.rating_two_half,
+            R.drawable.rating_three,
+            R.drawable.rating_three_half,
+            R.drawable.rating_four,
+            R.drawable.rating_four_half,
+            R.drawable.rating_five
+    };
+
+    /** Typefaces created from the assets, keyed by asset path; created once per process */
+    private static final Map<String, Typeface> mTypefaces = new HashMap<>();
+
     /**
      * This is a private constructor and only meant to hold static variables and methods,
      * which can be accessed directly from the class name Utils
@@ -28,56 +54,91 @@ public final class Utils {
      * Method to set custom typeface to UI elements
      */
     public static void setCustomTypeface(Context context, View view) {
-        Typeface typefaceSourceSerif = Typeface.createFromAsset(context.getAssets(),
-                "fonts/sourceserifpro_semibold.otf");
-        Typeface typefaceSourceSerifReg = Typeface.createFromAsset(context.getAssets(),
-                "fonts/sourceserifpro_regular.otf");
-        Typeface typefaceSourceSans = Typeface.createFromAsset(context.getAssets(),
-                "fonts/sourcesanspro_semibold.otf");
-
         // Get tag on the view
         String viewTag = view.getTag().toString();
 
         // Cast view to appropriate view element based on tag received and set typefaces
         if (viewTag.equals(context.getString(R.string.tag_textview))) {
             TextView textView = (TextView) view;
-            textView.setTypeface(typefaceSourceSerif);
+            textView.setTypeface(getTypeface(context, FONT_SERIF_SEMIBOLD));
         } else if (viewTag.equals(context.getString(R.string.tag_textview_2))) {
             TextView textView = (TextView) view;
-            textView.setTypeface(typefaceSourceSerifReg);
+            textView.setTypeface(getTypeface(context, FONT_SERIF_REGULAR));
         } else if (viewTag.equals(context.getString(R.string.tag_edittext))) {
             EditText editText = (EditText) view;
-            editText.setTypeface(typefaceSourceSerif);
+            editText.setTypeface(getTypeface(context, FONT_SERIF_SEMIBOLD));
         } else if (viewTag.equals(context.getString(R.string.tag_button))) {
             Button button = (Button) view;
-            button.setTypeface(typefaceSourceSans);
+            button.setTypeface(getTypeface(context, FONT_SANS_SEMIBOLD));
         }
     }
 
     /**
-     * Method to check if user input text is null
-     * @return true/false
+     * Method to create the typefaces set on UI elements ahead of their first use
      */
-    public static boolean checkEmptyString(String input) {
-        if (input.length() == 0) {
-            return false;
-        } else  {
-            return true;
+    public static void preloadTypefaces(Context context) {
+        getTypeface(context, FONT_SERIF_SEMIBOLD);
+        getTypeface(context, FONT_SERIF_REGULAR);
+        getTypeface(context, FONT_SANS_SEMIBOLD);
+    }
+
+    /**
+     * Method to get a typeface from the assets, reading the font file only the first time
+     */
+    private static Typeface getTypeface(Context context, String path) {
+        synchronized (mTypefaces) {
+            Typeface typeface = mTypefaces.get(path);
+            if (typeface == null) {
+                typeface = Typeface.createFromAsset(context.getApplicationContext().getAssets(), path);
+                mTypefaces.put(path, typeface);
+            }
+            return typeface;
+        }
+    }
+
+    /**
+     * Method to get the rating drawable of a rating given in half stars (e.g. 3.5)
+     * @return resource id; ratings that aren't a whole number of half stars show no stars
+     */
+    public static int getRatingDrawableId(double rating) {
+        double halfStars = rating * 2;
+        if (halfStars != Math.rint(halfStars) || halfStars < 0 || halfStars >= RATING_DRAWABLES.length) {
+            return RATING_DRAWABLES[0];
         }
+        return RATING_DRAWABLES[(int) halfStars];
     }
 
     /**
-     * Method to check if user input text is valid
+     * Method to decode the rating drawables ahead of their first use,
+     * so the first list of books doesn't wait on them
+     */
+    public static void preloadRatingDrawables(Context context) {
+        for (int resId : RATING_DRAWABLES) {
+            ContextCompat.getDrawable(context, resId);
+        }
+    }
+
+    /**
+     * Method to check if the device has a network connection
      * @return true/false
      */
-    public static boolean checkValidString(String input) {
-        String patternName = "[a-zA-z.]+([ '-][a-zA-Z.]+)*";
-        Pattern pattern = Pattern.compile(patternName);
-        Matcher matcher = pattern.matcher(input);
+    public static boolean isNetworkConnected(Context context) {
+        ConnectivityManager connMgr = (ConnectivityManager)
+                context.getSystemService(Context.CONNECTIVITY_SERVICE);
 
-        if (!matcher.matches()) {
+        // Get details on the currently active default data network
+        NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
+        return networkInfo != null && networkInfo.isConnected();
+    }
+
+    /**
+     * Method to check if user input text is null
+     * @return true/false
+     */
+    public static boolean checkEmptyString(String input) {
+        if (input.length() == 0) {
             return false;
-        } else {
+        } else  {
             return true;
         }
     }
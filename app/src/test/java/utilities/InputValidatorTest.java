@@ -0,0 +1,144 @@
+package utilities;
+
+import org.junit.Test;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Property tests of {@link InputValidator}, over authors generated from a fixed seed
+ */
+public class InputValidatorTest {
+
+    private static final long SEED = 42;
+    private static final int RUNS = 20000;
+
+    /** The regex the validator replaced, with its A-z range corrected to A-Z */
+    private static final Pattern ASCII_AUTHOR = Pattern.compile("[a-zA-Z.]+([ '-][a-zA-Z.]+)*");
+
+    private static final String ASCII_ALPHABET = "abcXYZ.' -09[\\]^_`@{~";
+
+    /** Letters of several scripts, a decomposed accent and a letter outside the BMP */
+    private static final String[] NAME_CHARS = {
+            "a", "Z", ".", "é", "é", "ñ", "ø", "ß", "Ł",
+            "ж", "Ω", "村", "ア", "𝐀"
+    };
+    private static final String[] SEPARATORS = {" ", "'", "-", "’"};
+    private static final String[] NEVER_VALID = {
+            "0", "7", "[", "\\", "^", "_", "`", "@", "!", ",", "/"
+    };
+
+    @Test
+    public void examples() {
+        String[] valid = {
+                "Tolkien", "J. R. R. Tolkien", "Jean-Paul Sartre", "O'Brien", "O’Brien",
+                "Ursula K. Le Guin", "Gabriel García Márquez", "Brontë",
+                "Brontë", "Фёдор Достоевский",
+                "村上春樹", "  tolkien  "
+        };
+        String[] invalid = {
+                "", "   ", "R2-D2", "A_b", "a[b", "a\\b", "a^b", "a`b", "a--b", "a  b", "-a", "a-",
+                "'", "́a", "a ́b"
+        };
+        for (String author : valid) {
+            assertTrue(author, InputValidator.isValidAuthor(author));
+        }
+        for (String author : invalid) {
+            assertFalse(author, InputValidator.isValidAuthor(author));
+        }
+        assertFalse(InputValidator.isValidAuthor(null));
+    }
+
+    @Test
+    public void asciiAuthors_matchCorrectedRegex() {
+        Random random = new Random(SEED);
+        for (int run = 0; run < RUNS; run++) {
+            StringBuilder author = new StringBuilder();
+            int length = 1 + random.nextInt(12);
+            for (int i = 0; i < length; i++) {
+                author.append(ASCII_ALPHABET.charAt(random.nextInt(ASCII_ALPHABET.length())));
+            }
+            String text = author.toString();
+            assertEquals(text, ASCII_AUTHOR.matcher(text.trim()).matches(),
+                    InputValidator.isValidAuthor(text));
+        }
+    }
+
+    @Test
+    public void generatedAuthors_areValid() {
+        Random random = new Random(SEED);
+        for (int run = 0; run < RUNS; run++) {
+            String author = generateAuthor(random);
+            assertTrue(author, InputValidator.isValidAuthor(author));
+        }
+    }
+
+    @Test
+    public void neverValidCharacter_makesAuthorInvalid() {
+        Random random = new Random(SEED);
+        for (int run = 0; run < RUNS; run++) {
+            String author = generateAuthor(random);
+            int position = random.nextInt(author.length() + 1);
+            // Keep surrogate pairs whole
+            if (position > 0 && position < author.length()
+                    && Character.isLowSurrogate(author.charAt(position))) {
+                position--;
+            }
+            String bad = NEVER_VALID[random.nextInt(NEVER_VALID.length)];
+            String text = author.substring(0, position) + bad + author.substring(position);
+            assertFalse(text, InputValidator.isValidAuthor(text));
+            assertFalse(text, InputValidator.isValidAuthorPrefix(text));
+        }
+    }
+
+    @Test
+    public void prefixesOfValidAuthors_areValidPrefixes() {
+        Random random = new Random(SEED);
+        for (int run = 0; run < RUNS / 10; run++) {
+            String author = generateAuthor(random);
+            for (int end = 1; end <= author.length(); end++) {
+                // Prefixes are cut between code points, as they are typed
+                if (end < author.length() && Character.isLowSurrogate(author.charAt(end))) {
+                    continue;
+                }
+                String prefix = author.substring(0, end);
+                assertTrue(prefix, InputValidator.isValidAuthorPrefix(prefix)
+                        || InputValidator.isBlank(prefix));
+            }
+        }
+    }
+
+    @Test
+    public void isBlank() {
+        assertTrue(InputValidator.isBlank(null));
+        assertTrue(InputValidator.isBlank(""));
+        assertTrue(InputValidator.isBlank(" \t\n"));
+        assertFalse(InputValidator.isBlank(" a "));
+    }
+
+    /**
+     * Generate an author of one to four names made of letters of several scripts, accents
+     * and dots, separated by single separators, with optional surrounding spaces
+     */
+    private static String generateAuthor(Random random) {
+        StringBuilder author = new StringBuilder();
+        if (random.nextInt(4) == 0) {
+            author.append(' ');
+        }
+        int names = 1 + random.nextInt(4);
+        for (int n = 0; n < names; n++) {
+            if (n > 0) {
+                author.append(SEPARATORS[random.nextInt(SEPARATORS.length)]);
+            }
+            int length = 1 + random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                author.append(NAME_CHARS[random.nextInt(NAME_CHARS.length)]);
+            }
+        }
+        if (random.nextInt(4) == 0) {
+            author.append(' ');
+        }
+        return author.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.android.bookfinder;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import utilities.Utils;
+
+/**
+ * Throughput of the formatting run for every displayed book: picking the rating drawable
+ * and formatting the published date.
+ * Each benchmark runs over a fixed mix of inputs, so both the common and the rare paths count.
+ */
+
+@State(Scope.Thread)
+public class FormattingBenchmark {
+
+    private static final double[] RATINGS = {0, 0.5, 1, 2.5, 3, 3.5, 4, 4.5, 5, 3.7};
+
+    private static final String[] DATES = {
+            "1954", "2010-09", "2010-09-01", "2016-03-01T00:00:00Z", "2010-09-01"
+    };
+
+    private SimpleDateFormat mInputFormat;
+    private SimpleDateFormat mDisplayFormat;
+
+    @Setup
+    public void setUp() {
+        mInputFormat = new SimpleDateFormat(BookDisplayModel.DATE_FORMAT_INPUT);
+        mDisplayFormat = new SimpleDateFormat(BookDisplayModel.DATE_FORMAT_DISPLAY);
+    }
+
+    /** Replaced the switch on String.valueOf(rating) and the getIdentifier lookup of the adapter */
+    @Benchmark
+    public void getRatingDrawableId(Blackhole blackhole) {
+        for (double rating : RATINGS) {
+            blackhole.consume(Utils.getRatingDrawableId(rating));
+        }
+    }
+
+    /** Dates other than YYYY-MM-DD fail to parse, which is part of the cost measured */
+    @Benchmark
+    public void formatDate(Blackhole blackhole) {
+        for (String date : DATES) {
+            try {
+                blackhole.consume(BookDisplayModel.formatDate(date, mInputFormat, mDisplayFormat));
+            } catch (ParseException e) {
+                blackhole.consume(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package utilities;
+
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Builds synthetic Google Books API responses of any size, shaped like the real ones:
+ * every field the app reads, plus the fields it skips.
+ * The same item count always builds the same payload, so runs can be compared.
+ */
+
+public final class BookPayloads {
+
+    private static final long SEED = 42;
+
+    private static final String[] WORDS = {
+            "android", "lord", "rings", "history", "java", "garden", "ocean", "kitchen",
+            "night", "winter", "city", "science", "travel", "music", "design", "river"
+    };
+    private static final String[] AUTHORS = {
+            "J. R. R. Tolkien", "Marziah Karch", "Mary Shelley", "Ada Palmer", "Jean-Paul Sartre",
+            "Chinua Achebe", "Haruki Murakami", "Ursula K. Le Guin"
+    };
+    private static final String[] CATEGORIES = {
+            "Computers", "Fiction", "History", "Cooking", "Travel", "Science"
+    };
+    private static final String[] LANGUAGES = {"en", "fr", "de", "es", "it"};
+    private static final String[] CURRENCIES = {"GBP", "USD", "EUR"};
+    private static final String[] DATES = {"1954", "2010-09", "2010-09-01", "2016-03-01T00:00:00Z"};
+
+    /**
+     * This is a private constructor and only meant to hold static variables and methods,
+     * which can be accessed directly from the class name BookPayloads
+     */
+    private BookPayloads() {
+    }
+
+    /**
+     * Build a response holding the given number of volumes
+     * @return response as UTF-8 bytes
+     */
+    public static byte[] build(int itemCount) {
+        Random random = new Random(SEED);
+        StringBuilder json = new StringBuilder(itemCount * 2048);
+
+        json.append("{\n \"kind\": \"books#volumes\",\n \"totalItems\": ")
+                .append(itemCount * 10).append(",\n \"items\": [\n");
+        for (int i = 0; i < itemCount; i++) {
+            if (i > 0) {
+                json.append(",\n");
+            }
+            appendVolume(json, i, random);
+        }
+        json.append("\n ]\n}\n");
+        return json.toString().getBytes(Charset.forName("UTF-8"));
+    }
+
+    private static void appendVolume(StringBuilder json, int index, Random random) {
+        String id = String.format(Locale.US, "vol%08dAAJ", index);
+        boolean priced = random.nextInt(3) > 0;
+
+        json.append("  {\n   \"kind\": \"books#volume\",\n   \"id\": \"").append(id)
+                .append("\",\n   \"etag\": \"e").append(random.nextInt(1000000))
+                .append("\",\n   \"selfLink\": \"https://www.googleapis.com/books/v1/volumes/")
+                .append(id).append("\",\n   \"volumeInfo\": {\n    \"title\": \"")
+                .append(pick(WORDS, random)).append(' ').append(pick(WORDS, random))
+                .append(' ').append(index).append("\",\n    \"authors\": [");
+
+        int authorCount = 1 + random.nextInt(3);
+        for (int a = 0; a < authorCount; a++) {
+            json.append(a > 0 ? ", \"" : "\"").append(pick(AUTHORS, random)).append('"');
+        }
+
+        json.append("],\n    \"publisher\": \"Synthetic Press\",\n    \"publishedDate\": \"")
+                .append(pick(DATES, random)).append("\",\n    \"description\": \"");
+        int descriptionWords = 20 + random.nextInt(60);
+        for (int w = 0; w < descriptionWords; w++) {
+            json.append(w > 0 ? " " : "").append(pick(WORDS, random));
+        }
+
+        json.append(".\",\n    \"industryIdentifiers\": [{\"type\": \"ISBN_13\", \"identifier\": \"978")
+                .append(1000000000L + random.nextInt(999999999))
+                .append("\"}],\n    \"pageCount\": ").append(50 + random.nextInt(900))
+                .append(",\n    \"printType\": \"BOOK\",\n    \"categories\": [\"")
+                .append(pick(CATEGORIES, random))
+                .append("\"],\n    \"averageRating\": ").append(random.nextInt(11) / 2.0)
+                .append(",\n    \"ratingsCount\": ").append(random.nextInt(500))
+                .append(",\n    \"imageLinks\": {\n     \"smallThumbnail\": \"http://books.google.com/books/content?id=")
+                .append(id).append("&printsec=frontcover&img=1&zoom=5&source=gbs_api\",\n")
+                .append("     \"thumbnail\": \"http://books.google.com/books/content?id=")
+                .append(id).append("&printsec=frontcover&img=1&zoom=1&source=gbs_api\"\n    },\n")
+                .append("    \"language\": \"").append(pick(LANGUAGES, random))
+                .append("\",\n    \"previewLink\": \"http://books.google.co.uk/books?id=").append(id)
+                .append("&printsec=frontcover&dq=synthetic&hl=&cd=1&source=gbs_api\"\n   },\n")
+                .append("   \"saleInfo\": {\n    \"country\": \"GB\",\n    \"saleability\": \"")
+                .append(priced ? "FOR_SALE" : "NOT_FOR_SALE").append('"');
+
+        if (priced) {
+            json.append(",\n    \"retailPrice\": {\"amount\": ")
+                    .append(String.format(Locale.US, "%.2f", 1 + random.nextInt(5000) / 100.0))
+                    .append(", \"currencyCode\": \"").append(pick(CURRENCIES, random))
+                    .append("\"},\n    \"buyLink\": \"https://play.google.com/store/books/details?id=")
+                    .append(id).append('"');
+        }
+
+        json.append("\n   },\n   \"accessInfo\": {\n    \"epub\": {\"isAvailable\": ")
+                .append(random.nextBoolean()).append("},\n    \"pdf\": {\"isAvailable\": ")
+                .append(random.nextBoolean()).append("}\n   }\n  }");
+    }
+
+    private static String pick(String[] values, Random random) {
+        return values[random.nextInt(values.length)];
+    }
+}
@@ -0,0 +1,41 @@
+package utilities;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * Cost of recording a metric, which runs on every search stage and every row bound:
+ * reading the clock alone, recording a value into a {@link Histogram}, timing with
+ * {@link Histogram#recordSince(long)}, and recording from four threads into the same histogram.
+ */
+
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+
+    private final Histogram mHistogram = new Histogram(Histogram.Unit.NANOSECONDS);
+    private long mValue = 1234567;
+
+    /** Baseline: the clock read any timing needs */
+    @Benchmark
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Benchmark
+    public void record() {
+        mHistogram.record(mValue++);
+    }
+
+    @Benchmark
+    public void recordSince() {
+        mHistogram.recordSince(System.nanoTime());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        mHistogram.recordSince(System.nanoTime());
+    }
+}
@@ -0,0 +1,56 @@
+package utilities;
+
+import com.example.android.bookfinder.Book;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Throughput of turning a Google Books API response into books, from 10 to 10,000 volumes:
+ * reading the response into a String and building the JSON object tree, as
+ * {@link QueryUtils#extractFeatureFromJson(String)} does, against parsing the response stream
+ * token by token with {@link BookStreamParser}.
+ */
+
+@State(Scope.Benchmark)
+public class ParseBenchmark {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int itemCount;
+
+    private byte[] mPayload;
+    private String mPayloadString;
+
+    @Setup
+    public void setUp() throws IOException {
+        mPayload = BookPayloads.build(itemCount);
+        mPayloadString = QueryUtils.readFromStream(new ByteArrayInputStream(mPayload));
+    }
+
+    @Benchmark
+    public String readFromStream() throws IOException {
+        return QueryUtils.readFromStream(new ByteArrayInputStream(mPayload));
+    }
+
+    @Benchmark
+    public List<Book> extractFeatureFromJson() {
+        return QueryUtils.extractFeatureFromJson(mPayloadString);
+    }
+
+    /** Both steps, as a response was handled before the stream parser */
+    @Benchmark
+    public List<Book> readAndExtractFromJson() throws IOException {
+        return QueryUtils.extractFeatureFromJson(
+                QueryUtils.readFromStream(new ByteArrayInputStream(mPayload)));
+    }
+
+    @Benchmark
+    public List<Book> extractFeatureFromStream() {
+        return QueryUtils.extractFeatureFromStream(new ByteArrayInputStream(mPayload));
+    }
+}
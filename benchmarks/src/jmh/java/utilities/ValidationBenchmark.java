@@ -0,0 +1,47 @@
+package utilities;
+
+import java.util.regex.Pattern;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of validating the author typed, as done on every keystroke: the regex compiled on
+ * every call that Utils.checkValidString used, the same regex compiled once, and
+ * {@link InputValidator}. The GC profiler shows the allocations of each.
+ */
+
+@State(Scope.Thread)
+public class ValidationBenchmark {
+
+    private static final String AUTHOR_REGEX = "[a-zA-z.]+([ '-][a-zA-Z.]+)*";
+    private static final Pattern AUTHOR_PATTERN = Pattern.compile(AUTHOR_REGEX);
+
+    private static final String[] AUTHORS = {
+            "Tolkien", "J. R. R. Tolkien", "Jean-Paul Sartre", "O'Brien", "Ursula K. Le Guin",
+            "R2-D2", "tolkien", "Mary Shelley", "Gabriel Garcia Marquez", "J"
+    };
+
+    /** Utils.checkValidString before InputValidator replaced it */
+    @Benchmark
+    public void regexCompiledPerCall(Blackhole blackhole) {
+        for (String author : AUTHORS) {
+            blackhole.consume(Pattern.compile(AUTHOR_REGEX).matcher(author).matches());
+        }
+    }
+
+    @Benchmark
+    public void regexCompiledOnce(Blackhole blackhole) {
+        for (String author : AUTHORS) {
+            blackhole.consume(AUTHOR_PATTERN.matcher(author).matches());
+        }
+    }
+
+    @Benchmark
+    public void inputValidator(Blackhole blackhole) {
+        for (String author : AUTHORS) {
+            blackhole.consume(InputValidator.isValidAuthor(author));
+        }
+    }
+}
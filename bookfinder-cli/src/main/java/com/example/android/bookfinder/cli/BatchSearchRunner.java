@@ -0,0 +1,336 @@
+package com.example.android.bookfinder.cli;
+
+import com.example.android.bookfinder.BookPage;
+import com.example.android.bookfinder.BookQuery;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import utilities.CoreLog;
+import utilities.FetchListener;
+import utilities.Logger;
+import utilities.MetricsRegistry;
+import utilities.QueryUtils;
+
+/**
+ * Replays a file of title/author searches through the fetch-parse pipeline the app's
+ * BookLoader uses, {@link QueryUtils#fetchBookPage(String, int, int)}, from a bounded pool of
+ * threads, then reports the throughput and the latency percentiles of each stage.
+ * The base URL can point at a local stub server standing in for the Google Books API.
+ *
+ * The query file holds one search per line: a title, optionally followed by a tab and an author.
+ * Blank lines and lines starting with # are skipped.
+ */
+
+public final class BatchSearchRunner {
+
+    private static final String DEFAULT_BASE_URL = BookQuery.DEFAULT_BASE_URL;
+    private static final int DEFAULT_CONCURRENCY = 8;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final String DEFAULT_ORDER_BY = BookQuery.ORDER_BY_RELEVANCE;
+
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private static final String USAGE =
+            "Usage: BatchSearchRunner --queries FILE [options]\n"
+            + "  --queries FILE      Searches, one per line: title[<TAB>author]\n"
+            + "  --base-url URL      Volumes endpoint (default " + DEFAULT_BASE_URL + ")\n"
+            + "  --concurrency N     Searches running at the same time (default " + DEFAULT_CONCURRENCY + ")\n"
+            + "  --page-size N       Books requested per search (default " + DEFAULT_PAGE_SIZE + ")\n"
+            + "  --order-by ORDER    relevance or newest (default " + DEFAULT_ORDER_BY + ")\n"
+            + "  --cache-dir DIR     Cache responses on disk, as the app does (default: no disk cache)\n"
+            + "  --hedge             Hedge requests slower than the recent p95 response time\n"
+            + "  --metrics           Print the metrics registry: connect, first byte, body read, parse\n"
+            + "  --verbose           Log the errors of the engine";
+
+    private String mQueryFile;
+    private String mBaseUrl = DEFAULT_BASE_URL;
+    private int mConcurrency = DEFAULT_CONCURRENCY;
+    private int mPageSize = DEFAULT_PAGE_SIZE;
+    private String mOrderBy = DEFAULT_ORDER_BY;
+    private String mCacheDir;
+    private boolean mHedge;
+    private boolean mPrintMetrics;
+    private boolean mVerbose;
+
+    private final PipelineMetrics mMetrics = new PipelineMetrics();
+    private final LatencyRecorder mSearchLatencies = new LatencyRecorder();
+    private final AtomicLong mEmptyResults = new AtomicLong();
+
+    /**
+     * This is a private constructor; a runner is created by {@link #main(String[])}
+     */
+    private BatchSearchRunner() {
+    }
+
+    public static void main(String[] args) {
+        BatchSearchRunner runner = new BatchSearchRunner();
+        try {
+            runner.parseArguments(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        try {
+            runner.run(System.out);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("Batch failed: " + e);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Read the options of the runner
+     * @throws IllegalArgumentException if an option is unknown, lacks its value or is invalid
+     */
+    private void parseArguments(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+            if ("--verbose".equals(option)) {
+                mVerbose = true;
+                continue;
+            }
+            if ("--hedge".equals(option)) {
+                mHedge = true;
+                continue;
+            }
+            if ("--metrics".equals(option)) {
+                mPrintMetrics = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value of " + option);
+            }
+            String value = args[++i];
+            switch (option) {
+                case "--queries":
+                    mQueryFile = value;
+                    break;
+                case "--base-url":
+                    mBaseUrl = value;
+                    break;
+                case "--concurrency":
+                    mConcurrency = parsePositive(option, value);
+                    break;
+                case "--page-size":
+                    mPageSize = parsePositive(option, value);
+                    break;
+                case "--order-by":
+                    mOrderBy = value;
+                    break;
+                case "--cache-dir":
+                    mCacheDir = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + option);
+            }
+        }
+        if (mQueryFile == null) {
+            throw new IllegalArgumentException("Missing --queries");
+        }
+    }
+
+    private static int parsePositive(String option, String value) {
+        try {
+            int number = Integer.parseInt(value);
+            if (number > 0) {
+                return number;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException(option + " must be a positive number: " + value);
+    }
+
+    /**
+     * Run every search of the query file and print the report
+     */
+    private void run(PrintStream out) throws IOException, InterruptedException {
+        List<String> urls = readSearchUrls(new File(mQueryFile));
+        if (urls.isEmpty()) {
+            throw new IOException("No searches in " + mQueryFile);
+        }
+
+        // Keep an idle connection per thread; must be set before the HTTP client is first used
+        System.setProperty("http.maxConnections", String.valueOf(mConcurrency));
+
+        CoreLog.setLogger(new ConsoleLogger(mVerbose));
+        CoreLog.setErrorReporter(mMetrics);
+        QueryUtils.setFetchListener(mMetrics);
+        QueryUtils.setHedgingEnabled(mHedge);
+        if (mCacheDir != null) {
+            QueryUtils.setResponseCacheDirectory(new File(mCacheDir));
+        }
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(mConcurrency, mConcurrency,
+                0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        final CountDownLatch done = new CountDownLatch(urls.size());
+
+        long startNanos = System.nanoTime();
+        for (final String url : urls) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        search(url);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            });
+        }
+        done.await();
+        long elapsedNanos = System.nanoTime() - startNanos;
+        executor.shutdown();
+
+        printReport(out, urls.size(), elapsedNanos);
+        if (mPrintMetrics) {
+            out.println();
+            MetricsRegistry.getInstance().dump(out);
+        }
+    }
+
+    /**
+     * Run one search, as BookLoader does when the page isn't in memory
+     */
+    private void search(String url) {
+        long startNanos = System.nanoTime();
+        BookPage page = QueryUtils.fetchBookPage(url, 0, mPageSize);
+        mSearchLatencies.record(System.nanoTime() - startNanos);
+
+        if (page.getBooks().isEmpty()) {
+            mEmptyResults.incrementAndGet();
+        }
+    }
+
+    /**
+     * Read the query file and build the search URL of each line
+     */
+    private List<String> readSearchUrls(File queryFile) throws IOException {
+        List<String> urls = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(queryFile), Charset.forName("UTF-8")));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                int tab = line.indexOf('\t');
+                String title = (tab < 0) ? line : line.substring(0, tab);
+                String author = (tab < 0) ? "" : line.substring(tab + 1);
+                urls.add(buildSearchUrl(title, author));
+            }
+        } finally {
+            reader.close();
+        }
+        return urls;
+    }
+
+    /**
+     * Build the canonical search URL the app sends for a title and author
+     */
+    private String buildSearchUrl(String title, String author) {
+        return new BookQuery.Builder()
+                .setTitle(title)
+                .setAuthor(author)
+                .setOrderBy(mOrderBy)
+                .build()
+                .getSearchUrl(mBaseUrl);
+    }
+
+    private void printReport(PrintStream out, int searchCount, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long[] searchLatencies = mSearchLatencies.getSortedSamples();
+        long requestCount = mMetrics.getStageLatencies(FetchListener.Stage.RESPONSE)
+                .getSortedSamples().length;
+        long[] parseLatencies = mMetrics.getStageLatencies(FetchListener.Stage.PARSE)
+                .getSortedSamples();
+
+        out.println(String.format(Locale.US, "Searches:      %d in %.2f s, %d threads",
+                searchCount, seconds, mConcurrency));
+        out.println(String.format(Locale.US, "Throughput:    %.1f searches/s, %.1f requests/s",
+                searchCount / seconds, requestCount / seconds));
+        out.println(String.format(Locale.US,
+                "Requests:      %d sent, %d coalesced, %d errors, %d empty results",
+                requestCount, QueryUtils.getCoalescedRequestCount(), mMetrics.getErrorCount(),
+                mEmptyResults.get()));
+        out.println(String.format(Locale.US, "Resilience:    %d retries, %s",
+                QueryUtils.getRetryCount(), QueryUtils.getCircuitBreaker()));
+        if (mHedge) {
+            out.println(String.format(Locale.US, "Hedging:       %d hedges sent, %d won",
+                    QueryUtils.getHedgeCount(), QueryUtils.getHedgeWinCount()));
+        }
+        out.println();
+
+        out.println(String.format(Locale.US, "%-14s %8s %9s %9s %9s %9s",
+                "Latency (ms)", "count", "p50", "p90", "p99", "max"));
+        printLatencies(out, "search", searchLatencies);
+        for (FetchListener.Stage stage : FetchListener.Stage.values()) {
+            printLatencies(out, stage.name().toLowerCase(Locale.US),
+                    mMetrics.getStageLatencies(stage).getSortedSamples());
+        }
+        out.println();
+
+        long allocatedBytes = mMetrics.getParseAllocatedBytes();
+        if (allocatedBytes < 0) {
+            out.println("Parse allocations: not measured on this JVM");
+        } else {
+            out.println(String.format(Locale.US, "Parse allocations: %.1f MB total, %.1f KB per parse",
+                    allocatedBytes / (1024.0 * 1024.0),
+                    (parseLatencies.length > 0) ? allocatedBytes / 1024.0 / parseLatencies.length : 0));
+        }
+    }
+
+    private static void printLatencies(PrintStream out, String name, long[] sortedSamples) {
+        StringBuilder line = new StringBuilder(String.format(Locale.US, "%-14s %8d",
+                name, sortedSamples.length));
+        for (double percentile : PERCENTILES) {
+            line.append(String.format(Locale.US, " %9.2f",
+                    LatencyRecorder.percentile(sortedSamples, percentile) / 1e6));
+        }
+        line.append(String.format(Locale.US, " %9.2f",
+                (sortedSamples.length > 0) ? sortedSamples[sortedSamples.length - 1] / 1e6 : 0));
+        out.println(line);
+    }
+
+    /**
+     * Logs the errors of the engine to the console when verbose, and nothing else
+     */
+    private static final class ConsoleLogger implements Logger {
+
+        private final boolean mVerbose;
+
+        ConsoleLogger(boolean verbose) {
+            mVerbose = verbose;
+        }
+
+        @Override
+        public void debug(String tag, String message) {
+        }
+
+        @Override
+        public void warn(String tag, String message, Throwable error) {
+        }
+
+        @Override
+        public void error(String tag, String message, Throwable error) {
+            if (mVerbose) {
+                System.err.println(tag + ": " + message + ((error != null) ? " - " + error : ""));
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.android.bookfinder.cli;
+
+import java.util.Arrays;
+
+/**
+ * Records latencies from any number of threads and reports their percentiles.
+ * Every sample is kept, so the percentiles are exact.
+ */
+
+final class LatencyRecorder {
+
+    private long[] mSamples = new long[1024];
+    private int mCount;
+
+    /**
+     * Record one latency
+     * @param nanos - Latency, in nanoseconds
+     */
+    synchronized void record(long nanos) {
+        if (mCount == mSamples.length) {
+            mSamples = Arrays.copyOf(mSamples, mCount * 2);
+        }
+        mSamples[mCount++] = nanos;
+    }
+
+    /**
+     * Return the latencies recorded so far, sorted from the fastest
+     */
+    synchronized long[] getSortedSamples() {
+        long[] samples = Arrays.copyOf(mSamples, mCount);
+        Arrays.sort(samples);
+        return samples;
+    }
+
+    /**
+     * Return a percentile of sorted latencies, by the nearest-rank method
+     * @param sortedSamples - Latencies sorted from the fastest
+     * @param percentile - Percentile (e.g. 99)
+     * @return latency, or 0 if there is none
+     */
+    static long percentile(long[] sortedSamples, double percentile) {
+        if (sortedSamples.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sortedSamples.length);
+        return sortedSamples[Math.max(0, Math.min(rank, sortedSamples.length) - 1)];
+    }
+}
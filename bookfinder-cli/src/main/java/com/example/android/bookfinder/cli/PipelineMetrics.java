@@ -0,0 +1,87 @@
+package com.example.android.bookfinder.cli;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import utilities.ErrorReporter;
+import utilities.FetchListener;
+
+/**
+ * Measures the fetch-parse pipeline while a batch runs: the latency of each stage of the
+ * requests, the bytes allocated while parsing responses and the errors reported by the engine.
+ * Allocations are only measured on JVMs that count the bytes allocated by each thread.
+ */
+
+final class PipelineMetrics implements FetchListener, ErrorReporter {
+
+    private final Map<Stage, LatencyRecorder> mStageLatencies = new EnumMap<>(Stage.class);
+    private final AtomicLong mParseAllocatedBytes = new AtomicLong();
+    private final AtomicLong mErrorCount = new AtomicLong();
+
+    /** Bytes allocated by the thread when its current parse started */
+    private final ThreadLocal<Long> mParseStartBytes = new ThreadLocal<>();
+
+    /** Counts the bytes allocated by each thread, null if the JVM can't */
+    private final com.sun.management.ThreadMXBean mThreadBean;
+
+    PipelineMetrics() {
+        for (Stage stage : Stage.values()) {
+            mStageLatencies.put(stage, new LatencyRecorder());
+        }
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threadBean).isThreadAllocatedMemorySupported()) {
+            mThreadBean = (com.sun.management.ThreadMXBean) threadBean;
+            mThreadBean.setThreadAllocatedMemoryEnabled(true);
+        } else {
+            mThreadBean = null;
+        }
+    }
+
+    @Override
+    public void onStageStarted(Stage stage) {
+        if (stage == Stage.PARSE && mThreadBean != null) {
+            mParseStartBytes.set(currentThreadAllocatedBytes());
+        }
+    }
+
+    @Override
+    public void onStageFinished(Stage stage, long elapsedNanos) {
+        mStageLatencies.get(stage).record(elapsedNanos);
+
+        if (stage == Stage.PARSE && mThreadBean != null) {
+            Long startBytes = mParseStartBytes.get();
+            if (startBytes != null) {
+                mParseAllocatedBytes.addAndGet(currentThreadAllocatedBytes() - startBytes);
+                mParseStartBytes.remove();
+            }
+        }
+    }
+
+    @Override
+    public void report(String tag, String message, Throwable error) {
+        mErrorCount.incrementAndGet();
+    }
+
+    /** Getter method - Latencies of a stage */
+    LatencyRecorder getStageLatencies(Stage stage) {
+        return mStageLatencies.get(stage);
+    }
+
+    /** Getter method - Bytes allocated while parsing, or -1 if they couldn't be measured */
+    long getParseAllocatedBytes() {
+        return (mThreadBean != null) ? mParseAllocatedBytes.get() : -1;
+    }
+
+    /** Getter method - Number of errors reported by the engine */
+    long getErrorCount() {
+        return mErrorCount.get();
+    }
+
+    private long currentThreadAllocatedBytes() {
+        return mThreadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -7,6 +7,9 @@ package com.example.android.bookfinder;
 
 public class Book {
 
+    /** Volume Id */
+    private String mId;
+
     /** Book Title */
     private String mTitle;
 
@@ -58,6 +61,7 @@ public class Book {
 
     /**
      * Default Constructor - Constructs a new {@link Book} object
+     * @param id - Google Books volume id of the book (e.g. zrt1BQAAQBAJ)
      * @param title - Title of the book
      * @param author - Author of the book
      * @param publishedDate - Date the book was published
@@ -75,12 +79,13 @@ public class Book {
      * @param thumbnailLink - Link for the book image
      * @param previewLink - Link for the book preview
      */
-    public Book(String title, String author, String publishedDate, String categories,
+    public Book(String id, String title, String author, String publishedDate, String categories,
                 String language, int pageCount, String printType, double retailPrice,
                 String currencyCode, String buyingLink, boolean isEpubAvailable,
                 boolean isPdfAvailable, double rating, String description, String thumbnailLink,
                 String previewLink) {
 
+        mId = id;
         mTitle = title;
         mAuthor = author;
         mPublishedDate = publishedDate;
@@ -100,6 +105,16 @@ public class Book {
     }
 
 
+    /** Getter method - Volume Id */
+    public String getId() {
+        return mId;
+    }
+
+    /** Setter method - Volume Id */
+    public void setId(String id) {
+        mId = id;
+    }
+
     /** Getter method - Title */
     public String getTitle() {
         return mTitle;
@@ -0,0 +1,197 @@
+package com.example.android.bookfinder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact, column-oriented copy of a list of {@link Book}s, used to keep many books resident.
+ * Each field is stored in its own array rather than in one object per book: strings that repeat
+ * across books (author, category, language, print type and currency code) are dictionary-encoded
+ * as 16-bit codes into a single table, and numbers and flags live in primitive arrays.
+ * A {@link Book} is only created again when it is read back with {@link #get(int)}.
+ */
+
+public final class BookBatch {
+
+    // Estimated sizes used to account for the memory held by a batch
+    private static final int BYTES_PER_OBJECT = 16;
+    private static final int BYTES_PER_ARRAY = 16;
+    private static final int BYTES_PER_REFERENCE = 4;
+    private static final int BYTES_PER_STRING = 24 + 16;
+
+    /** Code of a missing value in the dictionary-encoded columns */
+    private static final char NO_VALUE = Character.MAX_VALUE;
+
+    /** Number of dictionary-encoded columns */
+    private static final int ENCODED_COLUMNS = 5;
+
+    /** Largest number of books in a batch, so every dictionary code fits in a char */
+    public static final int MAX_SIZE = NO_VALUE / ENCODED_COLUMNS;
+
+    // Bits of the flags column
+    private static final byte FLAG_EPUB = 1;
+    private static final byte FLAG_PDF = 1 << 1;
+
+    private final int mSize;
+
+    // Values unique to each book
+    private final String[] mIds;
+    private final String[] mTitles;
+    private final String[] mPublishedDates;
+    private final String[] mBuyingLinks;
+    private final String[] mDescriptions;
+    private final String[] mThumbnailLinks;
+    private final String[] mPreviewLinks;
+
+    // Dictionary-encoded values, as indexes into mDictionary
+    private final String[] mDictionary;
+    private final char[] mAuthors;
+    private final char[] mCategories;
+    private final char[] mLanguages;
+    private final char[] mPrintTypes;
+    private final char[] mCurrencyCodes;
+
+    // Numbers and flags
+    private final int[] mPageCounts;
+    private final double[] mRetailPrices;
+    private final double[] mRatings;
+    private final byte[] mFlags;
+
+    /**
+     * Constructs a new {@link BookBatch} object holding the given books
+     * @param books - Books to copy, in order; at most {@link #MAX_SIZE}
+     */
+    public BookBatch(List<Book> books) {
+        if (books.size() > MAX_SIZE) {
+            throw new IllegalArgumentException("Too many books for one batch: " + books.size());
+        }
+        mSize = books.size();
+
+        mIds = new String[mSize];
+        mTitles = new String[mSize];
+        mPublishedDates = new String[mSize];
+        mBuyingLinks = new String[mSize];
+        mDescriptions = new String[mSize];
+        mThumbnailLinks = new String[mSize];
+        mPreviewLinks = new String[mSize];
+
+        mAuthors = new char[mSize];
+        mCategories = new char[mSize];
+        mLanguages = new char[mSize];
+        mPrintTypes = new char[mSize];
+        mCurrencyCodes = new char[mSize];
+
+        mPageCounts = new int[mSize];
+        mRetailPrices = new double[mSize];
+        mRatings = new double[mSize];
+        mFlags = new byte[mSize];
+
+        Map<String, Character> codes = new HashMap<>();
+        List<String> dictionary = new ArrayList<>();
+
+        for (int i = 0; i < mSize; i++) {
+            Book book = books.get(i);
+
+            mIds[i] = book.getId();
+            mTitles[i] = book.getTitle();
+            mPublishedDates[i] = book.getPublishedDate();
+            mBuyingLinks[i] = book.getBuyingLink();
+            mDescriptions[i] = book.getDescription();
+            mThumbnailLinks[i] = book.getThumbnailLink();
+            mPreviewLinks[i] = book.getPreviewlLink();
+
+            mAuthors[i] = encode(book.getAuthor(), codes, dictionary);
+            mCategories[i] = encode(book.getCategories(), codes, dictionary);
+            mLanguages[i] = encode(book.getLanguage(), codes, dictionary);
+            mPrintTypes[i] = encode(book.getPrintType(), codes, dictionary);
+            mCurrencyCodes[i] = encode(book.getCurrencyCode(), codes, dictionary);
+
+            mPageCounts[i] = book.getPageCount();
+            mRetailPrices[i] = book.getRetailPrice();
+            mRatings[i] = book.getRating();
+            mFlags[i] = (byte) ((book.isTagEpub() ? FLAG_EPUB : 0) | (book.isTagPdf() ? FLAG_PDF : 0));
+        }
+
+        mDictionary = dictionary.toArray(new String[dictionary.size()]);
+    }
+
+    /** Getter method - Number of books in the batch */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Create the {@link Book} at the given position of the batch
+     */
+    public Book get(int index) {
+        return new Book(mIds[index], mTitles[index], decode(mAuthors[index]),
+                mPublishedDates[index], decode(mCategories[index]), decode(mLanguages[index]),
+                mPageCounts[index], decode(mPrintTypes[index]), mRetailPrices[index],
+                decode(mCurrencyCodes[index]), mBuyingLinks[index],
+                (mFlags[index] & FLAG_EPUB) != 0, (mFlags[index] & FLAG_PDF) != 0,
+                mRatings[index], mDescriptions[index], mThumbnailLinks[index], mPreviewLinks[index]);
+    }
+
+    /**
+     * Create a list of every {@link Book} of the batch, in order
+     */
+    public List<Book> toList() {
+        List<Book> books = new ArrayList<>(mSize);
+        for (int i = 0; i < mSize; i++) {
+            books.add(get(i));
+        }
+        return books;
+    }
+
+    /**
+     * Estimate the heap used by the batch, counting each dictionary value once
+     */
+    public long estimateSize() {
+        long size = BYTES_PER_OBJECT + 17 * BYTES_PER_REFERENCE + 17 * BYTES_PER_ARRAY;
+
+        // Reference, code and primitive columns
+        size += (long) mSize * (7 * BYTES_PER_REFERENCE + ENCODED_COLUMNS * 2 + 4 + 8 + 8 + 1);
+        size += (long) mDictionary.length * BYTES_PER_REFERENCE;
+
+        for (int i = 0; i < mSize; i++) {
+            size += estimateSize(mIds[i]);
+            size += estimateSize(mTitles[i]);
+            size += estimateSize(mPublishedDates[i]);
+            size += estimateSize(mBuyingLinks[i]);
+            size += estimateSize(mDescriptions[i]);
+            size += estimateSize(mThumbnailLinks[i]);
+            size += estimateSize(mPreviewLinks[i]);
+        }
+        for (String value : mDictionary) {
+            size += estimateSize(value);
+        }
+        return size;
+    }
+
+    private static long estimateSize(String value) {
+        return (value != null) ? BYTES_PER_STRING + 2L * value.length() : 0;
+    }
+
+    /**
+     * Return the code of a value, adding it to the dictionary if it is new
+     */
+    private static char encode(String value, Map<String, Character> codes, List<String> dictionary) {
+        if (value == null) {
+            return NO_VALUE;
+        }
+
+        Character code = codes.get(value);
+        if (code == null) {
+            code = (char) dictionary.size();
+            codes.put(value, code);
+            dictionary.add(value);
+        }
+        return code;
+    }
+
+    private String decode(char code) {
+        return (code == NO_VALUE) ? null : mDictionary[code];
+    }
+}
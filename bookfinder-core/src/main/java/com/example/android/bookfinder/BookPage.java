@@ -0,0 +1,101 @@
+package com.example.android.bookfinder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link BookPage} object holds one page of search results, as returned by a single
+ * request to the Google Books API, along with the paging details needed to fetch the next page
+ */
+
+public class BookPage {
+
+    /** Books on this page */
+    private List<Book> mBooks;
+
+    /** Index of the first book of this page within the whole result set */
+    private int mStartIndex;
+
+    /** Number of books requested for this page */
+    private int mPageSize;
+
+    /** Total number of books matching the search, as reported by the API */
+    private int mTotalItems;
+
+    /** True if the request for this page failed, so it holds no books but more may follow */
+    private boolean mFailed;
+
+    /**
+     * Default Constructor - Constructs a new {@link BookPage} object
+     * @param books - Books returned for this page
+     * @param startIndex - Index of the first book of this page (e.g. 0, 20, 40)
+     * @param pageSize - Number of books requested for this page (e.g. 20)
+     * @param totalItems - Total number of books matching the search (e.g. 1423)
+     */
+    public BookPage(List<Book> books, int startIndex, int pageSize, int totalItems) {
+        this(books, startIndex, pageSize, totalItems, false);
+    }
+
+    /**
+     * Constructs a new {@link BookPage} object, which may stand for a failed request
+     * @param failed - True if the request for the page failed
+     */
+    protected BookPage(List<Book> books, int startIndex, int pageSize, int totalItems,
+                       boolean failed) {
+        mBooks = (books != null) ? books : new ArrayList<Book>();
+        mStartIndex = startIndex;
+        mPageSize = pageSize;
+        mTotalItems = totalItems;
+        mFailed = failed;
+    }
+
+    /**
+     * Create the empty page returned when the request for a page fails or is canceled,
+     * told apart from a page past the end of the results so it can be requested again
+     * @param startIndex - Index of the first book of the page requested
+     * @param pageSize - Number of books requested
+     */
+    public static BookPage createFailedPage(int startIndex, int pageSize) {
+        return new BookPage(null, startIndex, pageSize, 0, true);
+    }
+
+    /** Getter method - Books */
+    public List<Book> getBooks() {
+        return mBooks;
+    }
+
+    /** Getter method - Start Index */
+    public int getStartIndex() {
+        return mStartIndex;
+    }
+
+    /** Getter method - Page Size */
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    /** Getter method - Total Items */
+    public int getTotalItems() {
+        return mTotalItems;
+    }
+
+    /** Getter method - True if the request for this page failed */
+    public boolean isFailed() {
+        return mFailed;
+    }
+
+    /** Start index of the page that follows this one */
+    public int getNextStartIndex() {
+        return mStartIndex + mPageSize;
+    }
+
+    /**
+     * Method to check if more books are available after this page.
+     * An empty page ends paging, as the API's totalItems is only an estimate;
+     * a failed page doesn't, but it is requested again rather than followed.
+     * @return true/false
+     */
+    public boolean hasMore() {
+        return !mBooks.isEmpty() && getNextStartIndex() < mTotalItems;
+    }
+}
@@ -0,0 +1,295 @@
+package com.example.android.bookfinder;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+import utilities.BookResultCache;
+
+/**
+ * A {@link BookQuery} object is the canonical form of a title and author search, along with
+ * the settings it is sent with. Searches differing only by case, spacing or Unicode form
+ * (e.g. "Tolkien", " tolkien" and "TOLKIEN") build equal queries, with the same request URL
+ * and cache key, so the caches and request coalescing see them as one search.
+ * Queries are immutable and built with a {@link Builder}.
+ */
+
+public final class BookQuery {
+
+    /** Volumes endpoint of the Google Books API */
+    public static final String DEFAULT_BASE_URL = "https://www.googleapis.com/books/v1/volumes";
+
+    // Order By values accepted by the API
+    public static final String ORDER_BY_RELEVANCE = "relevance";
+    public static final String ORDER_BY_NEWEST = "newest";
+
+    // Search prefixes restricting a word to the title or the author
+    private static final String PREFIX_TITLE = "intitle:";
+    private static final String PREFIX_AUTHOR = "inauthor:";
+
+    // Google Book API request parameters, in the order they are sent
+    private static final String API_PARAM_QUERY = "q";
+    private static final String API_PARAM_ORDER_BY = "orderBy";
+
+    /** Any run of whitespace, including Unicode spaces */
+    private static final Pattern WHITESPACE = Pattern.compile("[\\s\\p{Z}]+");
+
+    private final String mTitle;
+    private final String mAuthor;
+    private final String mOrderBy;
+    private final int mPageSize;
+    private final int mStartIndex;
+
+    private BookQuery(String title, String author, String orderBy, int pageSize, int startIndex) {
+        mTitle = title;
+        mAuthor = author;
+        mOrderBy = orderBy;
+        mPageSize = pageSize;
+        mStartIndex = startIndex;
+    }
+
+    /** Getter method - Canonical title searched, e.g. lord of the rings */
+    public String getTitle() {
+        return mTitle;
+    }
+
+    /** Getter method - Canonical author searched, empty if there is none */
+    public String getAuthor() {
+        return mAuthor;
+    }
+
+    /** Getter method - Order By setting, relevance or newest */
+    public String getOrderBy() {
+        return mOrderBy;
+    }
+
+    /** Getter method - Number of books requested, which is the Max Results setting */
+    public int getPageSize() {
+        return mPageSize;
+    }
+
+    /** Getter method - Index of the first book requested */
+    public int getStartIndex() {
+        return mStartIndex;
+    }
+
+    /**
+     * Return true if there is neither a title nor an author to search
+     */
+    public boolean isEmpty() {
+        return mTitle.isEmpty() && mAuthor.isEmpty();
+    }
+
+    /**
+     * Return the search terms of the q parameter, e.g. intitle:lord of the rings inauthor:tolkien
+     */
+    public String getSearchTerms() {
+        StringBuilder terms = new StringBuilder();
+        if (!mTitle.isEmpty()) {
+            terms.append(PREFIX_TITLE).append(mTitle);
+        }
+        if (!mAuthor.isEmpty()) {
+            if (terms.length() > 0) {
+                terms.append(' ');
+            }
+            terms.append(PREFIX_AUTHOR).append(mAuthor);
+        }
+        return terms.toString();
+    }
+
+    /**
+     * Return the search URL sent to the Google Books API, without paging parameters
+     */
+    public String getSearchUrl() {
+        return getSearchUrl(DEFAULT_BASE_URL);
+    }
+
+    /**
+     * Return the search URL without paging parameters, which are added by
+     * {@link utilities.QueryUtils#fetchBookPage(String, int, int)}.
+     * Parameters are encoded and always in the same order.
+     * @param baseUrl - Volumes endpoint, e.g. of a stub server
+     */
+    public String getSearchUrl(String baseUrl) {
+        return baseUrl
+                + '?' + API_PARAM_QUERY + '=' + encode(getSearchTerms())
+                + '&' + API_PARAM_ORDER_BY + '=' + encode(mOrderBy);
+    }
+
+    /**
+     * Return the key of the page of this query in the {@link BookResultCache}
+     */
+    public BookResultCache.Key getCacheKey() {
+        return new BookResultCache.Key(mTitle, mAuthor, mOrderBy, mPageSize, mStartIndex);
+    }
+
+    /**
+     * Return a builder of the same query, e.g. to request another page of it
+     */
+    public Builder buildUpon() {
+        return new Builder()
+                .setTitle(mTitle)
+                .setAuthor(mAuthor)
+                .setOrderBy(mOrderBy)
+                .setPageSize(mPageSize)
+                .setStartIndex(mStartIndex);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof BookQuery)) {
+            return false;
+        }
+
+        BookQuery query = (BookQuery) other;
+        return mPageSize == query.mPageSize
+                && mStartIndex == query.mStartIndex
+                && mTitle.equals(query.mTitle)
+                && mAuthor.equals(query.mAuthor)
+                && mOrderBy.equals(query.mOrderBy);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mTitle.hashCode();
+        result = 31 * result + mAuthor.hashCode();
+        result = 31 * result + mOrderBy.hashCode();
+        result = 31 * result + mPageSize;
+        result = 31 * result + mStartIndex;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return getSearchTerms() + " (" + mOrderBy + ", " + mStartIndex + "+" + mPageSize + ")";
+    }
+
+    /**
+     * Normalize text as typed by the user: Unicode compatibility form (e.g. full-width letters
+     * and ligatures become plain letters), lower case, and single spaces between words
+     * @return normalized text, empty if there is none
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        return WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // Every JVM supports UTF-8
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * Builds a {@link BookQuery} from the text typed by the user and the settings
+     */
+    public static final class Builder {
+
+        private String mTitle;
+        private String mAuthor;
+        private String mOrderBy;
+        private int mPageSize;
+        private int mStartIndex;
+
+        /** Setter method - Book title as typed, may be null */
+        public Builder setTitle(String title) {
+            mTitle = title;
+            return this;
+        }
+
+        /** Setter method - Book author as typed, may be null */
+        public Builder setAuthor(String author) {
+            mAuthor = author;
+            return this;
+        }
+
+        /** Setter method - Order By setting; anything but newest orders by relevance */
+        public Builder setOrderBy(String orderBy) {
+            mOrderBy = orderBy;
+            return this;
+        }
+
+        /** Setter method - Number of books to request, 0 to leave it to the API */
+        public Builder setPageSize(int pageSize) {
+            mPageSize = pageSize;
+            return this;
+        }
+
+        /** Setter method - Index of the first book to request */
+        public Builder setStartIndex(int startIndex) {
+            mStartIndex = startIndex;
+            return this;
+        }
+
+        /**
+         * Build the canonical query.
+         * Words typed with an intitle: or inauthor: prefix are searched in the field they name,
+         * whichever box they were typed in.
+         * @throws IllegalArgumentException if the page size or start index is negative
+         */
+        public BookQuery build() {
+            if (mPageSize < 0 || mStartIndex < 0) {
+                throw new IllegalArgumentException("Negative page size or start index");
+            }
+
+            List<String> titleWords = new ArrayList<>();
+            List<String> authorWords = new ArrayList<>();
+            splitWords(normalize(mTitle), titleWords, titleWords, authorWords);
+            splitWords(normalize(mAuthor), authorWords, titleWords, authorWords);
+
+            String orderBy = ORDER_BY_NEWEST.equals(normalize(mOrderBy))
+                    ? ORDER_BY_NEWEST
+                    : ORDER_BY_RELEVANCE;
+
+            return new BookQuery(join(titleWords), join(authorWords), orderBy, mPageSize,
+                    mStartIndex);
+        }
+
+        /**
+         * Add the words of normalized text to the title or author words: words with a prefix go
+         * to the field it names, without the prefix, and the others to the default words
+         */
+        private static void splitWords(String text, List<String> defaultWords,
+                                       List<String> titleWords, List<String> authorWords) {
+            if (text.isEmpty()) {
+                return;
+            }
+            for (String word : text.split(" ")) {
+                List<String> words = defaultWords;
+                if (word.startsWith(PREFIX_TITLE)) {
+                    word = word.substring(PREFIX_TITLE.length());
+                    words = titleWords;
+                } else if (word.startsWith(PREFIX_AUTHOR)) {
+                    word = word.substring(PREFIX_AUTHOR.length());
+                    words = authorWords;
+                }
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+
+        private static String join(List<String> words) {
+            StringBuilder text = new StringBuilder();
+            for (String word : words) {
+                if (text.length() > 0) {
+                    text.append(' ');
+                }
+                text.append(word);
+            }
+            return text.toString();
+        }
+    }
+}
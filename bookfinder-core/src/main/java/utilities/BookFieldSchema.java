@@ -0,0 +1,237 @@
+package utilities;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Declares, in one place, every field of the Google Books API volumes response the app uses.
+ * The same schema generates the partial-response "fields" request parameter and drives
+ * {@link BookStreamParser}, so the request and the parser can't drift apart: a field added
+ * here is both requested from the API and read into the {@link Slot} it is bound to.
+ */
+
+public final class BookFieldSchema {
+
+    // Google Book API Keys
+    public static final String KEY_TOTAL_ITEMS = "totalItems";
+    public static final String KEY_ITEMS = "items";
+    public static final String KEY_ID = "id";
+    public static final String KEY_VOLUMEINFO = "volumeInfo";
+    public static final String KEY_TITLE = "title";
+    public static final String KEY_AUTHORS = "authors";
+    public static final String KEY_PUBLISHED_DATE = "publishedDate";
+    public static final String KEY_CATEGORIES = "categories";
+    public static final String KEY_PAGECOUNT = "pageCount";
+    public static final String KEY_LANGUAGE = "language";
+    public static final String KEY_PREVIEWLINK = "previewLink";
+    public static final String KEY_PRINT_TYPE = "printType";
+    public static final String KEY_RATING = "averageRating";
+    public static final String KEY_DESCRIPTION = "description";
+    public static final String KEY_IMAGELINKS = "imageLinks";
+    public static final String KEY_THUMBNAIL = "smallThumbnail";
+
+    public static final String KEY_SALEINFO = "saleInfo";
+    public static final String KEY_RETAIL_PRICE = "retailPrice";
+    public static final String KEY_AMOUNT = "amount";
+    public static final String KEY_CURRENCY = "currencyCode";
+    public static final String KEY_BUYLINK = "buyLink";
+
+    public static final String KEY_ACCESSINFO = "accessInfo";
+    public static final String KEY_EPUB = "epub";
+    public static final String KEY_PDF = "pdf";
+    public static final String KEY_ISAVAILABLE = "isAvailable";
+
+    /**
+     * Destination of a leaf field within a book, along with the JSON type it is read as
+     * and whether its values repeat across books often enough to be pooled
+     */
+    public enum Slot {
+        TOTAL_ITEMS(Type.INT, false),
+        ID(Type.STRING, false),
+        TITLE(Type.STRING, false),
+        AUTHORS(Type.STRING_LIST_JOINED, true),
+        PUBLISHED_DATE(Type.STRING, false),
+        CATEGORY(Type.STRING_LIST_FIRST, true),
+        PAGE_COUNT(Type.INT, false),
+        LANGUAGE(Type.STRING, true),
+        PREVIEW_LINK(Type.STRING, false),
+        PRINT_TYPE(Type.STRING, true),
+        RATING(Type.DOUBLE, false),
+        DESCRIPTION(Type.STRING, false),
+        THUMBNAIL_LINK(Type.STRING, false),
+        RETAIL_PRICE(Type.DOUBLE, false),
+        CURRENCY_CODE(Type.STRING, true),
+        BUYING_LINK(Type.STRING, false),
+        EPUB_AVAILABLE(Type.BOOLEAN, false),
+        PDF_AVAILABLE(Type.BOOLEAN, false);
+
+        private final Type mType;
+        private final boolean mIsPooled;
+
+        Slot(Type type, boolean isPooled) {
+            mType = type;
+            mIsPooled = isPooled;
+        }
+
+        /** Getter method - JSON type of the field */
+        public Type getType() {
+            return mType;
+        }
+
+        /** Method to check if the values of the field are low-cardinality and pooled */
+        public boolean isPooled() {
+            return mIsPooled;
+        }
+    }
+
+    /**
+     * JSON types of the leaf fields
+     */
+    public enum Type {
+        STRING, INT, DOUBLE, BOOLEAN,
+        /** Array of strings joined with a comma */
+        STRING_LIST_JOINED,
+        /** Array of strings of which only the first is kept */
+        STRING_LIST_FIRST
+    }
+
+    /** The fields of a single volume within the items array */
+    public static final Field VOLUME = object(null,
+            leaf(KEY_ID, Slot.ID),
+            object(KEY_VOLUMEINFO,
+                    leaf(KEY_TITLE, Slot.TITLE),
+                    leaf(KEY_AUTHORS, Slot.AUTHORS),
+                    leaf(KEY_PUBLISHED_DATE, Slot.PUBLISHED_DATE),
+                    leaf(KEY_CATEGORIES, Slot.CATEGORY),
+                    leaf(KEY_PAGECOUNT, Slot.PAGE_COUNT),
+                    leaf(KEY_LANGUAGE, Slot.LANGUAGE),
+                    leaf(KEY_PREVIEWLINK, Slot.PREVIEW_LINK),
+                    leaf(KEY_PRINT_TYPE, Slot.PRINT_TYPE),
+                    leaf(KEY_RATING, Slot.RATING),
+                    leaf(KEY_DESCRIPTION, Slot.DESCRIPTION),
+                    object(KEY_IMAGELINKS,
+                            leaf(KEY_THUMBNAIL, Slot.THUMBNAIL_LINK))),
+            object(KEY_SALEINFO,
+                    object(KEY_RETAIL_PRICE,
+                            leaf(KEY_AMOUNT, Slot.RETAIL_PRICE),
+                            leaf(KEY_CURRENCY, Slot.CURRENCY_CODE)),
+                    leaf(KEY_BUYLINK, Slot.BUYING_LINK)),
+            object(KEY_ACCESSINFO,
+                    object(KEY_EPUB,
+                            leaf(KEY_ISAVAILABLE, Slot.EPUB_AVAILABLE)),
+                    object(KEY_PDF,
+                            leaf(KEY_ISAVAILABLE, Slot.PDF_AVAILABLE))));
+
+    /** The fields of the whole response */
+    public static final Field RESPONSE = object(null,
+            leaf(KEY_TOTAL_ITEMS, Slot.TOTAL_ITEMS),
+            array(KEY_ITEMS, VOLUME));
+
+    /** Value of the "fields" request parameter, generated once from {@link #RESPONSE} */
+    private static final String PROJECTION = RESPONSE.toProjection();
+
+    /**
+     * This is a private constructor and only meant to hold static variables and methods,
+     * which can be accessed directly from the class name BookFieldSchema
+     */
+    private BookFieldSchema() {
+    }
+
+    /**
+     * Return the partial-response projection for the schema,
+     * e.g. totalItems,items(volumeInfo(title,authors),saleInfo(buyLink))
+     */
+    public static String getProjection() {
+        return PROJECTION;
+    }
+
+    /**
+     * Return the projection URL-encoded, ready to be used as the "fields" parameter value
+     */
+    public static String getEncodedProjection() {
+        try {
+            return URLEncoder.encode(PROJECTION, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            return PROJECTION;
+        }
+    }
+
+    private static Field leaf(String key, Slot slot) {
+        return new Field(key, slot, false, new Field[0]);
+    }
+
+    private static Field object(String key, Field... children) {
+        return new Field(key, null, false, children);
+    }
+
+    private static Field array(String key, Field element) {
+        return new Field(key, null, true, element.mChildren.values().toArray(new Field[0]));
+    }
+
+    /**
+     * A field of the response: either a leaf bound to a {@link Slot}, or an object
+     * (or array of objects) with child fields
+     */
+    public static final class Field {
+
+        private final String mKey;
+        private final Slot mSlot;
+        private final boolean mIsArray;
+        private final Map<String, Field> mChildren;
+
+        private Field(String key, Slot slot, boolean isArray, Field[] children) {
+            mKey = key;
+            mSlot = slot;
+            mIsArray = isArray;
+
+            Map<String, Field> childMap = new LinkedHashMap<>();
+            for (Field child : children) {
+                childMap.put(child.mKey, child);
+            }
+            mChildren = Collections.unmodifiableMap(childMap);
+        }
+
+        /** Getter method - Key of the field in its parent object */
+        public String getKey() {
+            return mKey;
+        }
+
+        /** Getter method - Slot of a leaf field; null for objects and arrays */
+        public Slot getSlot() {
+            return mSlot;
+        }
+
+        /** Method to check if the field is an array of objects */
+        public boolean isArray() {
+            return mIsArray;
+        }
+
+        /**
+         * Return the child field with the given key
+         * @return child, or null if the key is not part of the schema
+         */
+        public Field getChild(String key) {
+            return mChildren.get(key);
+        }
+
+        /**
+         * Build the partial-response projection of this field's children
+         */
+        String toProjection() {
+            StringBuilder projection = new StringBuilder();
+            for (Field child : mChildren.values()) {
+                if (projection.length() > 0) {
+                    projection.append(',');
+                }
+                projection.append(child.mKey);
+                if (!child.mChildren.isEmpty()) {
+                    projection.append('(').append(child.toProjection()).append(')');
+                }
+            }
+            return projection.toString();
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package utilities;
+
+import com.example.android.bookfinder.BookBatch;
+import com.example.android.bookfinder.BookPage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide, memory-bounded cache of parsed search results, shared by every BookLoader.
+ * A repeated search is answered from memory without a network request or a JSON parse.
+ * Entries expire after a time-to-live, and the least recently used entries are evicted
+ * once the estimated size of the cached books exceeds the maximum size.
+ * Books are held in the compact {@link BookBatch} form, so more searches fit in the same size.
+ */
+
+public final class BookResultCache {
+
+    /** Default maximum estimated size of the cached books, in bytes */
+    private static final long DEFAULT_MAX_BYTES = 2 * 1024 * 1024;
+
+    /** Default time-to-live of an entry, in milliseconds */
+    private static final long DEFAULT_TTL_MILLIS = 10 * 60 * 1000;
+
+    /** Estimated size of an entry, not counting its books */
+    private static final int BYTES_PER_ENTRY = 64;
+
+    private static BookResultCache mInstance;
+
+    private final LinkedHashMap<Key, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private final long mMaxBytes;
+    private final long mTtlMillis;
+    private long mCurrentBytes;
+    private long mHitCount;
+    private long mMissCount;
+
+    /**
+     * Constructs a new {@link BookResultCache} object
+     * @param maxBytes - Maximum estimated size of the cached books
+     * @param ttlMillis - Time after which an entry is no longer served
+     */
+    public BookResultCache(long maxBytes, long ttlMillis) {
+        mMaxBytes = maxBytes;
+        mTtlMillis = ttlMillis;
+    }
+
+    /**
+     * Return the cache shared by the whole process
+     */
+    public static synchronized BookResultCache getInstance() {
+        if (mInstance == null) {
+            mInstance = new BookResultCache(DEFAULT_MAX_BYTES, DEFAULT_TTL_MILLIS);
+        }
+        return mInstance;
+    }
+
+    /**
+     * Return the cached page for the given search
+     * @return page, or null if it is not cached or has expired
+     */
+    public synchronized BookPage get(Key key) {
+        Entry entry = mEntries.get(key);
+
+        if (entry != null && System.currentTimeMillis() - entry.storedAt > mTtlMillis) {
+            mEntries.remove(key);
+            mCurrentBytes -= entry.size;
+            entry = null;
+        }
+
+        if (entry == null) {
+            mMissCount++;
+            return null;
+        }
+
+        mHitCount++;
+        return new BookPage(entry.books.toList(), entry.startIndex, entry.pageSize,
+                entry.totalItems);
+    }
+
+    /**
+     * Add a page to the cache, evicting the least recently used pages if needed
+     */
+    public synchronized void put(Key key, BookPage page) {
+        BookBatch books = new BookBatch(page.getBooks());
+        long size = BYTES_PER_ENTRY + books.estimateSize();
+        if (size > mMaxBytes) {
+            return;
+        }
+
+        Entry previous = mEntries.put(key, new Entry(books, page.getStartIndex(),
+                page.getPageSize(), page.getTotalItems(), size, System.currentTimeMillis()));
+        if (previous != null) {
+            mCurrentBytes -= previous.size;
+        }
+        mCurrentBytes += size;
+
+        Iterator<Map.Entry<Key, Entry>> iterator = mEntries.entrySet().iterator();
+        while (mCurrentBytes > mMaxBytes && iterator.hasNext()) {
+            mCurrentBytes -= iterator.next().getValue().size;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Remove every entry from the cache
+     */
+    public synchronized void clear() {
+        mEntries.clear();
+        mCurrentBytes = 0;
+    }
+
+    /** Getter method - Number of searches answered from the cache */
+    public synchronized long getHitCount() {
+        return mHitCount;
+    }
+
+    /** Getter method - Number of searches not found in the cache */
+    public synchronized long getMissCount() {
+        return mMissCount;
+    }
+
+    /** Getter method - Estimated size of the cached books, in bytes */
+    public synchronized long getSize() {
+        return mCurrentBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "BookResultCache[entries=" + mEntries.size() + ", bytes=" + mCurrentBytes
+                + ", hits=" + mHitCount + ", misses=" + mMissCount + "]";
+    }
+
+    /**
+     * Identifies a page of search results by the search parameters BookListActivity builds
+     */
+    public static final class Key {
+
+        private final String mTitle;
+        private final String mAuthor;
+        private final String mOrderBy;
+        private final int mMaxResults;
+        private final int mStartIndex;
+
+        /**
+         * Constructs a new {@link Key} object
+         * @param title - Book title searched
+         * @param author - Book author searched, may be empty
+         * @param orderBy - Order By preference (e.g. relevance)
+         * @param maxResults - Max Results preference, which is also the page size
+         * @param startIndex - Index of the first book of the page
+         */
+        public Key(String title, String author, String orderBy, int maxResults, int startIndex) {
+            mTitle = (title != null) ? title : "";
+            mAuthor = (author != null) ? author : "";
+            mOrderBy = (orderBy != null) ? orderBy : "";
+            mMaxResults = maxResults;
+            mStartIndex = startIndex;
+        }
+
+        /** Getter method - Book title searched */
+        public String getTitle() {
+            return mTitle;
+        }
+
+        /** Getter method - Book author searched */
+        public String getAuthor() {
+            return mAuthor;
+        }
+
+        /** Getter method - Order By preference */
+        public String getOrderBy() {
+            return mOrderBy;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) other;
+            return mMaxResults == key.mMaxResults
+                    && mStartIndex == key.mStartIndex
+                    && mTitle.equals(key.mTitle)
+                    && mAuthor.equals(key.mAuthor)
+                    && mOrderBy.equals(key.mOrderBy);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = mTitle.hashCode();
+            result = 31 * result + mAuthor.hashCode();
+            result = 31 * result + mOrderBy.hashCode();
+            result = 31 * result + mMaxResults;
+            result = 31 * result + mStartIndex;
+            return result;
+        }
+    }
+
+    /**
+     * A cached page with its estimated size and the time it was stored
+     */
+    private static final class Entry {
+        final BookBatch books;
+        final int startIndex;
+        final int pageSize;
+        final int totalItems;
+        final long size;
+        final long storedAt;
+
+        Entry(BookBatch books, int startIndex, int pageSize, int totalItems, long size,
+              long storedAt) {
+            this.books = books;
+            this.startIndex = startIndex;
+            this.pageSize = pageSize;
+            this.totalItems = totalItems;
+            this.size = size;
+            this.storedAt = storedAt;
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package utilities;
+
+import com.example.android.bookfinder.Book;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+
+/**
+ * Streaming parser for the Google Books API volumes response.
+ * Reads tokens directly from the {@link InputStream} and emits one {@link Book} at a time,
+ * so the response is never held on the heap as a String or as a JSON object tree.
+ * Only the fields declared in {@link BookFieldSchema} are read; everything else is skipped.
+ */
+
+public final class BookStreamParser implements Closeable {
+
+    /** Largest number of distinct low-cardinality values pooled */
+    private static final int MAX_POOLED_STRINGS = 2048;
+
+    /** Pool shared by every parser, so equal values in different responses share one instance */
+    private static final StringPool mStringPool = new StringPool(MAX_POOLED_STRINGS);
+
+    private final JsonReader mReader;
+
+    /** True once the reader is positioned inside the items array */
+    private boolean mInItems;
+
+    /** True once the whole response object has been consumed */
+    private boolean mFinished;
+
+    /** Total number of matching volumes reported by the API */
+    private int mTotalItems;
+
+    /**
+     * Constructs a new {@link BookStreamParser} reading UTF-8 JSON from the given stream
+     * @param inputStream - Response body of a volumes request
+     */
+    public BookStreamParser(InputStream inputStream) {
+        mReader = new JsonReader(new InputStreamReader(inputStream, Charset.forName("UTF-8")));
+    }
+
+    /**
+     * Read the next {@link Book} from the stream
+     * @return next book, or null when there are no more books in the response
+     */
+    public Book nextBook() throws IOException {
+        if (mFinished) {
+            return null;
+        }
+
+        if (!mInItems && !moveToItems()) {
+            return null;
+        }
+
+        if (mReader.hasNext()) {
+            return readBook();
+        }
+
+        // End of the items array - consume the rest of the response object
+        mReader.endArray();
+        mInItems = false;
+        finishResponse();
+        return null;
+    }
+
+    /**
+     * Total number of matching volumes as reported by the API. Only reliable once
+     * {@link #nextBook()} has returned null, as the key may follow the items array.
+     */
+    public int getTotalItems() {
+        return mTotalItems;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+
+    /**
+     * Advance the reader into the items array
+     * @return true if positioned inside the items array; false if the response has no items
+     */
+    private boolean moveToItems() throws IOException {
+        if (mReader.peek() == JsonToken.BEGIN_OBJECT) {
+            mReader.beginObject();
+        }
+
+        while (mReader.hasNext()) {
+            String name = mReader.nextName();
+            if (name.equals(BookFieldSchema.KEY_ITEMS) && mReader.peek() == JsonToken.BEGIN_ARRAY) {
+                mReader.beginArray();
+                mInItems = true;
+                return true;
+            } else if (name.equals(BookFieldSchema.KEY_TOTAL_ITEMS)) {
+                mTotalItems = mReader.nextInt();
+            } else {
+                mReader.skipValue();
+            }
+        }
+
+        mReader.endObject();
+        mFinished = true;
+        return false;
+    }
+
+    /**
+     * Consume any keys remaining after the items array
+     */
+    private void finishResponse() throws IOException {
+        while (mReader.hasNext()) {
+            String name = mReader.nextName();
+            if (name.equals(BookFieldSchema.KEY_TOTAL_ITEMS)) {
+                mTotalItems = mReader.nextInt();
+            } else {
+                mReader.skipValue();
+            }
+        }
+        mReader.endObject();
+        mFinished = true;
+    }
+
+    /**
+     * Read a single volume object and create a {@link Book} from the fields the app displays
+     */
+    private Book readBook() throws IOException {
+        BookFields fields = new BookFields();
+
+        readObject(BookFieldSchema.VOLUME, fields);
+
+        // Title is mandatory for a volume, as it is for the JSON object parser
+        if (fields.title == null) {
+            throw new IOException("Volume without " + BookFieldSchema.KEY_TITLE);
+        }
+
+        return new Book(
+                fields.id,
+                fields.title,
+                fields.authorList,
+                fields.publishedDate,
+                fields.category,
+                fields.language,
+                fields.pageCount,
+                fields.printType,
+                fields.amount,
+                fields.currencyCode,
+                fields.buyLink,
+                fields.isAvailableEpub,
+                fields.isAvailablePdf,
+                fields.averageRating,
+                fields.description,
+                fields.thumbnailLink,
+                fields.previewLink
+        );
+    }
+
+    /**
+     * Read an object, descending into the child objects the schema declares and
+     * reading its leaf fields into their slots. Keys outside the schema are skipped.
+     */
+    private void readObject(BookFieldSchema.Field schema, BookFields fields) throws IOException {
+        mReader.beginObject();
+        while (mReader.hasNext()) {
+            BookFieldSchema.Field field = schema.getChild(mReader.nextName());
+            if (field == null || mReader.peek() == JsonToken.NULL) {
+                mReader.skipValue();
+            } else if (field.getSlot() == null) {
+                readObject(field, fields);
+            } else {
+                readLeaf(field.getSlot(), fields);
+            }
+        }
+        mReader.endObject();
+    }
+
+    /**
+     * Read the value of a leaf field into its slot
+     */
+    private void readLeaf(BookFieldSchema.Slot slot, BookFields fields) throws IOException {
+        switch (slot.getType()) {
+            case STRING:
+                fields.set(slot, pool(slot, mReader.nextString()));
+                break;
+            case INT:
+                fields.set(slot, mReader.nextInt());
+                break;
+            case DOUBLE:
+                fields.set(slot, mReader.nextDouble());
+                break;
+            case BOOLEAN:
+                fields.set(slot, mReader.nextBoolean());
+                break;
+            case STRING_LIST_JOINED:
+                fields.set(slot, pool(slot, readJoinedStrings()));
+                break;
+            case STRING_LIST_FIRST:
+                fields.set(slot, pool(slot, readFirstString()));
+                break;
+        }
+    }
+
+    /**
+     * Return the pooled instance of a value if its field is low-cardinality
+     */
+    private static String pool(BookFieldSchema.Slot slot, String value) {
+        return slot.isPooled() ? mStringPool.intern(value) : value;
+    }
+
+    /**
+     * Read an array of strings, such as authors, and join multiple values with a comma
+     */
+    private String readJoinedStrings() throws IOException {
+        StringBuilder joined = new StringBuilder();
+        int count = 0;
+
+        mReader.beginArray();
+        while (mReader.hasNext()) {
+            if (count > 0) {
+                joined.append(", ");
+            }
+            joined.append(mReader.nextString());
+            count++;
+        }
+        mReader.endArray();
+
+        // Quotes are stripped from joined author lists, as the JSON object parser does
+        if (count > 1) {
+            return joined.toString().replace("\"", "");
+        }
+        return joined.toString();
+    }
+
+    /**
+     * Read an array of strings and return its first element
+     */
+    private String readFirstString() throws IOException {
+        String first = null;
+
+        mReader.beginArray();
+        while (mReader.hasNext()) {
+            if (first == null) {
+                first = mReader.nextString();
+            } else {
+                mReader.skipValue();
+            }
+        }
+        mReader.endArray();
+
+        if (first == null) {
+            throw new IOException("Empty array");
+        }
+        return first;
+    }
+
+    /**
+     * Holds the values of a single volume while its keys are being read,
+     * initialised to the defaults used when a key is missing
+     */
+    private static class BookFields {
+        String id = "";
+        String title;
+        String authorList = "";
+        String publishedDate = "";
+        String category = "";
+        String language = "";
+        String previewLink = "";
+        int pageCount = 0;
+        String printType = "";
+        double averageRating = 0.0;
+        String description = "";
+        String thumbnailLink = "";
+        double amount = 0.00;
+        String currencyCode = "";
+        String buyLink = "";
+        boolean isAvailableEpub = false;
+        boolean isAvailablePdf = false;
+
+        void set(BookFieldSchema.Slot slot, String value) {
+            switch (slot) {
+                case ID:
+                    id = value;
+                    break;
+                case TITLE:
+                    title = value;
+                    break;
+                case AUTHORS:
+                    authorList = value;
+                    break;
+                case PUBLISHED_DATE:
+                    publishedDate = value;
+                    break;
+                case CATEGORY:
+                    category = value;
+                    break;
+                case LANGUAGE:
+                    language = value;
+                    break;
+                case PREVIEW_LINK:
+                    previewLink = value;
+                    break;
+                case PRINT_TYPE:
+                    printType = value;
+                    break;
+                case DESCRIPTION:
+                    description = value;
+                    break;
+                case THUMBNAIL_LINK:
+                    thumbnailLink = value;
+                    break;
+                case CURRENCY_CODE:
+                    currencyCode = value;
+                    break;
+                case BUYING_LINK:
+                    buyLink = value;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        void set(BookFieldSchema.Slot slot, int value) {
+            if (slot == BookFieldSchema.Slot.PAGE_COUNT) {
+                pageCount = value;
+            }
+        }
+
+        void set(BookFieldSchema.Slot slot, double value) {
+            if (slot == BookFieldSchema.Slot.RATING) {
+                averageRating = value;
+            } else if (slot == BookFieldSchema.Slot.RETAIL_PRICE) {
+                amount = value;
+            }
+        }
+
+        void set(BookFieldSchema.Slot slot, boolean value) {
+            if (slot == BookFieldSchema.Slot.EPUB_AVAILABLE) {
+                isAvailableEpub = value;
+            } else if (slot == BookFieldSchema.Slot.PDF_AVAILABLE) {
+                isAvailablePdf = value;
+            }
+        }
+    }
+}
@@ -0,0 +1,273 @@
+package utilities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Shared HTTP client for the Google Books API.
+ * Connections are returned to the platform's keep-alive pool instead of being disconnected,
+ * so repeat searches reuse an open TCP/TLS connection, and responses are requested gzipped.
+ */
+
+public final class BooksHttpClient {
+
+    /** Default time allowed to establish a connection, in milliseconds */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 15000;
+
+    /** Default time allowed between two reads of the response, in milliseconds */
+    public static final int DEFAULT_READ_TIMEOUT = 10000;
+
+    /** Maximum number of idle connections kept alive per host */
+    private static final String MAX_IDLE_CONNECTIONS = "5";
+
+    /** Largest remainder read from a response body to keep its connection reusable */
+    private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String ENCODING_GZIP = "gzip";
+
+    private static BooksHttpClient mInstance;
+
+    private volatile int mConnectTimeout;
+    private volatile int mReadTimeout;
+
+    static {
+        // Keep-alive is on by default; make sure it hasn't been turned off and allow a few idle connections
+        System.setProperty("http.keepAlive", "true");
+        if (System.getProperty("http.maxConnections") == null) {
+            System.setProperty("http.maxConnections", MAX_IDLE_CONNECTIONS);
+        }
+    }
+
+    /**
+     * Constructs a new {@link BooksHttpClient} object
+     * @param connectTimeout - Time allowed to establish a connection, in milliseconds
+     * @param readTimeout - Time allowed between two reads of the response, in milliseconds
+     */
+    public BooksHttpClient(int connectTimeout, int readTimeout) {
+        mConnectTimeout = connectTimeout;
+        mReadTimeout = readTimeout;
+    }
+
+    /**
+     * Return the client shared by the whole process
+     */
+    public static synchronized BooksHttpClient getInstance() {
+        if (mInstance == null) {
+            mInstance = new BooksHttpClient(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+        }
+        return mInstance;
+    }
+
+    /** Setter method - Connect Timeout in milliseconds */
+    public void setConnectTimeout(int connectTimeout) {
+        mConnectTimeout = connectTimeout;
+    }
+
+    /** Setter method - Read Timeout in milliseconds */
+    public void setReadTimeout(int readTimeout) {
+        mReadTimeout = readTimeout;
+    }
+
+    /**
+     * Send a GET request and return the response once its status line and headers are read
+     * @param url - URL to request
+     * @param requestHeaders - Extra request headers, may be null
+     * @return response, which must be closed by the caller
+     */
+    public Response get(URL url, Map<String, String> requestHeaders) throws IOException {
+        return get(url, requestHeaders, null);
+    }
+
+    /**
+     * Send a GET request that is aborted, closing its socket, when the token is canceled
+     * @param url - URL to request
+     * @param requestHeaders - Extra request headers, may be null
+     * @param token - Token canceling the request, may be null
+     * @return response, which must be closed by the caller
+     */
+    public Response get(URL url, Map<String, String> requestHeaders, CancellationToken token)
+            throws IOException {
+        final HttpURLConnection urlConnection = (HttpURLConnection) url.openConnection();
+        urlConnection.setConnectTimeout(mConnectTimeout);
+        urlConnection.setReadTimeout(mReadTimeout);
+        urlConnection.setRequestMethod("GET");
+        urlConnection.setRequestProperty(HEADER_ACCEPT_ENCODING, ENCODING_GZIP);
+
+        if (requestHeaders != null) {
+            for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+                urlConnection.setRequestProperty(header.getKey(), header.getValue());
+            }
+        }
+
+        // Disconnecting from another thread makes a blocked connect or read fail straight away
+        CancellationToken.OnCancelListener abort = null;
+        if (token != null) {
+            abort = new CancellationToken.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    urlConnection.disconnect();
+                }
+            };
+            token.addOnCancelListener(abort);
+        }
+
+        try {
+            if (token != null && token.isCanceled()) {
+                throw new InterruptedIOException("Request canceled");
+            }
+            long connectStart = System.nanoTime();
+            urlConnection.connect();
+            long connectNanos = System.nanoTime() - connectStart;
+
+            long requestStart = System.nanoTime();
+            int responseCode = urlConnection.getResponseCode();
+            long firstByteNanos = System.nanoTime() - requestStart;
+
+            return new Response(urlConnection, responseCode, token, abort, connectNanos,
+                    firstByteNanos);
+        } catch (IOException e) {
+            // The connection is in an unknown state - don't return it to the pool
+            if (token != null) {
+                token.removeOnCancelListener(abort);
+            }
+            urlConnection.disconnect();
+            throw e;
+        }
+    }
+
+    /**
+     * Read and discard what is left of a stream, up to a limit
+     * @return true if the end of the stream was reached
+     */
+    private static boolean drain(InputStream inputStream) {
+        byte[] buffer = new byte[4096];
+        int total = 0;
+        try {
+            int read = inputStream.read(buffer);
+            while (read != -1) {
+                total += read;
+                if (total > MAX_DRAIN_BYTES) {
+                    return false;
+                }
+                read = inputStream.read(buffer);
+            }
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Response to a request sent by {@link BooksHttpClient}
+     */
+    public static final class Response {
+
+        private final HttpURLConnection mConnection;
+        private final int mCode;
+        private final CancellationToken mToken;
+        private final CancellationToken.OnCancelListener mAbort;
+        private final long mConnectNanos;
+        private final long mFirstByteNanos;
+        private InputStream mRawStream;
+        private InputStream mBody;
+
+        private Response(HttpURLConnection connection, int code, CancellationToken token,
+                         CancellationToken.OnCancelListener abort, long connectNanos,
+                         long firstByteNanos) {
+            mConnection = connection;
+            mCode = code;
+            mToken = token;
+            mAbort = abort;
+            mConnectNanos = connectNanos;
+            mFirstByteNanos = firstByteNanos;
+        }
+
+        /** Getter method - Response Code */
+        public int getCode() {
+            return mCode;
+        }
+
+        /**
+         * Getter method - Time taken to connect, in nanoseconds; close to 0 when a kept-alive
+         * connection was reused
+         */
+        public long getConnectNanos() {
+            return mConnectNanos;
+        }
+
+        /**
+         * Getter method - Time from sending the request to reading the status line and headers
+         * of the response, in nanoseconds
+         */
+        public long getFirstByteNanos() {
+            return mFirstByteNanos;
+        }
+
+        /** Return the value of a response header, or null */
+        public String getHeader(String name) {
+            return mConnection.getHeaderField(name);
+        }
+
+        /** Return the Expires header as epoch millis, or 0 */
+        public long getExpiration() {
+            return mConnection.getExpiration();
+        }
+
+        /**
+         * Return the response body, decompressed if the server sent it gzipped
+         */
+        public InputStream getBody() throws IOException {
+            if (mBody == null) {
+                mRawStream = (mCode < HttpURLConnection.HTTP_BAD_REQUEST)
+                        ? mConnection.getInputStream() : mConnection.getErrorStream();
+                String encoding = mConnection.getHeaderField(HEADER_CONTENT_ENCODING);
+                if (mRawStream != null && encoding != null
+                        && encoding.toLowerCase(Locale.US).contains(ENCODING_GZIP)) {
+                    mBody = new GZIPInputStream(mRawStream);
+                } else {
+                    mBody = mRawStream;
+                }
+            }
+            return mBody;
+        }
+
+        /**
+         * Release the response. The rest of the body is read so the connection can go
+         * back to the keep-alive pool; if that's not possible the connection is closed.
+         */
+        public void close() {
+            if (mToken != null) {
+                mToken.removeOnCancelListener(mAbort);
+                if (mToken.isCanceled()) {
+                    mConnection.disconnect();
+                    return;
+                }
+            }
+
+            boolean reusable = true;
+            try {
+                if (mBody == null) {
+                    getBody();
+                }
+                if (mBody != null) {
+                    reusable = drain(mBody) && (mRawStream == mBody || drain(mRawStream));
+                    mBody.close();
+                }
+            } catch (IOException e) {
+                reusable = false;
+            }
+
+            if (!reusable) {
+                mConnection.disconnect();
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Signals that the result of a request is no longer wanted.
+ * Work in progress registers listeners to abort itself, e.g. by closing its socket,
+ * as soon as the token is canceled.
+ */
+
+public final class CancellationToken {
+
+    /**
+     * Listener notified when the token is canceled
+     */
+    public interface OnCancelListener {
+        void onCancel();
+    }
+
+    private final List<OnCancelListener> mListeners = new ArrayList<>();
+    private boolean mIsCanceled;
+
+    /**
+     * Cancel the token and notify its listeners; canceling again has no effect
+     */
+    public void cancel() {
+        List<OnCancelListener> listeners;
+        synchronized (this) {
+            if (mIsCanceled) {
+                return;
+            }
+            mIsCanceled = true;
+            listeners = new ArrayList<>(mListeners);
+            mListeners.clear();
+        }
+
+        // Listeners are called outside the lock as they may block, e.g. closing a socket
+        for (OnCancelListener listener : listeners) {
+            listener.onCancel();
+        }
+    }
+
+    /** Method to check if the token has been canceled */
+    public synchronized boolean isCanceled() {
+        return mIsCanceled;
+    }
+
+    /**
+     * Add a listener to call when the token is canceled.
+     * If the token is already canceled the listener is called straight away.
+     */
+    public void addOnCancelListener(OnCancelListener listener) {
+        synchronized (this) {
+            if (!mIsCanceled) {
+                mListeners.add(listener);
+                return;
+            }
+        }
+        listener.onCancel();
+    }
+
+    /**
+     * Remove a listener once the work it aborts has finished
+     */
+    public synchronized void removeOnCancelListener(OnCancelListener listener) {
+        mListeners.remove(listener);
+    }
+}
@@ -0,0 +1,164 @@
+package utilities;
+
+/**
+ * Stops sending requests to a host that keeps failing, so a struggling API isn't flooded
+ * and users don't wait for requests bound to fail.
+ * After a number of consecutive failures the circuit opens and requests fail fast. Once the
+ * open period is over, a single trial request is let through: its success closes the circuit,
+ * its failure opens it again.
+ */
+
+public final class CircuitBreaker {
+
+    /**
+     * States of the circuit
+     */
+    public enum State {
+        /** Requests are sent */
+        CLOSED,
+        /** Requests fail fast */
+        OPEN,
+        /** A trial request is sent to find out if the host has recovered */
+        HALF_OPEN
+    }
+
+    /**
+     * Listener notified when the circuit changes state, on the thread of the request that
+     * changed it
+     */
+    public interface Listener {
+        void onStateChanged(State from, State to);
+    }
+
+    private final int mFailureThreshold;
+    private final long mOpenMillis;
+
+    private State mState = State.CLOSED;
+    private int mConsecutiveFailures;
+    private long mOpenedAt;
+    private boolean mTrialInFlight;
+    private long mOpenCount;
+    private long mRejectedCount;
+    private volatile Listener mListener;
+
+    /**
+     * Constructs a new {@link CircuitBreaker} object
+     * @param failureThreshold - Number of consecutive failures opening the circuit
+     * @param openMillis - Time the circuit stays open before a trial request, in milliseconds
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        mFailureThreshold = failureThreshold;
+        mOpenMillis = openMillis;
+    }
+
+    /**
+     * Set the listener notified when the circuit changes state, may be null
+     */
+    public void setListener(Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Method to check if a request may be sent. Once the open period is over, the first caller
+     * gets the trial request; every allowed request must be followed by
+     * {@link #onSuccess()}, {@link #onFailure()} or {@link #onCanceled()}.
+     * @return true/false
+     */
+    public boolean allowRequest() {
+        synchronized (this) {
+            if (mState == State.CLOSED) {
+                return true;
+            }
+            if (mState == State.HALF_OPEN && !mTrialInFlight) {
+                mTrialInFlight = true;
+                return true;
+            }
+            if (mState == State.HALF_OPEN || System.currentTimeMillis() - mOpenedAt < mOpenMillis) {
+                mRejectedCount++;
+                return false;
+            }
+            mState = State.HALF_OPEN;
+            mTrialInFlight = true;
+        }
+        notifyStateChanged(State.OPEN, State.HALF_OPEN);
+        return true;
+    }
+
+    /**
+     * Record a request that reached the host and got a healthy response
+     */
+    public void onSuccess() {
+        State from;
+        synchronized (this) {
+            mConsecutiveFailures = 0;
+            mTrialInFlight = false;
+            if (mState == State.CLOSED) {
+                return;
+            }
+            from = mState;
+            mState = State.CLOSED;
+        }
+        notifyStateChanged(from, State.CLOSED);
+    }
+
+    /**
+     * Record a request that failed to reach the host or got a server error
+     */
+    public void onFailure() {
+        State from;
+        synchronized (this) {
+            mConsecutiveFailures++;
+            boolean trialFailed = mState == State.HALF_OPEN && mTrialInFlight;
+            mTrialInFlight = false;
+            if (!trialFailed && (mState != State.CLOSED || mConsecutiveFailures < mFailureThreshold)) {
+                return;
+            }
+            from = mState;
+            mState = State.OPEN;
+            mOpenedAt = System.currentTimeMillis();
+            mOpenCount++;
+        }
+        notifyStateChanged(from, State.OPEN);
+    }
+
+    /**
+     * Record a request canceled by its caller, which tells nothing about the host.
+     * A canceled trial request leaves the trial to the next caller.
+     */
+    public synchronized void onCanceled() {
+        mTrialInFlight = false;
+    }
+
+    /** Getter method - Current state */
+    public synchronized State getState() {
+        return mState;
+    }
+
+    /** Getter method - Number of failures since the last success */
+    public synchronized int getConsecutiveFailures() {
+        return mConsecutiveFailures;
+    }
+
+    /** Getter method - Number of times the circuit opened */
+    public synchronized long getOpenCount() {
+        return mOpenCount;
+    }
+
+    /** Getter method - Number of requests failed fast while the circuit was open */
+    public synchronized long getRejectedCount() {
+        return mRejectedCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker: " + mState + ", " + mConsecutiveFailures + " consecutive failures, "
+                + "opened " + mOpenCount + " times, " + mRejectedCount + " requests rejected";
+    }
+
+    private void notifyStateChanged(State from, State to) {
+        Listener listener = mListener;
+        if (listener != null) {
+            listener.onStateChanged(from, to);
+        }
+    }
+}
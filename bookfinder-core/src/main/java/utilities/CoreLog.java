@@ -0,0 +1,90 @@
+package utilities;
+
+import java.util.logging.Level;
+
+/**
+ * Logging of the search engine, through a pluggable {@link Logger} and {@link ErrorReporter}.
+ * Until a logger is set, messages go to java.util.logging, so the engine logs the same way
+ * in a unit test, a benchmark or a command line tool. No error reporter is set by default.
+ */
+
+public final class CoreLog {
+
+    private static volatile Logger mLogger = new JavaLogger();
+    private static volatile ErrorReporter mErrorReporter;
+
+    /**
+     * This is a private constructor and only meant to hold static variables and methods,
+     * which can be accessed directly from the class name CoreLog
+     */
+    private CoreLog() {
+    }
+
+    /**
+     * Set the logger of the engine; null restores the java.util.logging logger
+     */
+    public static void setLogger(Logger logger) {
+        mLogger = (logger != null) ? logger : new JavaLogger();
+    }
+
+    /**
+     * Set the reporter receiving the errors of the engine, may be null
+     */
+    public static void setErrorReporter(ErrorReporter errorReporter) {
+        mErrorReporter = errorReporter;
+    }
+
+    /**
+     * Log a debug message
+     */
+    public static void d(String tag, String message) {
+        mLogger.debug(tag, message);
+    }
+
+    /**
+     * Log a problem the engine recovered from
+     */
+    public static void w(String tag, String message, Throwable error) {
+        mLogger.warn(tag, message, error);
+    }
+
+    /**
+     * Log an error and pass it to the error reporter
+     */
+    public static void e(String tag, String message) {
+        e(tag, message, null);
+    }
+
+    /**
+     * Log an error and pass it to the error reporter
+     */
+    public static void e(String tag, String message, Throwable error) {
+        mLogger.error(tag, message, error);
+
+        ErrorReporter errorReporter = mErrorReporter;
+        if (errorReporter != null) {
+            errorReporter.report(tag, message, error);
+        }
+    }
+
+    /**
+     * Logs to the java.util.logging logger named after the tag
+     */
+    private static final class JavaLogger implements Logger {
+
+        @Override
+        public void debug(String tag, String message) {
+            java.util.logging.Logger.getLogger(tag).log(Level.FINE, message);
+        }
+
+        @Override
+        public void warn(String tag, String message, Throwable error) {
+            java.util.logging.Logger.getLogger(tag).log(Level.WARNING, message, error);
+        }
+
+        @Override
+        public void error(String tag, String message, Throwable error) {
+            java.util.logging.Logger.getLogger(tag).log(Level.SEVERE, message, error);
+        }
+    }
+}
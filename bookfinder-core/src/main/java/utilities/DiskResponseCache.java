@@ -0,0 +1,488 @@
+package utilities;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Size-bounded on-disk cache of HTTP response bodies, keyed by the normalized request URL.
+ * Each entry keeps its ETag and Last-Modified validators so stale entries can be revalidated
+ * with a conditional GET. The least recently used entries are evicted once the cache
+ * directory grows past its maximum size.
+ */
+
+public final class DiskResponseCache {
+
+    // Entry file suffixes
+    private static final String SUFFIX_META = ".meta";
+    private static final String SUFFIX_BODY = ".body";
+    private static final String SUFFIX_TEMP = ".tmp";
+
+    // Entry metadata keys
+    private static final String META_URL = "url";
+    private static final String META_ETAG = "etag";
+    private static final String META_LAST_MODIFIED = "lastModified";
+    private static final String META_EXPIRES_AT = "expiresAt";
+
+    // Cache-Control directives
+    private static final String DIRECTIVE_NO_STORE = "no-store";
+    private static final String DIRECTIVE_NO_CACHE = "no-cache";
+    private static final String DIRECTIVE_MAX_AGE = "max-age=";
+
+    private final File mDirectory;
+    private final long mMaxSize;
+
+    /**
+     * Constructs a new {@link DiskResponseCache} object
+     * @param directory - Directory used exclusively by this cache
+     * @param maxSize - Maximum number of bytes kept on disk
+     */
+    public DiskResponseCache(File directory, long maxSize) {
+        mDirectory = directory;
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Return the cache entry for the given URL
+     * @return entry, or null if the URL is not cached
+     */
+    public synchronized Entry get(String url) {
+        String key = keyFor(url);
+        File metaFile = new File(mDirectory, key + SUFFIX_META);
+        File bodyFile = new File(mDirectory, key + SUFFIX_BODY);
+
+        if (!metaFile.exists() || !bodyFile.exists()) {
+            return null;
+        }
+
+        Properties meta = readMeta(metaFile);
+        if (meta == null) {
+            return null;
+        }
+
+        // Record the access so this entry is evicted last
+        long now = System.currentTimeMillis();
+        metaFile.setLastModified(now);
+        bodyFile.setLastModified(now);
+
+        return new Entry(bodyFile,
+                meta.getProperty(META_ETAG),
+                meta.getProperty(META_LAST_MODIFIED),
+                parseLong(meta.getProperty(META_EXPIRES_AT)));
+    }
+
+    /**
+     * Start writing a new response body for the given URL
+     * @return editor, or null if the cache directory is not writable
+     */
+    public Editor edit(String url) {
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            return null;
+        }
+
+        String key = keyFor(url);
+        File tempFile = new File(mDirectory, key + SUFFIX_TEMP + Thread.currentThread().getId());
+        try {
+            return new Editor(url, key, tempFile);
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Update the validators and expiry of an entry after a 304 Not Modified response
+     */
+    public synchronized void update(String url, String etag, String lastModified, long expiresAt) {
+        String key = keyFor(url);
+        File metaFile = new File(mDirectory, key + SUFFIX_META);
+        Properties meta = readMeta(metaFile);
+        if (meta == null) {
+            return;
+        }
+
+        if (etag != null) {
+            meta.setProperty(META_ETAG, etag);
+        }
+        if (lastModified != null) {
+            meta.setProperty(META_LAST_MODIFIED, lastModified);
+        }
+        meta.setProperty(META_EXPIRES_AT, String.valueOf(expiresAt));
+        writeMeta(metaFile, meta);
+    }
+
+    /**
+     * Method to check if a response with the given Cache-Control header may be stored
+     * @return true/false
+     */
+    public static boolean isStorable(String cacheControl) {
+        return cacheControl == null
+                || !cacheControl.toLowerCase(Locale.US).contains(DIRECTIVE_NO_STORE);
+    }
+
+    /**
+     * Compute until when a response may be served without revalidation, from its
+     * Cache-Control max-age directive or else its Expires header
+     * @param cacheControl - Cache-Control header value, or null
+     * @param expires - Expires header as epoch millis, or 0
+     * @param now - Time the response was received
+     * @return expiry time as epoch millis
+     */
+    public static long computeExpiresAt(String cacheControl, long expires, long now) {
+        if (cacheControl != null) {
+            String directives = cacheControl.toLowerCase(Locale.US);
+            if (directives.contains(DIRECTIVE_NO_CACHE)) {
+                return now;
+            }
+
+            int index = directives.indexOf(DIRECTIVE_MAX_AGE);
+            if (index >= 0) {
+                int start = index + DIRECTIVE_MAX_AGE.length();
+                int end = start;
+                while (end < directives.length() && Character.isDigit(directives.charAt(end))) {
+                    end++;
+                }
+                if (end > start) {
+                    return now + parseLong(directives.substring(start, end)) * 1000;
+                }
+            }
+        }
+
+        return (expires > 0) ? expires : now;
+    }
+
+    /**
+     * Normalize a URL so that equivalent requests share a cache entry: scheme and host are
+     * lower-cased, the default port and the fragment are dropped, and query parameters
+     * are sorted
+     */
+    public static String normalizeUrl(String url) {
+        try {
+            URI uri = new URI(url);
+            String scheme = (uri.getScheme() != null) ? uri.getScheme().toLowerCase(Locale.US) : "";
+            String host = (uri.getHost() != null) ? uri.getHost().toLowerCase(Locale.US) : "";
+
+            StringBuilder normalized = new StringBuilder();
+            normalized.append(scheme).append("://").append(host);
+
+            int port = uri.getPort();
+            if (port != -1 && !(scheme.equals("http") && port == 80)
+                    && !(scheme.equals("https") && port == 443)) {
+                normalized.append(':').append(port);
+            }
+
+            if (uri.getRawPath() != null) {
+                normalized.append(uri.getRawPath());
+            }
+
+            String query = uri.getRawQuery();
+            if (query != null && query.length() > 0) {
+                String[] params = query.split("&");
+                Arrays.sort(params);
+                normalized.append('?');
+                for (int i = 0; i < params.length; i++) {
+                    if (i > 0) {
+                        normalized.append('&');
+                    }
+                    normalized.append(params[i]);
+                }
+            }
+
+            return normalized.toString();
+        } catch (URISyntaxException e) {
+            return url;
+        }
+    }
+
+    /**
+     * Return the file name prefix used for the entry of the given URL
+     */
+    private static String keyFor(String url) {
+        byte[] input = normalizeUrl(url).getBytes(Charset.forName("UTF-8"));
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(input);
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest) {
+                key.append(String.format(Locale.US, "%02x", b));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            return Integer.toHexString(normalizeUrl(url).hashCode());
+        }
+    }
+
+    /**
+     * Move a completed body into place, write its metadata and evict old entries
+     */
+    private synchronized void commit(String url, String key, File tempFile, Properties meta) {
+        File bodyFile = new File(mDirectory, key + SUFFIX_BODY);
+        File metaFile = new File(mDirectory, key + SUFFIX_META);
+
+        meta.setProperty(META_URL, url);
+        bodyFile.delete();
+        if (tempFile.renameTo(bodyFile) && writeMeta(metaFile, meta)) {
+            trimToSize();
+        } else {
+            tempFile.delete();
+            bodyFile.delete();
+            metaFile.delete();
+        }
+    }
+
+    /**
+     * Delete the least recently used entries until the cache fits its maximum size
+     */
+    private void trimToSize() {
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= mMaxSize) {
+            return;
+        }
+
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File first, File second) {
+                long difference = first.lastModified() - second.lastModified();
+                return (difference < 0) ? -1 : ((difference > 0) ? 1 : 0);
+            }
+        });
+
+        for (File file : files) {
+            if (size <= mMaxSize) {
+                break;
+            }
+            if (!file.getName().endsWith(SUFFIX_BODY)) {
+                continue;
+            }
+
+            String key = file.getName().substring(0, file.getName().length() - SUFFIX_BODY.length());
+            File metaFile = new File(mDirectory, key + SUFFIX_META);
+            size -= file.length() + metaFile.length();
+            file.delete();
+            metaFile.delete();
+        }
+    }
+
+    private static Properties readMeta(File metaFile) {
+        Properties meta = new Properties();
+        InputStream inputStream = null;
+        try {
+            inputStream = new FileInputStream(metaFile);
+            meta.load(inputStream);
+            return meta;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            closeQuietly(inputStream);
+        }
+    }
+
+    private static boolean writeMeta(File metaFile, Properties meta) {
+        OutputStream outputStream = null;
+        try {
+            outputStream = new FileOutputStream(metaFile);
+            meta.store(outputStream, null);
+            return true;
+        } catch (IOException e) {
+            return false;
+        } finally {
+            closeQuietly(outputStream);
+        }
+    }
+
+    private static long parseLong(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                // Nothing useful to do
+            }
+        }
+    }
+
+    /**
+     * A cached response body along with its validators
+     */
+    public static final class Entry {
+
+        private final File mBody;
+        private final String mEtag;
+        private final String mLastModified;
+        private final long mExpiresAt;
+
+        private Entry(File body, String etag, String lastModified, long expiresAt) {
+            mBody = body;
+            mEtag = etag;
+            mLastModified = lastModified;
+            mExpiresAt = expiresAt;
+        }
+
+        /** Getter method - ETag validator */
+        public String getEtag() {
+            return mEtag;
+        }
+
+        /** Getter method - Last-Modified validator */
+        public String getLastModified() {
+            return mLastModified;
+        }
+
+        /** Getter method - Size of the cached response body, in bytes */
+        public long getLength() {
+            return mBody.length();
+        }
+
+        /**
+         * Method to check if the entry can be served without revalidation
+         * @return true/false
+         */
+        public boolean isFresh() {
+            return System.currentTimeMillis() < mExpiresAt;
+        }
+
+        /**
+         * Open the cached response body
+         */
+        public InputStream openBody() throws IOException {
+            return new FileInputStream(mBody);
+        }
+    }
+
+    /**
+     * Writes a response body to the cache while it is being read by the parser
+     */
+    public final class Editor {
+
+        private final String mUrl;
+        private final String mKey;
+        private final File mTempFile;
+        private final OutputStream mOutput;
+        private boolean mFailed;
+        private boolean mReachedEnd;
+
+        private Editor(String url, String key, File tempFile) throws FileNotFoundException {
+            mUrl = url;
+            mKey = key;
+            mTempFile = tempFile;
+            mOutput = new FileOutputStream(tempFile);
+        }
+
+        /**
+         * Wrap the response stream so that every byte read is also written to the cache
+         */
+        public InputStream tee(InputStream inputStream) {
+            return new FilterInputStream(inputStream) {
+                @Override
+                public int read() throws IOException {
+                    int b = super.read();
+                    if (b == -1) {
+                        mReachedEnd = true;
+                    } else {
+                        write(new byte[]{(byte) b}, 0, 1);
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int count) throws IOException {
+                    int read = super.read(buffer, offset, count);
+                    if (read == -1) {
+                        mReachedEnd = true;
+                    } else {
+                        write(buffer, offset, read);
+                    }
+                    return read;
+                }
+
+                @Override
+                public long skip(long count) throws IOException {
+                    // Skipped bytes would be missing from the cached body
+                    mFailed = true;
+                    return super.skip(count);
+                }
+            };
+        }
+
+        private void write(byte[] buffer, int offset, int count) {
+            if (mFailed) {
+                return;
+            }
+            try {
+                mOutput.write(buffer, offset, count);
+            } catch (IOException e) {
+                mFailed = true;
+            }
+        }
+
+        /**
+         * Read whatever the parser left unread on the tee stream, so the whole body is cached
+         */
+        public void drain(InputStream teeStream) throws IOException {
+            byte[] buffer = new byte[1024];
+            while (teeStream.read(buffer) != -1) {
+                // Bytes are written to the cache as they are read
+            }
+        }
+
+        /**
+         * Store the body with its validators if it was read completely; discard it otherwise
+         */
+        public void commit(String etag, String lastModified, long expiresAt) {
+            closeQuietly(mOutput);
+            if (mFailed || !mReachedEnd) {
+                mTempFile.delete();
+                return;
+            }
+
+            Properties meta = new Properties();
+            if (etag != null) {
+                meta.setProperty(META_ETAG, etag);
+            }
+            if (lastModified != null) {
+                meta.setProperty(META_LAST_MODIFIED, lastModified);
+            }
+            meta.setProperty(META_EXPIRES_AT, String.valueOf(expiresAt));
+            DiskResponseCache.this.commit(mUrl, mKey, mTempFile, meta);
+        }
+
+        /**
+         * Discard the body written so far
+         */
+        public void abort() {
+            closeQuietly(mOutput);
+            mTempFile.delete();
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package utilities;
+
+/**
+ * Receives the errors of the search engine, e.g. to count them or send them to a
+ * crash reporting service. Called on the thread the error happened on.
+ */
+
+public interface ErrorReporter {
+
+    /**
+     * Report an error
+     * @param tag - Class the error happened in
+     * @param message - What failed
+     * @param error - Cause of the failure, may be null
+     */
+    void report(String tag, String message, Throwable error);
+}
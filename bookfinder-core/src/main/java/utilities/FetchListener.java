@@ -0,0 +1,33 @@
+package utilities;
+
+/**
+ * Observes the stages of the requests made by {@link QueryUtils}, e.g. to measure their latency.
+ * Both methods of a stage are called on the thread running it, so per-thread measurements such
+ * as allocated bytes can be taken around a stage. They must return quickly.
+ */
+
+public interface FetchListener {
+
+    /**
+     * Stages of the request of one page of results
+     */
+    enum Stage {
+        /** Looking the response up in the disk cache */
+        CACHE_LOOKUP,
+        /** Sending the request and waiting for the status line and headers of the response */
+        RESPONSE,
+        /** Reading the response body, from the network or the disk cache, and parsing it */
+        PARSE
+    }
+
+    /**
+     * Called before a stage starts
+     */
+    void onStageStarted(Stage stage);
+
+    /**
+     * Called once a stage is over, whether or not it succeeded
+     * @param elapsedNanos - Time the stage took, in nanoseconds
+     */
+    void onStageFinished(Stage stage, long elapsedNanos);
+}
@@ -0,0 +1,172 @@
+package utilities;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of non-negative values, e.g. latencies in nanoseconds or payload sizes.
+ * Values are counted in buckets growing with their magnitude, eight per power of two, so
+ * percentiles are within 12.5% of the exact value whatever the range, in a fixed 4 KB of memory.
+ * Recording a value is a few atomic increments and never allocates, so it can stay on in
+ * release builds and on hot paths such as binding views.
+ */
+
+public final class Histogram {
+
+    /**
+     * Unit of the values recorded, and how they are shown
+     */
+    public enum Unit {
+        NANOSECONDS("ms", 1e6),
+        BYTES("KB", 1024),
+        COUNT("", 1);
+
+        private final String mLabel;
+        private final double mDivisor;
+
+        Unit(String label, double divisor) {
+            mLabel = label;
+            mDivisor = divisor;
+        }
+
+        /** Getter method - Unit values are shown in, e.g. ms, empty for plain counts */
+        public String getLabel() {
+            return mLabel;
+        }
+
+        /** Convert a recorded value to the unit it is shown in */
+        public double toDisplay(double value) {
+            return value / mDivisor;
+        }
+    }
+
+    // Eight buckets per power of two; values below eight have a bucket each
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final Unit mUnit;
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * Constructs a new {@link Histogram} object
+     * @param unit - Unit of the values recorded
+     */
+    public Histogram(Unit unit) {
+        mUnit = unit;
+    }
+
+    /** Getter method - Unit of the values recorded */
+    public Unit getUnit() {
+        return mUnit;
+    }
+
+    /**
+     * Record a value; negative values are recorded as 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        mBuckets.incrementAndGet(bucketIndex(value));
+        mSum.addAndGet(value);
+
+        long max = mMax.get();
+        while (value > max && !mMax.compareAndSet(max, value)) {
+            max = mMax.get();
+        }
+    }
+
+    /**
+     * Record the time elapsed since a start time
+     * @param startNanos - Start time from {@link System#nanoTime()}
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /** Return the number of values recorded */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += mBuckets.get(i);
+        }
+        return count;
+    }
+
+    /** Return the sum of the values recorded */
+    public long getSum() {
+        return mSum.get();
+    }
+
+    /** Return the largest value recorded, 0 if there is none */
+    public long getMax() {
+        return mMax.get();
+    }
+
+    /** Return the mean of the values recorded, 0 if there is none */
+    public double getMean() {
+        long count = getCount();
+        return (count > 0) ? (double) getSum() / count : 0;
+    }
+
+    /**
+     * Return the value below which the given percentage of the values recorded fall,
+     * within the precision of the buckets
+     * @param percentile - Percentile, e.g. 99
+     * @return upper bound of the bucket holding the percentile, or 0 if no value was recorded
+     */
+    public long getPercentile(double percentile) {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mBuckets.get(i);
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Forget the values recorded. Values recorded meanwhile may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mBuckets.set(i, 0);
+        }
+        mSum.set(0);
+        mMax.set(0);
+    }
+
+    /**
+     * Return the bucket of a value: its highest bit picks the power of two, and the next three
+     * bits the bucket within it
+     */
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Return the largest value counted in a bucket
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowerBound = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,26 @@
+package utilities;
+
+/**
+ * Destination of the log messages of the search engine.
+ * The app logs to logcat; on a plain JVM, {@link CoreLog} logs through java.util.logging.
+ */
+
+public interface Logger {
+
+    /**
+     * Log a message useful when following what the engine does
+     */
+    void debug(String tag, String message);
+
+    /**
+     * Log a problem the engine recovered from, e.g. a response it couldn't cache
+     * @param error - Cause of the problem, may be null
+     */
+    void warn(String tag, String message, Throwable error);
+
+    /**
+     * Log a failed request or a response that couldn't be parsed
+     * @param error - Cause of the failure, may be null
+     */
+    void error(String tag, String message, Throwable error);
+}
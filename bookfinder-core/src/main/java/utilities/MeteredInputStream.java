@@ -0,0 +1,71 @@
+package utilities;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from a stream and the time spent waiting for them, so the time a
+ * parser reading it spends blocked on the network or disk can be told apart from its own.
+ * Meant to be read by one thread.
+ */
+
+final class MeteredInputStream extends FilterInputStream {
+
+    private long mBytesRead;
+    private long mReadNanos;
+
+    MeteredInputStream(InputStream in) {
+        super(in);
+    }
+
+    /** Getter method - Number of bytes read */
+    long getBytesRead() {
+        return mBytesRead;
+    }
+
+    /** Getter method - Time spent in read calls, in nanoseconds */
+    long getReadNanos() {
+        return mReadNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        try {
+            int value = super.read();
+            if (value != -1) {
+                mBytesRead++;
+            }
+            return value;
+        } finally {
+            mReadNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+        long start = System.nanoTime();
+        try {
+            int count = super.read(buffer, offset, length);
+            if (count > 0) {
+                mBytesRead += count;
+            }
+            return count;
+        } finally {
+            mReadNanos += System.nanoTime() - start;
+        }
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long start = System.nanoTime();
+        try {
+            long skipped = super.skip(count);
+            mBytesRead += skipped;
+            return skipped;
+        } finally {
+            mReadNanos += System.nanoTime() - start;
+        }
+    }
+}
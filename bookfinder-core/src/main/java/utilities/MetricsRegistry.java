@@ -0,0 +1,173 @@
+package utilities;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process registry of the metrics of the app: histograms of latencies and sizes, counters
+ * of events, gauges reading values kept elsewhere, and sections of text detailing them.
+ * Metrics are created on first use and looked up by name, so a component can fetch its
+ * metrics once and record them cheaply after.
+ * The registry can be dumped as text, e.g. by a debug screen or dumpsys.
+ */
+
+public final class MetricsRegistry {
+
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    private static MetricsRegistry mInstance;
+
+    // Sorted by name, so related metrics are dumped together
+    private final ConcurrentMap<String, Histogram> mHistograms = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, AtomicLong> mCounters = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Gauge> mGauges = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Section> mSections = new ConcurrentSkipListMap<>();
+
+    /**
+     * Reads a value kept by another object, e.g. a count of retries, when the registry is dumped
+     */
+    public interface Gauge {
+        long getValue();
+    }
+
+    /**
+     * Writes details that don't fit in a number, e.g. the slowest recent events, when the
+     * registry is dumped
+     */
+    public interface Section {
+        void dump(Appendable out) throws IOException;
+    }
+
+    /**
+     * Constructs a new {@link MetricsRegistry} object; the app shares {@link #getInstance()}
+     */
+    MetricsRegistry() {
+    }
+
+    /**
+     * Return the registry shared by the app
+     */
+    public static synchronized MetricsRegistry getInstance() {
+        if (mInstance == null) {
+            mInstance = new MetricsRegistry();
+        }
+        return mInstance;
+    }
+
+    /**
+     * Return the histogram of the given name, creating it if needed
+     * @param name - Name of the metric, e.g. search.parse
+     * @param unit - Unit of the values; ignored if the histogram exists
+     */
+    public Histogram histogram(String name, Histogram.Unit unit) {
+        Histogram histogram = mHistograms.get(name);
+        if (histogram == null) {
+            Histogram created = new Histogram(unit);
+            histogram = mHistograms.putIfAbsent(name, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Return the counter of the given name, creating it if needed
+     * @param name - Name of the metric, e.g. search.errors
+     */
+    public AtomicLong counter(String name) {
+        AtomicLong counter = mCounters.get(name);
+        if (counter == null) {
+            AtomicLong created = new AtomicLong();
+            counter = mCounters.putIfAbsent(name, created);
+            if (counter == null) {
+                counter = created;
+            }
+        }
+        return counter;
+    }
+
+    /**
+     * Register a gauge, replacing any gauge of the same name
+     * @param name - Name of the metric, e.g. search.retries
+     */
+    public void registerGauge(String name, Gauge gauge) {
+        mGauges.put(name, gauge);
+    }
+
+    /**
+     * Register a section, replacing any section of the same name
+     * @param name - Title of the section in the dump
+     */
+    public void registerSection(String name, Section section) {
+        mSections.put(name, section);
+    }
+
+    /**
+     * Reset the histograms and counters, e.g. before measuring a scenario.
+     * Gauges read values the registry doesn't own and are left alone.
+     */
+    public void reset() {
+        for (Histogram histogram : mHistograms.values()) {
+            histogram.reset();
+        }
+        for (AtomicLong counter : mCounters.values()) {
+            counter.set(0);
+        }
+    }
+
+    /**
+     * Return the metrics as text, as written by {@link #dump(Appendable)}
+     */
+    public String dump() {
+        StringBuilder text = new StringBuilder();
+        try {
+            dump(text);
+        } catch (IOException e) {
+            // A StringBuilder doesn't throw
+            throw new AssertionError(e);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Write the metrics as text: a line per histogram with its count, mean, percentiles and
+     * maximum, then a line per counter and gauge, then the sections
+     */
+    public void dump(Appendable out) throws IOException {
+        out.append(String.format(Locale.US, "%-28s %8s %10s %10s %10s %10s %10s%n",
+                "Histogram", "count", "mean", "p50", "p90", "p99", "max"));
+        for (Map.Entry<String, Histogram> entry : mHistograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            Histogram.Unit unit = histogram.getUnit();
+            String name = unit.getLabel().isEmpty()
+                    ? entry.getKey()
+                    : entry.getKey() + " (" + unit.getLabel() + ")";
+
+            out.append(String.format(Locale.US, "%-28s %8d %10.2f", name, histogram.getCount(),
+                    unit.toDisplay(histogram.getMean())));
+            for (double percentile : PERCENTILES) {
+                out.append(String.format(Locale.US, " %10.2f",
+                        unit.toDisplay(histogram.getPercentile(percentile))));
+            }
+            out.append(String.format(Locale.US, " %10.2f%n", unit.toDisplay(histogram.getMax())));
+        }
+
+        out.append(String.format(Locale.US, "%n%-28s %8s%n", "Counter", "value"));
+        for (Map.Entry<String, AtomicLong> entry : mCounters.entrySet()) {
+            out.append(String.format(Locale.US, "%-28s %8d%n", entry.getKey(), entry.getValue().get()));
+        }
+        for (Map.Entry<String, Gauge> entry : mGauges.entrySet()) {
+            out.append(String.format(Locale.US, "%-28s %8d%n", entry.getKey(),
+                    entry.getValue().getValue()));
+        }
+        for (Map.Entry<String, Section> entry : mSections.entrySet()) {
+            out.append(String.format(Locale.US, "%n%s%n", entry.getKey()));
+            entry.getValue().dump(out);
+        }
+    }
+}
@@ -0,0 +1,968 @@
+package utilities;
+
+import com.example.android.bookfinder.Book;
+import com.example.android.bookfinder.BookPage;
+import com.google.gson.stream.MalformedJsonException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Helper methods related to requesting and receiving book data from Google API.
+ * Pure Java: messages go through {@link CoreLog}, and responses are only cached on disk once
+ * a directory is set with {@link #setResponseCacheDirectory(File)}.
+ */
+
+public final class QueryUtils {
+
+    private static final String LOG_TAG = QueryUtils.class.getName();
+
+    // Error messages
+    private static final String ERROR_HTTP_REQUEST = "Problem making the HTTP request";
+    private static final String ERROR_URL_INVALID = "Problem with the URL string";
+    private static final String ERROR_RESPONSE_CODE = "Error response code ";
+    private static final String ERROR_JSON_RESULTS = "Problem retrieving JSON results";
+    private static final String WARNING_CIRCUIT_OPEN = "Books API unhealthy; request not sent";
+    private static final String WARNING_STALE_RESPONSE = "Serving a stale cached response";
+
+    /** Disk cache of API responses; null until a directory is set */
+    private static DiskResponseCache mResponseCache;
+    private static File mResponseCacheDirectory;
+    private static final long RESPONSE_CACHE_SIZE = 5 * 1024 * 1024;
+
+    // HTTP headers used for caching
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_LAST_MODIFIED = "Last-Modified";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since";
+
+    // Google Book API Keys, as declared in the field schema
+    private static final String API_KEY_ITEMS = BookFieldSchema.KEY_ITEMS;
+    private static final String API_KEY_ID = BookFieldSchema.KEY_ID;
+    private static final String API_KEY_VOLUMEINFO = BookFieldSchema.KEY_VOLUMEINFO;
+    private static final String API_KEY_TITLE = BookFieldSchema.KEY_TITLE;
+    private static final String API_KEY_AUTHORS = BookFieldSchema.KEY_AUTHORS;
+    private static final String API_KEY_PUBLISHED_DATE = BookFieldSchema.KEY_PUBLISHED_DATE;
+    private static final String API_KEY_CATEGORIES = BookFieldSchema.KEY_CATEGORIES;
+    private static final String API_KEY_PAGECOUNT = BookFieldSchema.KEY_PAGECOUNT;
+    private static final String API_KEY_LANGUAGE = BookFieldSchema.KEY_LANGUAGE;
+    private static final String API_KEY_PREVIEWLINK = BookFieldSchema.KEY_PREVIEWLINK;
+    private static final String API_KEY_PRINT_TYPE = BookFieldSchema.KEY_PRINT_TYPE;
+    private static final String API_KEY_RATING = BookFieldSchema.KEY_RATING;
+    private static final String API_KEY_DESCRIPTION = BookFieldSchema.KEY_DESCRIPTION;
+    private static final String API_KEY_IMAGELINKS = BookFieldSchema.KEY_IMAGELINKS;
+    private static final String API_KEY_THUMBNAIL = BookFieldSchema.KEY_THUMBNAIL;
+
+    private static final String API_KEY_SALEINFO = BookFieldSchema.KEY_SALEINFO;
+    private static final String API_KEY_RETAIL_PRICE = BookFieldSchema.KEY_RETAIL_PRICE;
+    private static final String API_KEY_AMOUNT = BookFieldSchema.KEY_AMOUNT;
+    private static final String API_KEY_CURRENCY = BookFieldSchema.KEY_CURRENCY;
+    private static final String API_KEY_BUYLINK = BookFieldSchema.KEY_BUYLINK;
+
+    private static final String API_KEY_ACCESSINFO = BookFieldSchema.KEY_ACCESSINFO;
+    private static final String API_KEY_EPUB = BookFieldSchema.KEY_EPUB;
+    private static final String API_KEY_PDF = BookFieldSchema.KEY_PDF;
+    private static final String API_KEY_ISAVAILABLE = BookFieldSchema.KEY_ISAVAILABLE;
+
+    // Google Book API request parameters
+    private static final String API_PARAM_START_INDEX = "startIndex";
+    private static final String API_PARAM_MAX_RESULTS = "maxResults";
+    private static final String API_PARAM_FIELDS = "fields";
+
+    /** Smallest request to the Books API host, opening a connection later requests reuse */
+    private static final String WARM_UP_URL =
+            "https://www.googleapis.com/books/v1/volumes?q=books&maxResults=1&fields=totalItems";
+
+    /** Largest number of results the API returns for a single request */
+    public static final int MAX_PAGE_SIZE = 40;
+
+    /** Maximum number of page requests sent at the same time */
+    private static final int MAX_CONCURRENT_PAGES = 4;
+
+    /** Executor running the page requests of a fan-out fetch */
+    private static ExecutorService mPageExecutor;
+
+    /** Requests in flight, keyed by canonical request URL, shared by concurrent identical searches */
+    private static final SingleFlight<String, BookPage> mInFlightRequests = new SingleFlight<>();
+
+    /** Consecutive failures after which Books API requests fail fast */
+    private static final int CIRCUIT_FAILURE_THRESHOLD = 5;
+
+    /** Time Books API requests fail fast before a trial request, in milliseconds */
+    private static final long CIRCUIT_OPEN_MILLIS = 30 * 1000;
+
+    /** Client sending the Books API requests, with retries and a circuit breaker */
+    private static volatile ResilientHttpClient mHttpClient = new ResilientHttpClient(
+            BooksHttpClient.getInstance(), RetryPolicy.DEFAULT,
+            new CircuitBreaker(CIRCUIT_FAILURE_THRESHOLD, CIRCUIT_OPEN_MILLIS));
+
+    /** Listener told about the stages of each request, may be null */
+    private static volatile FetchListener mFetchListener;
+
+    // Metrics of the requests, kept in the MetricsRegistry; times are in nanoseconds
+    private static final MetricsRegistry mMetrics = MetricsRegistry.getInstance();
+    private static final Histogram mCacheLookupTime =
+            mMetrics.histogram("search.cache_lookup", Histogram.Unit.NANOSECONDS);
+    private static final Histogram mConnectTime =
+            mMetrics.histogram("search.connect", Histogram.Unit.NANOSECONDS);
+    private static final Histogram mFirstByteTime =
+            mMetrics.histogram("search.first_byte", Histogram.Unit.NANOSECONDS);
+    /** Time to the response headers, including retries and hedges */
+    private static final Histogram mResponseTime =
+            mMetrics.histogram("search.response", Histogram.Unit.NANOSECONDS);
+    /** Time the parser waited for the body, from the network or the disk cache */
+    private static final Histogram mBodyReadTime =
+            mMetrics.histogram("search.body_read", Histogram.Unit.NANOSECONDS);
+    /** Time spent parsing, not counting the time waiting for the body */
+    private static final Histogram mParseTime =
+            mMetrics.histogram("search.parse", Histogram.Unit.NANOSECONDS);
+    private static final Histogram mPayloadSize =
+            mMetrics.histogram("search.payload_bytes", Histogram.Unit.BYTES);
+    private static final Histogram mBookCount =
+            mMetrics.histogram("search.books", Histogram.Unit.COUNT);
+    private static final AtomicLong mRequestCounter = mMetrics.counter("search.requests");
+    private static final AtomicLong mFreshHitCounter = mMetrics.counter("search.cache_fresh");
+    private static final AtomicLong mNotModifiedCounter = mMetrics.counter("search.not_modified");
+    private static final AtomicLong mStaleCounter = mMetrics.counter("search.cache_stale_served");
+    private static final AtomicLong mCircuitOpenCounter = mMetrics.counter("search.circuit_open");
+    private static final AtomicLong mErrorCounter = mMetrics.counter("search.errors");
+
+    static {
+        mMetrics.registerGauge("search.coalesced", new MetricsRegistry.Gauge() {
+            @Override
+            public long getValue() {
+                return getCoalescedRequestCount();
+            }
+        });
+        mMetrics.registerGauge("search.retries", new MetricsRegistry.Gauge() {
+            @Override
+            public long getValue() {
+                return getRetryCount();
+            }
+        });
+        mMetrics.registerGauge("search.hedges", new MetricsRegistry.Gauge() {
+            @Override
+            public long getValue() {
+                return getHedgeCount();
+            }
+        });
+        mMetrics.registerGauge("search.hedge_wins", new MetricsRegistry.Gauge() {
+            @Override
+            public long getValue() {
+                return getHedgeWinCount();
+            }
+        });
+        mMetrics.registerGauge("search.circuit_opened", new MetricsRegistry.Gauge() {
+            @Override
+            public long getValue() {
+                return getCircuitBreaker().getOpenCount();
+            }
+        });
+    }
+
+    /**
+     * This is a private constructor and only meant to hold static variables and methods,
+     * which can be accessed directly from the class name QueryUtils
+     */
+    private QueryUtils() {
+    }
+
+    /**
+     * Query the URL and return a list of {@link Book} objects.
+     */
+    public static List<Book> fetchBookData(String requestUrl) {
+
+        // Fetch the page of books for the URL as it is
+        BookPage page = fetchBookPage(requestUrl, 0, 0);
+
+        // Return the list of {@link Book}
+        return page.getBooks();
+    }
+
+    /**
+     * Open a connection to the Books API host ahead of the first search, so the DNS lookup
+     * and TLS handshake are done and the connection waits in the keep-alive pool.
+     * This is a blocking call and must not run on the main thread.
+     */
+    public static void warmUpConnection() {
+        URL url = createUrl(WARM_UP_URL);
+        BooksHttpClient.Response response = null;
+        try {
+            response = BooksHttpClient.getInstance().get(url, null);
+        } catch (IOException e) {
+            CoreLog.e(LOG_TAG, ERROR_HTTP_REQUEST, e);
+        } finally {
+            // Release the connection back to the keep-alive pool
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
+
+    /**
+     * Query one page of results and return it as a {@link BookPage}.
+     * Pages larger than the API allows are fetched as several concurrent requests, and a
+     * caller asking for a request already in flight waits for it instead of repeating it.
+     * @param requestUrl - Search URL without paging parameters
+     * @param startIndex - Index of the first book to fetch
+     * @param pageSize - Number of books to fetch; 0 leaves the URL as it is
+     */
+    public static BookPage fetchBookPage(String requestUrl, int startIndex, int pageSize) {
+        return fetchBookPage(requestUrl, startIndex, pageSize, null);
+    }
+
+    /**
+     * Query one page of results and return it as a {@link BookPage}, unless the token is
+     * canceled first. The request is aborted, closing its socket, once every caller waiting
+     * for it has canceled.
+     * @param requestUrl - Search URL without paging parameters
+     * @param startIndex - Index of the first book to fetch
+     * @param pageSize - Number of books to fetch; 0 leaves the URL as it is
+     * @param token - Token canceling the request, may be null
+     * @return page, failed and empty if the request failed or was canceled
+     */
+    public static BookPage fetchBookPage(final String requestUrl, final int startIndex,
+                                         final int pageSize, CancellationToken token) {
+
+        // Concurrent callers asking for the same request share one network request and one parse
+        String requestKey = (requestUrl != null)
+                ? DiskResponseCache.normalizeUrl(buildRequestUrl(requestUrl, startIndex, pageSize))
+                : null;
+        if (requestKey == null) {
+            return loadBookPage(requestUrl, startIndex, pageSize, token);
+        }
+
+        try {
+            return mInFlightRequests.execute(requestKey, new SingleFlight.Work<BookPage>() {
+                @Override
+                public BookPage run(CancellationToken requestToken) {
+                    return loadBookPage(requestUrl, startIndex, pageSize, requestToken);
+                }
+            }, token);
+        } catch (ExecutionException e) {
+            CoreLog.e(LOG_TAG, ERROR_HTTP_REQUEST, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return BookPage.createFailedPage(startIndex, pageSize);
+    }
+
+    /**
+     * Set the listener told about the stages of each request, e.g. to measure them
+     * @param listener - Listener, or null to stop observing requests
+     */
+    public static void setFetchListener(FetchListener listener) {
+        mFetchListener = listener;
+    }
+
+    /**
+     * Tell the fetch listener a stage is starting
+     * @return start time of the stage, in nanoseconds
+     */
+    private static long startStage(FetchListener.Stage stage) {
+        FetchListener listener = mFetchListener;
+        if (listener != null) {
+            listener.onStageStarted(stage);
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Tell the fetch listener a stage is over
+     * @param startNanos - Start time returned by {@link #startStage(FetchListener.Stage)}
+     * @return time the stage took, in nanoseconds
+     */
+    private static long finishStage(FetchListener.Stage stage, long startNanos) {
+        long elapsedNanos = System.nanoTime() - startNanos;
+        FetchListener listener = mFetchListener;
+        if (listener != null) {
+            listener.onStageFinished(stage, elapsedNanos);
+        }
+        return elapsedNanos;
+    }
+
+    /**
+     * Return the circuit breaker of the Books API requests, e.g. to observe its state
+     */
+    public static CircuitBreaker getCircuitBreaker() {
+        return mHttpClient.getCircuitBreaker();
+    }
+
+    /**
+     * Return the number of Books API requests sent again after a failure
+     */
+    public static long getRetryCount() {
+        return mHttpClient.getRetryCount();
+    }
+
+    /**
+     * Turn hedging of slow Books API requests on or off; it is off by default.
+     * While on, a request that is slower than the recent p95 response time is sent again,
+     * up to one extra request in ten, and the first response is used.
+     */
+    public static void setHedgingEnabled(boolean enabled) {
+        mHttpClient.setRequestHedger(enabled
+                ? new RequestHedger(RequestHedger.DEFAULT_PERCENTILE,
+                        RequestHedger.DEFAULT_BUDGET_RATIO)
+                : null);
+    }
+
+    /**
+     * Return the number of Books API requests hedged, 0 if hedging is off
+     */
+    public static long getHedgeCount() {
+        RequestHedger hedger = mHttpClient.getRequestHedger();
+        return (hedger != null) ? hedger.getHedgeCount() : 0;
+    }
+
+    /**
+     * Return the number of hedges that answered before the request they hedged,
+     * 0 if hedging is off
+     */
+    public static long getHedgeWinCount() {
+        RequestHedger hedger = mHttpClient.getRequestHedger();
+        return (hedger != null) ? hedger.getHedgeWinCount() : 0;
+    }
+
+    /**
+     * Replace the client sending the Books API requests, e.g. with a shorter retry policy in tests
+     */
+    static void setHttpClient(ResilientHttpClient httpClient) {
+        mHttpClient = httpClient;
+    }
+
+    /**
+     * Return the number of fetches that joined an identical request already in flight
+     * instead of sending their own
+     */
+    public static long getCoalescedRequestCount() {
+        return mInFlightRequests.getCoalescedCount();
+    }
+
+    /**
+     * Fetch one page of results, whether from the disk cache or the network
+     */
+    private static BookPage loadBookPage(String requestUrl, int startIndex, int pageSize,
+                                         CancellationToken token) {
+
+        if (pageSize > MAX_PAGE_SIZE) {
+            return fetchBookPagesConcurrently(requestUrl, startIndex, pageSize, token);
+        }
+
+        // Create URL object
+        URL url = createUrl(buildRequestUrl(requestUrl, startIndex, pageSize));
+
+        // Perform HTTP request to the URL and stream the JSON response into a page of {@link Book}s
+        BookPage page = null;
+        try {
+            page = makeHttpRequest(url, startIndex, pageSize, token);
+        } catch (IOException e) {
+            CoreLog.e(LOG_TAG, ERROR_HTTP_REQUEST, e);
+        }
+
+        // Return a failed page if the request failed or was canceled
+        if (page == null) {
+            page = BookPage.createFailedPage(startIndex, pageSize);
+        }
+        return page;
+    }
+
+    /**
+     * Fetch a large page as several API pages requested at the same time, then merge them
+     * back in relevance order. Volumes returned by more than one page are kept once.
+     * If any page fails, the whole page fails, so a page with a hole in it is never shown
+     * or cached.
+     */
+    private static BookPage fetchBookPagesConcurrently(final String requestUrl, int startIndex,
+                                                       int pageSize, final CancellationToken token) {
+
+        // Submit a request for each API page
+        List<Future<BookPage>> futures = new ArrayList<>();
+        ExecutorService executor = getPageExecutor();
+        for (int offset = 0; offset < pageSize; offset += MAX_PAGE_SIZE) {
+            final int pageStart = startIndex + offset;
+            final int size = Math.min(MAX_PAGE_SIZE, pageSize - offset);
+            futures.add(executor.submit(new Callable<BookPage>() {
+                @Override
+                public BookPage call() {
+                    return fetchBookPage(requestUrl, pageStart, size, token);
+                }
+            }));
+        }
+
+        // Merge the pages in order, keeping the first occurrence of each volume;
+        // volumes without an id can't be told apart and stay where the API put them
+        List<Book> books = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        int totalItems = 0;
+        for (Future<BookPage> future : futures) {
+            BookPage page;
+            try {
+                page = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return BookPage.createFailedPage(startIndex, pageSize);
+            } catch (ExecutionException e) {
+                CoreLog.e(LOG_TAG, ERROR_HTTP_REQUEST, e);
+                return BookPage.createFailedPage(startIndex, pageSize);
+            }
+            if (page.isFailed()) {
+                return BookPage.createFailedPage(startIndex, pageSize);
+            }
+
+            totalItems = Math.max(totalItems, page.getTotalItems());
+            for (Book book : page.getBooks()) {
+                if (book.getId() == null || book.getId().isEmpty() || ids.add(book.getId())) {
+                    books.add(book);
+                }
+            }
+        }
+
+        return new BookPage(books, startIndex, pageSize, totalItems);
+    }
+
+    /**
+     * Return the bounded executor used for page requests; its threads stop when idle
+     */
+    private static synchronized ExecutorService getPageExecutor() {
+        if (mPageExecutor == null) {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_CONCURRENT_PAGES,
+                    MAX_CONCURRENT_PAGES, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+            executor.allowCoreThreadTimeOut(true);
+            mPageExecutor = executor;
+        }
+        return mPageExecutor;
+    }
+
+    /**
+     * This method appends the partial-response fields projection and, when a page size is
+     * given, the startIndex and maxResults paging parameters to a search URL
+     * @return URL of the request to send
+     */
+    public static String buildRequestUrl(String requestUrl, int startIndex, int pageSize) {
+        if (requestUrl == null) {
+            return null;
+        }
+
+        StringBuilder stringBuilder = new StringBuilder(requestUrl);
+        stringBuilder.append(requestUrl.indexOf('?') < 0 ? '?' : '&');
+        stringBuilder.append(API_PARAM_FIELDS).append('=').append(BookFieldSchema.getEncodedProjection());
+
+        if (pageSize > 0) {
+            stringBuilder.append('&').append(API_PARAM_START_INDEX).append('=').append(startIndex);
+            stringBuilder.append('&').append(API_PARAM_MAX_RESULTS).append('=').append(pageSize);
+        }
+
+        return stringBuilder.toString();
+    }
+
+    /**
+     * This method returns new URL object from the given string URL
+     */
+    private static URL createUrl(String stringUrl) {
+        URL url = null;
+        try {
+            url = new URL(stringUrl);
+        } catch (MalformedURLException e) {
+            CoreLog.e(LOG_TAG, ERROR_URL_INVALID, e);
+        }
+        return url;
+    }
+
+    /**
+     * Make an HTTP request to the given URL and return the {@link BookPage}
+     * parsed from the response. Responses are kept in the disk cache: a fresh entry is
+     * served without a request, and a stale one is revalidated with a conditional GET.
+     * Failed requests are retried; if they still fail, or the API is unhealthy and requests
+     * fail fast, a stale cached response is served rather than nothing.
+     * @return page, or null if the request failed or the token was canceled
+     */
+    private static BookPage makeHttpRequest(URL url, int startIndex, int pageSize,
+                                            CancellationToken token) throws IOException {
+        BookPage page = null;
+
+        // If the URL is null, then return early
+        if (url == null) {
+            return page;
+        }
+
+        // Serve the cached response if it is still fresh
+        DiskResponseCache responseCache = getResponseCache();
+        String cacheUrl = url.toString();
+        DiskResponseCache.Entry cachedEntry = null;
+        if (responseCache != null) {
+            long lookupStart = startStage(FetchListener.Stage.CACHE_LOOKUP);
+            cachedEntry = responseCache.get(cacheUrl);
+            mCacheLookupTime.record(finishStage(FetchListener.Stage.CACHE_LOOKUP, lookupStart));
+        }
+        if (cachedEntry != null && cachedEntry.isFresh()) {
+            page = readCachedPage(cachedEntry, startIndex, pageSize);
+            if (page != null) {
+                mFreshHitCounter.incrementAndGet();
+                return page;
+            }
+        }
+
+        // Ask the server to confirm the cached response is still valid
+        Map<String, String> requestHeaders = new HashMap<>();
+        if (cachedEntry != null) {
+            if (cachedEntry.getEtag() != null) {
+                requestHeaders.put(HEADER_IF_NONE_MATCH, cachedEntry.getEtag());
+            }
+            if (cachedEntry.getLastModified() != null) {
+                requestHeaders.put(HEADER_IF_MODIFIED_SINCE, cachedEntry.getLastModified());
+            }
+        }
+
+        BooksHttpClient.Response response = null;
+        try {
+            mRequestCounter.incrementAndGet();
+            long responseStart = startStage(FetchListener.Stage.RESPONSE);
+            try {
+                response = mHttpClient.get(url, requestHeaders, token);
+            } finally {
+                mResponseTime.record(finishStage(FetchListener.Stage.RESPONSE, responseStart));
+            }
+            mConnectTime.record(response.getConnectNanos());
+            mFirstByteTime.record(response.getFirstByteNanos());
+
+            int responseCode = response.getCode();
+            String cacheControl = response.getHeader(HEADER_CACHE_CONTROL);
+            long expiresAt = DiskResponseCache.computeExpiresAt(cacheControl,
+                    response.getExpiration(), System.currentTimeMillis());
+
+            // If the request was successful (response code 200),
+            // then parse the response while it is being read from the input stream
+            // and write it to the disk cache at the same time.
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                InputStream inputStream = response.getBody();
+
+                DiskResponseCache.Editor editor = null;
+                if (responseCache != null && DiskResponseCache.isStorable(cacheControl)) {
+                    editor = responseCache.edit(cacheUrl);
+                }
+
+                if (editor != null) {
+                    InputStream teeStream = editor.tee(inputStream);
+                    page = extractPageFromStream(teeStream, startIndex, pageSize);
+                    if (page == null) {
+                        // The body was cut off; don't cache what was read of it
+                        editor.abort();
+                    } else {
+                        try {
+                            editor.drain(teeStream);
+                            editor.commit(response.getHeader(HEADER_ETAG),
+                                    response.getHeader(HEADER_LAST_MODIFIED), expiresAt);
+                        } catch (IOException e) {
+                            editor.abort();
+                        }
+                    }
+                } else {
+                    page = extractPageFromStream(inputStream, startIndex, pageSize);
+                }
+            } else if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED && cachedEntry != null) {
+                // The cached response is still valid - serve it from disk
+                mNotModifiedCounter.incrementAndGet();
+                responseCache.update(cacheUrl, response.getHeader(HEADER_ETAG),
+                        response.getHeader(HEADER_LAST_MODIFIED), expiresAt);
+                page = readCachedPage(cachedEntry, startIndex, pageSize);
+            } else {
+                mErrorCounter.incrementAndGet();
+                CoreLog.e(LOG_TAG, ERROR_RESPONSE_CODE + responseCode);
+            }
+        } catch (ResilientHttpClient.CircuitOpenException e) {
+            mCircuitOpenCounter.incrementAndGet();
+            CoreLog.w(LOG_TAG, WARNING_CIRCUIT_OPEN, null);
+        } catch (IOException e) {
+            if (token == null || !token.isCanceled()) {
+                mErrorCounter.incrementAndGet();
+                CoreLog.e(LOG_TAG, ERROR_JSON_RESULTS, e);
+            }
+        } finally {
+            // Release the connection back to the keep-alive pool
+            if (response != null) {
+                response.close();
+            }
+        }
+
+        // A canceled request may have been cut off part way through the response
+        if (token != null && token.isCanceled()) {
+            return null;
+        }
+
+        // Books that may be out of date are better than none
+        if (page == null && cachedEntry != null) {
+            mStaleCounter.incrementAndGet();
+            CoreLog.w(LOG_TAG, WARNING_STALE_RESPONSE, null);
+            page = readCachedPage(cachedEntry, startIndex, pageSize);
+        }
+        return page;
+    }
+
+    /**
+     * Parse a {@link BookPage} from a cached response body
+     * @return page, or null if the cached body could not be read
+     */
+    private static BookPage readCachedPage(DiskResponseCache.Entry entry, int startIndex, int pageSize) {
+        InputStream inputStream = null;
+        try {
+            inputStream = entry.openBody();
+            return extractPageFromStream(inputStream, startIndex, pageSize);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            if (inputStream != null) {
+                try {
+                    inputStream.close();
+                } catch (IOException e) {
+                    CoreLog.e(LOG_TAG, ERROR_JSON_RESULTS, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Set the directory API responses are cached in, before the first request.
+     * Without one, every request goes to the network.
+     * @param directory - Cache directory, e.g. within the app's cache directory
+     */
+    public static synchronized void setResponseCacheDirectory(File directory) {
+        if (directory != null && !directory.equals(mResponseCacheDirectory)) {
+            mResponseCacheDirectory = directory;
+            mResponseCache = null;
+        }
+    }
+
+    /**
+     * Return the disk cache for API responses, creating it in the directory set
+     * @return cache, or null if no directory was set
+     */
+    private static synchronized DiskResponseCache getResponseCache() {
+        if (mResponseCache == null && mResponseCacheDirectory != null) {
+            mResponseCache = new DiskResponseCache(mResponseCacheDirectory, RESPONSE_CACHE_SIZE);
+        }
+        return mResponseCache;
+    }
+
+    /**
+     * Return a list of {@link Book} objects parsed token by token from the JSON response stream.
+     */
+    static List<Book> extractFeatureFromStream(InputStream inputStream) {
+        BookPage page = extractPageFromStream(inputStream, 0, 0);
+        return (page != null) ? page.getBooks() : null;
+    }
+
+    /**
+     * Return a {@link BookPage} parsed token by token from the JSON response stream.
+     * Books read before a malformed volume are kept, as with {@link #extractFeatureFromJson(String)}.
+     * @return page, or null if reading the stream failed, e.g. the connection dropped part way
+     * through the response, as the books after the ones read would be silently missing
+     */
+    static BookPage extractPageFromStream(InputStream inputStream, int startIndex, int pageSize) {
+
+        /** If there is no response stream, then return early. */
+        if (inputStream == null) {
+            return null;
+        }
+
+        /** Create an empty ArrayList used to add books */
+        List<Book> books = new ArrayList<>();
+
+        long parseStart = startStage(FetchListener.Stage.PARSE);
+        MeteredInputStream meteredStream = new MeteredInputStream(inputStream);
+        BookStreamParser parser = new BookStreamParser(meteredStream);
+        try {
+            Book book = parser.nextBook();
+            while (book != null) {
+                books.add(book);
+                book = parser.nextBook();
+            }
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            CoreLog.e(LOG_TAG, ERROR_JSON_RESULTS, e);
+        } catch (IOException e) {
+            CoreLog.e(LOG_TAG, ERROR_HTTP_REQUEST, e);
+            return null;
+        } finally {
+            long parseNanos = finishStage(FetchListener.Stage.PARSE, parseStart);
+            mBodyReadTime.record(meteredStream.getReadNanos());
+            mParseTime.record(parseNanos - meteredStream.getReadNanos());
+            mPayloadSize.record(meteredStream.getBytesRead());
+            mBookCount.record(books.size());
+        }
+
+        // Return the page of books
+        return new BookPage(books, startIndex, pageSize, parser.getTotalItems());
+    }
+
+    /**
+     * Convert the {@link InputStream} into a String which contains the
+     * whole JSON response from the server.
+     */
+    static String readFromStream(InputStream inputStream) throws IOException {
+        StringBuilder output = new StringBuilder();
+        if (inputStream != null) {
+            InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
+            BufferedReader reader = new BufferedReader(inputStreamReader);
+            String line = reader.readLine();
+            while (line != null) {
+                output.append(line);
+                line = reader.readLine();
+            }
+        }
+        return output.toString();
+    }
+
+    /**
+     * Return a list of {@link Book} objects retrieved from parsing a JSON response.
+     * Builds the whole JSON object tree first; kept as the reference for {@link BookStreamParser}.
+     */
+    static List<Book> extractFeatureFromJson(String bookJSON) {
+
+        /** If the JSON string is empty or null, then return early. */
+        if (bookJSON == null || bookJSON.isEmpty()) {
+            return null;
+        }
+
+        /** Create an empty ArrayList used to add books */
+        List<Book> books = new ArrayList<>();
+
+        try {
+            JSONObject baseJsonResponse;        // JSON Object for the data retrieved from API request
+            JSONArray bookArray;                // Array of books returned in the JSON object
+            JSONObject currentBook;             // Single book at a specific position in the bookArray
+            String id;                          // Volume Id of the currentBook
+            JSONObject volumeInfo;              // VolumeInfo object of the currentBook
+            String title;                       // Title of the currentBook
+            JSONArray authorsArray;             // Author Array of the currentBook
+            String authorList = "";             // Authors of the currentBook - obtained from authorsArray
+            String publishedDate = "";          // Published Date of the currentBook
+            JSONArray categoriesArray;          // Categories Array of the currentBook
+            String category = "";               // Category of the currentBook - obtained from categoriesArray
+            String language = "";               // Language of the currentBook
+            String previewLink = "";            // Preview Link of the currentBook
+            int pageCount = 0;                  // PageCount of the currentBook
+            String printType = "";              // Print Type of the currentBook
+            double averageRating = 0.0;         // Average Rating of the currentBook
+            String description = "";            // Description of the currentBook
+
+            JSONObject imageLinks;              // JSON Object with various image links
+            String thumbnailLink = "";          // Thumbnail Link of the currentBook - obtained from imageLinks
+
+            JSONObject saleInfo;                // JSON Object for Sale Info of the currentBook
+            JSONObject retailPrice;             // JSON Object for Retail Price of the currentBook - obtained from saleInfo object
+            double amount = 0.00;               // Retail Price of the currentBook - obtained from retailPrice object
+            String currencyCode = "";           // Currency Code of the currentBook - obtained from retailPrice object
+            String buyLink = "";                // Buying Link of the currentBook - obtained from saleInfo object
+
+            JSONObject accessInfo;              // JSON Object for Access Info of the currentBook
+            JSONObject epub;                    // JSON Object for epub flag - obtained from accessInfo object
+            JSONObject pdf;                     // JSON Object for pdf flag - obtained from accessInfo object
+            boolean isAvailableEpub = false;    // Indicator for EPUB version availability
+            boolean isAvailablePdf = false;     // Indicator for PDF version availability
+
+
+            baseJsonResponse = new JSONObject(bookJSON);
+
+            if (baseJsonResponse.has(API_KEY_ITEMS)) {
+                bookArray = baseJsonResponse.getJSONArray(API_KEY_ITEMS);
+
+                for (int i = 0; i < bookArray.length(); i++) {
+
+                    // Reset values that are only set when their key exists,
+                    // so they don't carry over from the previous book
+                    authorList = "";
+                    thumbnailLink = "";
+                    amount = 0.00;
+                    currencyCode = "";
+                    buyLink = "";
+                    isAvailableEpub = false;
+                    isAvailablePdf = false;
+
+                    currentBook = bookArray.getJSONObject(i);
+                    id = currentBook.optString(API_KEY_ID);
+                    volumeInfo = currentBook.getJSONObject(API_KEY_VOLUMEINFO);
+                    title = volumeInfo.getString(API_KEY_TITLE);
+
+                    // Get value for author if the key exists
+                    if (volumeInfo.has(API_KEY_AUTHORS)) {
+                        authorsArray = volumeInfo.getJSONArray(API_KEY_AUTHORS);
+
+                        if (authorsArray.length() > 1) {
+                            authorList = authorsArray.join(", ").replaceAll("\"", "");
+                        } else if (authorsArray.length() == 1) {
+                            authorList = authorsArray.getString(0);
+                        } else if (authorsArray.length() == 0) {
+                            authorList = "";
+                        }
+                    }
+
+                    // Get value for publishedDate if the key exists
+                    if (volumeInfo.has(API_KEY_PUBLISHED_DATE)) {
+                        publishedDate = volumeInfo.getString(API_KEY_PUBLISHED_DATE);
+                    } else {
+                        publishedDate = "";
+                    }
+
+                    // Get value for category if the key exists
+                    if (volumeInfo.has(API_KEY_CATEGORIES)) {
+                        categoriesArray = volumeInfo.getJSONArray(API_KEY_CATEGORIES);
+                        category = categoriesArray.getString(0);
+                    } else {
+                        category = "";
+                    }
+
+                    // Get value for language if the key exists
+                    if (volumeInfo.has(API_KEY_LANGUAGE)) {
+                        language = volumeInfo.getString(API_KEY_LANGUAGE);
+                    } else {
+                        language = "";
+                    }
+
+                    // Get value for preview link if the key exists
+                    if (volumeInfo.has(API_KEY_PREVIEWLINK)) {
+                        previewLink = volumeInfo.getString(API_KEY_PREVIEWLINK);
+                    } else {
+                        previewLink = "";
+                    }
+
+                    // Get value pageCount if the key exists
+                    if (volumeInfo.has(API_KEY_PAGECOUNT)) {
+                        pageCount = volumeInfo.getInt(API_KEY_PAGECOUNT);
+                    } else {
+                        pageCount = 0;
+                    }
+
+                    // Get value printType if the key exists
+                    if (volumeInfo.has(API_KEY_PRINT_TYPE)) {
+                        printType = volumeInfo.getString(API_KEY_PRINT_TYPE);
+                    } else {
+                        printType = "";
+                    }
+
+                    // Get value for description if the key exists
+                    if (volumeInfo.has(API_KEY_DESCRIPTION)) {
+                        description = volumeInfo.getString(API_KEY_DESCRIPTION);
+                    } else {
+                        description = "";
+                    }
+
+                    // Get value for rating if the key exists
+                    if (volumeInfo.has(API_KEY_RATING)) {
+                        averageRating = volumeInfo.getDouble(API_KEY_RATING);
+                    } else {
+                        averageRating = 0.0;
+                    }
+
+                    // Get value for smallThumbnail if the key exists
+                    if (volumeInfo.has(API_KEY_IMAGELINKS)) {
+                        imageLinks = volumeInfo.getJSONObject(API_KEY_IMAGELINKS);
+                        if (imageLinks.has(API_KEY_THUMBNAIL)) {
+                            thumbnailLink = imageLinks.getString(API_KEY_THUMBNAIL);
+                        } else {
+                            thumbnailLink = "";
+                        }
+                    }
+
+                    // Get retail price, currency code and buying link if the corresponding keys exist
+                    if (currentBook.has(API_KEY_SALEINFO)) {
+                        saleInfo = currentBook.getJSONObject(API_KEY_SALEINFO);
+
+                        if (saleInfo.has(API_KEY_RETAIL_PRICE)) {
+                            retailPrice = saleInfo.getJSONObject(API_KEY_RETAIL_PRICE);
+
+                            if (retailPrice.has(API_KEY_AMOUNT)) {
+                                amount = retailPrice.getDouble(API_KEY_AMOUNT);
+                                currencyCode = retailPrice.getString((API_KEY_CURRENCY));
+                            } else {
+                                amount = 0.00;
+                            }
+                        } else {
+                            amount = 0.00;
+                        }
+
+                        if (saleInfo.has(API_KEY_BUYLINK)) {
+                            buyLink = saleInfo.getString(API_KEY_BUYLINK);
+                        } else {
+                            buyLink = "";
+                        }
+                    }
+
+                    // Get indicators if EPUB and PDF versions available
+                    if (currentBook.has(API_KEY_ACCESSINFO)) {
+                        accessInfo = currentBook.getJSONObject(API_KEY_ACCESSINFO);
+
+                        if (accessInfo.has(API_KEY_EPUB)) {
+                            epub = accessInfo.getJSONObject(API_KEY_EPUB);
+                            isAvailableEpub = epub.getBoolean(API_KEY_ISAVAILABLE);
+                        } else {
+                            isAvailableEpub = false;
+                        }
+
+                        if (accessInfo.has(API_KEY_PDF)) {
+                            pdf = accessInfo.getJSONObject(API_KEY_PDF);
+                            isAvailablePdf = pdf.getBoolean(API_KEY_ISAVAILABLE);
+                        } else {
+                            isAvailablePdf = false;
+                        }
+                    }
+
+
+                    // Create a new {@link Book} object with parameters obtained from JSON response
+                    Book book = new Book(
+                            id,
+                            title,
+                            authorList,
+                            publishedDate,
+                            category,
+                            language,
+                            pageCount,
+                            printType,
+                            amount,
+                            currencyCode,
+                            buyLink,
+                            isAvailableEpub,
+                            isAvailablePdf,
+                            averageRating,
+                            description,
+                            thumbnailLink,
+                            previewLink
+                    );
+
+                    // Add the new {@link Book} object to the list of books
+                    books.add(book);
+                }
+            }
+
+        } catch (JSONException e) {
+            CoreLog.e(LOG_TAG, ERROR_JSON_RESULTS, e);
+        }
+
+        // Return the list of books
+        return books;
+    }
+
+}
@@ -0,0 +1,345 @@
+package utilities;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cuts the tail latency of GET requests by hedging: if a request hasn't answered within the
+ * hedge delay, an identical request is sent, the first response wins and the other request
+ * is canceled. The hedge delay adapts to a percentile of the recent response times, e.g. p95,
+ * so only the slowest requests are hedged, and a budget caps the extra requests to a fraction
+ * of all requests however slow the server gets.
+ */
+
+public final class RequestHedger {
+
+    /** Percentile of the response times after which a request is hedged */
+    public static final double DEFAULT_PERCENTILE = 95;
+
+    /** Hedges allowed per request sent, i.e. at most 10% extra requests */
+    public static final double DEFAULT_BUDGET_RATIO = 0.1;
+
+    /** Number of recent response times the hedge delay is computed from */
+    private static final int LATENCY_WINDOW = 128;
+
+    /** Response times needed before requests are hedged */
+    private static final int MIN_SAMPLES = 20;
+
+    /** Hedges that can be saved up while requests are fast, to absorb a burst of slow ones */
+    private static final double MAX_BUDGET = 10;
+
+    private static final AtomicInteger mThreadCount = new AtomicInteger();
+
+    private final double mPercentile;
+    private final double mBudgetRatio;
+
+    // Ring buffer of the recent response times, in nanoseconds
+    private final long[] mLatencies = new long[LATENCY_WINDOW];
+    private int mLatencyCount;
+    private int mNextLatency;
+
+    private double mBudget;
+
+    private final AtomicLong mRequestCount = new AtomicLong();
+    private final AtomicLong mHedgeCount = new AtomicLong();
+    private final AtomicLong mHedgeWinCount = new AtomicLong();
+
+    /** Threads sending the requests, so the caller can wait for whichever answers first */
+    private final ExecutorService mExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "hedged-request-" + mThreadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Constructs a new {@link RequestHedger} object
+     * @param percentile - Percentile of the response times after which a request is hedged
+     * @param budgetRatio - Hedges allowed per request sent
+     * @throws IllegalArgumentException if the percentile isn't in (0, 100] or the ratio is negative
+     */
+    public RequestHedger(double percentile, double budgetRatio) {
+        if (percentile <= 0 || percentile > 100 || budgetRatio < 0) {
+            throw new IllegalArgumentException("Invalid hedging percentile or budget");
+        }
+        mPercentile = percentile;
+        mBudgetRatio = budgetRatio;
+    }
+
+    /** Getter method - Number of requests sent, not counting hedges */
+    public long getRequestCount() {
+        return mRequestCount.get();
+    }
+
+    /** Getter method - Number of hedges sent */
+    public long getHedgeCount() {
+        return mHedgeCount.get();
+    }
+
+    /** Getter method - Number of hedges that answered before the request they hedged */
+    public long getHedgeWinCount() {
+        return mHedgeWinCount.get();
+    }
+
+    /**
+     * Return the time after which a request is hedged, in milliseconds,
+     * or -1 while too few response times are known
+     */
+    public synchronized long getHedgeDelay() {
+        if (mLatencyCount < MIN_SAMPLES) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(mLatencies, mLatencyCount);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(mPercentile / 100 * sorted.length);
+        return TimeUnit.NANOSECONDS.toMillis(sorted[Math.max(rank, 1) - 1]);
+    }
+
+    /**
+     * Send a GET request with the client, and an identical one if it's slower than the hedge
+     * delay and the budget allows it
+     * @param client - Client sending the requests
+     * @param url - URL to request
+     * @param requestHeaders - Extra request headers, may be null
+     * @param token - Token canceling the requests, may be null
+     * @return first response, which must be closed by the caller
+     * @throws IOException if every request sent failed, or the token was canceled
+     */
+    public BooksHttpClient.Response get(BooksHttpClient client, URL url,
+                                        Map<String, String> requestHeaders,
+                                        CancellationToken token) throws IOException {
+        mRequestCount.incrementAndGet();
+        long hedgeDelay = getHedgeDelay();
+        earnBudget();
+
+        final Race race = new Race(client, url, requestHeaders);
+        CancellationToken.OnCancelListener cancelRace = new CancellationToken.OnCancelListener() {
+            @Override
+            public void onCancel() {
+                race.cancel();
+            }
+        };
+        if (token != null) {
+            token.addOnCancelListener(cancelRace);
+        }
+
+        Attempt winner = null;
+        try {
+            race.start(false);
+            Attempt attempt = (hedgeDelay < 0)
+                    ? race.take()
+                    : race.poll(hedgeDelay);
+            if (attempt == null) {
+                if (spendBudget()) {
+                    mHedgeCount.incrementAndGet();
+                    race.start(true);
+                }
+                attempt = race.take();
+            }
+
+            // A request that failed leaves the other one to answer
+            IOException error = null;
+            while (attempt.mResponse == null) {
+                if (error == null) {
+                    error = attempt.mError;
+                }
+                if (!race.hasPending()) {
+                    throw error;
+                }
+                attempt = race.take();
+            }
+
+            winner = attempt;
+            if (winner.mIsHedge) {
+                mHedgeWinCount.incrementAndGet();
+            }
+            return winner.mResponse;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a response");
+        } finally {
+            race.finish(winner);
+            // The winner's listener stays so that canceling the token still aborts its body
+            if (token != null && winner == null) {
+                token.removeOnCancelListener(cancelRace);
+            }
+        }
+    }
+
+    private synchronized void recordLatency(long latencyNanos) {
+        mLatencies[mNextLatency] = latencyNanos;
+        mNextLatency = (mNextLatency + 1) % LATENCY_WINDOW;
+        mLatencyCount = Math.min(mLatencyCount + 1, LATENCY_WINDOW);
+    }
+
+    private synchronized void earnBudget() {
+        mBudget = Math.min(mBudget + mBudgetRatio, MAX_BUDGET);
+    }
+
+    private synchronized boolean spendBudget() {
+        if (mBudget < 1) {
+            return false;
+        }
+        mBudget--;
+        return true;
+    }
+
+    /**
+     * Outcome of one of the requests of a race: a response or an error
+     */
+    private static final class Attempt {
+        final boolean mIsHedge;
+        final CancellationToken mToken;
+        BooksHttpClient.Response mResponse;
+        IOException mError;
+
+        Attempt(boolean isHedge, CancellationToken token) {
+            mIsHedge = isHedge;
+            mToken = token;
+        }
+    }
+
+    /**
+     * The request and its hedge, if any, racing to answer first
+     */
+    private final class Race {
+
+        private final BooksHttpClient mClient;
+        private final URL mUrl;
+        private final Map<String, String> mRequestHeaders;
+        private final BlockingQueue<Attempt> mFinished = new LinkedBlockingQueue<>();
+        private final List<Attempt> mAttempts = new ArrayList<>(2);
+        private int mPending;
+        private boolean mIsCanceled;
+        private boolean mIsOver;
+
+        Race(BooksHttpClient client, URL url, Map<String, String> requestHeaders) {
+            mClient = client;
+            mUrl = url;
+            mRequestHeaders = requestHeaders;
+        }
+
+        /**
+         * Send a request of the race on a thread of the executor
+         */
+        void start(boolean isHedge) {
+            final Attempt attempt = new Attempt(isHedge, new CancellationToken());
+            boolean isCanceled;
+            synchronized (this) {
+                mAttempts.add(attempt);
+                mPending++;
+                isCanceled = mIsCanceled;
+            }
+            if (isCanceled) {
+                attempt.mToken.cancel();
+            }
+
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.nanoTime();
+                    try {
+                        attempt.mResponse = mClient.get(mUrl, mRequestHeaders, attempt.mToken);
+                        recordLatency(System.nanoTime() - start);
+                    } catch (IOException e) {
+                        attempt.mError = e;
+                    } catch (RuntimeException e) {
+                        // HttpURLConnection may fail this way when it is disconnected from
+                        // another thread; the race must still hear about the request
+                        attempt.mError = new IOException(e);
+                    }
+                    onFinished(attempt);
+                }
+            });
+        }
+
+        private synchronized void onFinished(Attempt attempt) {
+            if (mIsOver) {
+                // Lost the race
+                if (attempt.mResponse != null) {
+                    attempt.mResponse.close();
+                }
+                return;
+            }
+            mFinished.add(attempt);
+        }
+
+        synchronized boolean hasPending() {
+            return mPending > 0;
+        }
+
+        Attempt take() throws InterruptedException {
+            Attempt attempt = mFinished.take();
+            onTaken();
+            return attempt;
+        }
+
+        /**
+         * Wait for a request to finish
+         * @return finished request, or null if none finished in time
+         */
+        Attempt poll(long timeoutMillis) throws InterruptedException {
+            Attempt attempt = mFinished.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+            if (attempt != null) {
+                onTaken();
+            }
+            return attempt;
+        }
+
+        private synchronized void onTaken() {
+            mPending--;
+        }
+
+        /**
+         * Cancel every request of the race, e.g. when the caller's token is canceled
+         */
+        void cancel() {
+            List<Attempt> attempts;
+            synchronized (this) {
+                mIsCanceled = true;
+                attempts = new ArrayList<>(mAttempts);
+            }
+            for (Attempt attempt : attempts) {
+                attempt.mToken.cancel();
+            }
+        }
+
+        /**
+         * End the race: cancel the losing requests and close their responses
+         * @param winner - Request whose response is returned, or null
+         */
+        void finish(Attempt winner) {
+            List<Attempt> losers;
+            synchronized (this) {
+                mIsOver = true;
+                losers = new ArrayList<>(mAttempts);
+                losers.remove(winner);
+            }
+            for (Attempt loser : losers) {
+                loser.mToken.cancel();
+            }
+
+            Attempt finished;
+            while ((finished = mFinished.poll()) != null) {
+                if (finished.mResponse != null) {
+                    finished.mResponse.close();
+                }
+            }
+        }
+    }
+}
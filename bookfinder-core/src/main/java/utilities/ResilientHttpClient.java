@@ -0,0 +1,168 @@
+package utilities;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends GET requests through a {@link BooksHttpClient}, retrying the ones that fail with a
+ * {@link RetryPolicy} and failing fast while a {@link CircuitBreaker} is open.
+ * Only GET requests are sent, which are idempotent and always safe to retry or hedge.
+ */
+
+public final class ResilientHttpClient {
+
+    private static final String HEADER_RETRY_AFTER = "Retry-After";
+
+    private final BooksHttpClient mClient;
+    private final RetryPolicy mRetryPolicy;
+    private final CircuitBreaker mCircuitBreaker;
+    private final AtomicLong mRetryCount = new AtomicLong();
+
+    /** Hedger of slow requests, null unless hedging is on */
+    private volatile RequestHedger mRequestHedger;
+
+    /**
+     * Thrown instead of sending a request while the circuit is open
+     */
+    public static final class CircuitOpenException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        CircuitOpenException() {
+            super("Circuit open; request not sent");
+        }
+    }
+
+    /**
+     * Constructs a new {@link ResilientHttpClient} object
+     * @param client - Client sending the requests
+     * @param retryPolicy - Policy deciding when failed requests are sent again
+     * @param circuitBreaker - Circuit breaker of the host requested
+     */
+    public ResilientHttpClient(BooksHttpClient client, RetryPolicy retryPolicy,
+                               CircuitBreaker circuitBreaker) {
+        mClient = client;
+        mRetryPolicy = retryPolicy;
+        mCircuitBreaker = circuitBreaker;
+    }
+
+    /** Getter method - Circuit breaker, e.g. to observe its state */
+    public CircuitBreaker getCircuitBreaker() {
+        return mCircuitBreaker;
+    }
+
+    /** Getter method - Hedger of slow requests, null unless hedging is on */
+    public RequestHedger getRequestHedger() {
+        return mRequestHedger;
+    }
+
+    /**
+     * Hedge slow requests with the given hedger, or stop hedging them
+     * @param requestHedger - Hedger of slow requests, null to stop hedging
+     */
+    public void setRequestHedger(RequestHedger requestHedger) {
+        mRequestHedger = requestHedger;
+    }
+
+    /** Getter method - Number of requests sent again after a failure */
+    public long getRetryCount() {
+        return mRetryCount.get();
+    }
+
+    /**
+     * Send a GET request, retrying it while it fails with an I/O error or a retryable
+     * response code and the retry policy allows it
+     * @param url - URL to request
+     * @param requestHeaders - Extra request headers, may be null
+     * @param token - Token canceling the request and its retries, may be null
+     * @return last response, which must be closed by the caller; it may still be an error
+     * @throws CircuitOpenException if the circuit is open
+     * @throws IOException if the last attempt failed without a response, or the token was canceled
+     */
+    public BooksHttpClient.Response get(URL url, Map<String, String> requestHeaders,
+                                        CancellationToken token) throws IOException {
+        int attempt = 0;
+        while (true) {
+            if (!mCircuitBreaker.allowRequest()) {
+                throw new CircuitOpenException();
+            }
+            attempt++;
+
+            BooksHttpClient.Response response;
+            try {
+                RequestHedger hedger = mRequestHedger;
+                response = (hedger != null)
+                        ? hedger.get(mClient, url, requestHeaders, token)
+                        : mClient.get(url, requestHeaders, token);
+            } catch (IOException e) {
+                if (token != null && token.isCanceled()) {
+                    mCircuitBreaker.onCanceled();
+                    throw e;
+                }
+                mCircuitBreaker.onFailure();
+                long delay = mRetryPolicy.getRetryDelay(attempt, 0, null);
+                if (delay < 0) {
+                    throw e;
+                }
+                waitBeforeRetry(delay, token);
+                continue;
+            } catch (RuntimeException e) {
+                // Not retried, but counted, so a trial request of a half-open circuit ends
+                mCircuitBreaker.onFailure();
+                throw e;
+            }
+
+            int responseCode = response.getCode();
+            if (!RetryPolicy.isRetryable(responseCode)) {
+                mCircuitBreaker.onSuccess();
+                return response;
+            }
+
+            mCircuitBreaker.onFailure();
+            long delay = mRetryPolicy.getRetryDelay(attempt, responseCode,
+                    response.getHeader(HEADER_RETRY_AFTER));
+            if (delay < 0) {
+                return response;
+            }
+
+            // Release the connection before waiting
+            response.close();
+            waitBeforeRetry(delay, token);
+        }
+    }
+
+    /**
+     * Wait before a retry, returning early if the token is canceled
+     * @throws InterruptedIOException if the token was canceled or the thread interrupted
+     */
+    private void waitBeforeRetry(long delayMillis, CancellationToken token) throws IOException {
+        mRetryCount.incrementAndGet();
+
+        final CountDownLatch canceled = new CountDownLatch(1);
+        CancellationToken.OnCancelListener listener = new CancellationToken.OnCancelListener() {
+            @Override
+            public void onCancel() {
+                canceled.countDown();
+            }
+        };
+        if (token != null) {
+            token.addOnCancelListener(listener);
+        }
+        try {
+            if (canceled.await(delayMillis, TimeUnit.MILLISECONDS)) {
+                throw new InterruptedIOException("Request canceled");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted before retrying");
+        } finally {
+            if (token != null) {
+                token.removeOnCancelListener(listener);
+            }
+        }
+    }
+}
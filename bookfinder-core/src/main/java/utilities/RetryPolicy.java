@@ -0,0 +1,113 @@
+package utilities;
+
+import java.net.HttpURLConnection;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Decides whether and when a failed GET request is sent again.
+ * Delays grow exponentially with full jitter, so clients that failed together don't retry
+ * together, and a Retry-After header sent with a 429 or 503 response is honored.
+ */
+
+public final class RetryPolicy {
+
+    /** Response code of a rate-limited request; not declared by HttpURLConnection */
+    static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    /** Format of a Retry-After header given as a date */
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    /** Policy of the Books API requests: 3 attempts, the retries after up to 250 ms then 500 ms */
+    public static final RetryPolicy DEFAULT = new RetryPolicy(3, 250, 4000, 10000);
+
+    private final int mMaxAttempts;
+    private final long mBaseDelayMillis;
+    private final long mMaxDelayMillis;
+    private final long mMaxRetryAfterMillis;
+    private final Random mRandom = new Random();
+
+    /**
+     * Constructs a new {@link RetryPolicy} object
+     * @param maxAttempts - Largest number of times a request is sent, including the first one
+     * @param baseDelayMillis - Largest delay before the first retry; it doubles at each retry
+     * @param maxDelayMillis - Largest delay before any retry
+     * @param maxRetryAfterMillis - Longest Retry-After honored; a longer one isn't retried
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis,
+                       long maxRetryAfterMillis) {
+        mMaxAttempts = maxAttempts;
+        mBaseDelayMillis = baseDelayMillis;
+        mMaxDelayMillis = maxDelayMillis;
+        mMaxRetryAfterMillis = maxRetryAfterMillis;
+    }
+
+    /** Getter method - Largest number of times a request is sent */
+    public int getMaxAttempts() {
+        return mMaxAttempts;
+    }
+
+    /**
+     * Method to check if a response code is worth retrying: a timeout, rate limiting,
+     * or a server error that may be temporary
+     * @return true/false
+     */
+    public static boolean isRetryable(int responseCode) {
+        return responseCode == HttpURLConnection.HTTP_CLIENT_TIMEOUT
+                || responseCode == HTTP_TOO_MANY_REQUESTS
+                || responseCode == HttpURLConnection.HTTP_INTERNAL_ERROR
+                || responseCode == HttpURLConnection.HTTP_BAD_GATEWAY
+                || responseCode == HttpURLConnection.HTTP_UNAVAILABLE
+                || responseCode == HttpURLConnection.HTTP_GATEWAY_TIMEOUT;
+    }
+
+    /**
+     * Return the delay before sending a request again
+     * @param attempt - Number of times the request was sent so far (1 after the first failure)
+     * @param responseCode - Code of the failed response, or 0 if no response was received
+     * @param retryAfter - Retry-After header of the response, may be null
+     * @return delay in milliseconds, or -1 if the request must not be sent again
+     */
+    public long getRetryDelay(int attempt, int responseCode, String retryAfter) {
+        if (attempt >= mMaxAttempts) {
+            return -1;
+        }
+
+        if (retryAfter != null && (responseCode == HTTP_TOO_MANY_REQUESTS
+                || responseCode == HttpURLConnection.HTTP_UNAVAILABLE)) {
+            long delay = parseRetryAfter(retryAfter, System.currentTimeMillis());
+            if (delay >= 0) {
+                return (delay <= mMaxRetryAfterMillis) ? delay : -1;
+            }
+        }
+
+        // Full jitter: anywhere between no delay and the exponential delay
+        long exponentialDelay = Math.min(mMaxDelayMillis, mBaseDelayMillis << Math.min(attempt - 1, 20));
+        return (long) (mRandom.nextDouble() * exponentialDelay);
+    }
+
+    /**
+     * Parse a Retry-After header, given either as a number of seconds or as an HTTP date
+     * @param now - Current time, in epoch millis
+     * @return delay in milliseconds, or -1 if the header can't be parsed
+     */
+    static long parseRetryAfter(String retryAfter, long now) {
+        String value = retryAfter.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            // Not a number of seconds; try a date
+        }
+
+        SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return Math.max(0, format.parse(value).getTime() - now);
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+}
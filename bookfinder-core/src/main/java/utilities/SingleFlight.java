@@ -0,0 +1,174 @@
+package utilities;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Coalesces concurrent calls for the same key into a single execution.
+ * The first caller for a key runs the work; callers arriving while it is still running
+ * wait for it and receive the same result instead of repeating the work.
+ * The work is only canceled once every caller waiting for it has canceled.
+ * @param <K> key identifying identical calls
+ * @param <V> result type
+ */
+
+public final class SingleFlight<K, V> {
+
+    /**
+     * Work run on behalf of every caller of a key, with a token canceled when no caller wants it anymore
+     */
+    public interface Work<V> {
+        V run(CancellationToken token) throws Exception;
+    }
+
+    private final ConcurrentHashMap<K, Call<V>> mInFlight = new ConcurrentHashMap<>();
+    private final AtomicLong mCoalescedCount = new AtomicLong();
+
+    /**
+     * Run the work for the given key, or join the call already running for it
+     * @param key - Key identifying identical calls
+     * @param work - Work to run if no call is in flight for the key
+     * @return result of the call in flight for the key
+     * @throws ExecutionException if the work threw an exception
+     * @throws InterruptedException if interrupted while waiting for another caller's work
+     */
+    public V execute(K key, final Callable<V> work) throws ExecutionException, InterruptedException {
+        return execute(key, new Work<V>() {
+            @Override
+            public V run(CancellationToken token) throws Exception {
+                return work.call();
+            }
+        }, null);
+    }
+
+    /**
+     * Run the work for the given key, or join the call already running for it
+     * @param key - Key identifying identical calls
+     * @param work - Work to run if no call is in flight for the key
+     * @param callerToken - Token of the caller, may be null; canceling it withdraws the caller
+     * @return result of the call in flight for the key
+     * @throws ExecutionException if the work threw an exception
+     * @throws InterruptedException if interrupted while waiting for another caller's work
+     */
+    public V execute(K key, Work<V> work, CancellationToken callerToken)
+            throws ExecutionException, InterruptedException {
+
+        while (true) {
+            Call<V> call = new Call<>(work);
+            Call<V> inFlight = mInFlight.putIfAbsent(key, call);
+
+            if (inFlight == null) {
+                try {
+                    return call.run(callerToken);
+                } finally {
+                    mInFlight.remove(key, call);
+                }
+            }
+
+            if (inFlight.join()) {
+                // Attach to the pending call
+                mCoalescedCount.incrementAndGet();
+                return inFlight.await(callerToken);
+            }
+
+            // Every caller of the call in flight has canceled it; start a new one
+            mInFlight.remove(key, inFlight);
+        }
+    }
+
+    /** Getter method - Number of calls that joined a call already in flight */
+    public long getCoalescedCount() {
+        return mCoalescedCount.get();
+    }
+
+    /** Getter method - Number of calls currently in flight */
+    public int getInFlightCount() {
+        return mInFlight.size();
+    }
+
+    /**
+     * A call in flight along with the number of callers still waiting for it
+     */
+    private static final class Call<V> {
+
+        private final CancellationToken mToken = new CancellationToken();
+        private final FutureTask<V> mTask;
+        private int mCallers = 1;
+
+        Call(final Work<V> work) {
+            mTask = new FutureTask<>(new Callable<V>() {
+                @Override
+                public V call() throws Exception {
+                    return work.run(mToken);
+                }
+            });
+        }
+
+        /**
+         * Add a caller, unless every caller has already canceled
+         */
+        synchronized boolean join() {
+            if (mCallers == 0) {
+                return false;
+            }
+            mCallers++;
+            return true;
+        }
+
+        /**
+         * Withdraw a caller, canceling the work once no caller is left
+         */
+        void release() {
+            boolean abandoned;
+            synchronized (this) {
+                abandoned = --mCallers == 0;
+            }
+            if (abandoned) {
+                mToken.cancel();
+            }
+        }
+
+        V run(CancellationToken callerToken) throws ExecutionException, InterruptedException {
+            CancellationToken.OnCancelListener listener = watch(callerToken);
+            try {
+                mTask.run();
+                return mTask.get();
+            } finally {
+                unwatch(callerToken, listener);
+            }
+        }
+
+        V await(CancellationToken callerToken) throws ExecutionException, InterruptedException {
+            CancellationToken.OnCancelListener listener = watch(callerToken);
+            try {
+                return mTask.get();
+            } finally {
+                unwatch(callerToken, listener);
+            }
+        }
+
+        private CancellationToken.OnCancelListener watch(CancellationToken callerToken) {
+            if (callerToken == null) {
+                return null;
+            }
+            CancellationToken.OnCancelListener listener = new CancellationToken.OnCancelListener() {
+                @Override
+                public void onCancel() {
+                    release();
+                }
+            };
+            callerToken.addOnCancelListener(listener);
+            return listener;
+        }
+
+        private static void unwatch(CancellationToken callerToken,
+                                    CancellationToken.OnCancelListener listener) {
+            if (callerToken != null) {
+                callerToken.removeOnCancelListener(listener);
+            }
+        }
+    }
+}
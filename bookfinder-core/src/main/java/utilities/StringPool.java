@@ -0,0 +1,50 @@
+package utilities;
+
+import java.util.HashMap;
+
+/**
+ * Bounded pool of canonical strings for values that repeat across many books,
+ * such as languages, categories, print types and currency codes.
+ * Every book holding an equal value then shares a single String instance.
+ * Once the pool is full, new values are returned as they are rather than pooled.
+ */
+
+public final class StringPool {
+
+    private final HashMap<String, String> mStrings = new HashMap<>();
+    private final int mMaxSize;
+
+    /**
+     * Constructs a new {@link StringPool} object
+     * @param maxSize - Largest number of distinct values kept
+     */
+    public StringPool(int maxSize) {
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * Return the pooled instance equal to the given value, pooling the value if it is new
+     * @param value - Value to look up, may be null
+     * @return pooled instance, or the value itself if it could not be pooled
+     */
+    public synchronized String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        String pooled = mStrings.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+
+        if (mStrings.size() < mMaxSize) {
+            mStrings.put(value, value);
+        }
+        return value;
+    }
+
+    /** Getter method - Number of distinct values pooled */
+    public synchronized int size() {
+        return mStrings.size();
+    }
+}
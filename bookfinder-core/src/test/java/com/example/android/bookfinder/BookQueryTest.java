@@ -0,0 +1,55 @@
+package com.example.android.bookfinder;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that searches typed differently build one canonical query
+ */
+public class BookQueryTest {
+
+    @Test
+    public void caseSpacingAndUnicodeForm_buildEqualQueries() {
+        BookQuery expected = query("tolkien", "");
+        String[] titles = {"Tolkien", " tolkien", "TOLKIEN", "tolkien ", "Ｔolkien"};
+        for (String title : titles) {
+            BookQuery actual = query(title, null);
+            assertEquals(title, expected, actual);
+            assertEquals(title, expected.getSearchUrl(), actual.getSearchUrl());
+            assertEquals(title, expected.getCacheKey(), actual.getCacheKey());
+        }
+    }
+
+    @Test
+    public void searchUrl_isEncodedWithParametersInOrder() {
+        BookQuery query = new BookQuery.Builder()
+                .setTitle("  Lord of   the Rings ")
+                .setAuthor("J.R.R. Tolkien & co")
+                .setOrderBy("NEWEST")
+                .build();
+        assertEquals("https://www.googleapis.com/books/v1/volumes"
+                + "?q=intitle%3Alord+of+the+rings+inauthor%3Aj.r.r.+tolkien+%26+co"
+                + "&orderBy=newest", query.getSearchUrl());
+    }
+
+    @Test
+    public void fieldPrefixes_areMovedToTheirField() {
+        BookQuery query = query("intitle:Dune inauthor:Herbert", "");
+        assertEquals("dune", query.getTitle());
+        assertEquals("herbert", query.getAuthor());
+        assertEquals(query, query("Dune", "inauthor:herbert"));
+    }
+
+    @Test
+    public void unknownOrderBy_isRelevance() {
+        assertEquals(BookQuery.ORDER_BY_RELEVANCE,
+                new BookQuery.Builder().setTitle("dune").setOrderBy("random").build().getOrderBy());
+        assertEquals(BookQuery.ORDER_BY_RELEVANCE,
+                new BookQuery.Builder().setTitle("dune").build().getOrderBy());
+    }
+
+    private static BookQuery query(String title, String author) {
+        return new BookQuery.Builder().setTitle(title).setAuthor(author).build();
+    }
+}
@@ -0,0 +1,138 @@
+package utilities;
+
+import com.example.android.bookfinder.Book;
+import org.junit.Test;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the streaming parser against the JSON object parser on recorded API responses.
+ */
+public class BookStreamParserTest {
+
+    private static final String[] PAYLOADS = {
+            "/payloads/volumes_android.json",
+            "/payloads/volumes_tolkien.json",
+            "/payloads/volumes_empty.json"
+    };
+
+    @Test
+    public void streamParser_matchesJsonObjectParser() throws Exception {
+        for (String payload : PAYLOADS) {
+            List<Book> expected = QueryUtils.extractFeatureFromJson(
+                    QueryUtils.readFromStream(open(payload)));
+            List<Book> actual = QueryUtils.extractFeatureFromStream(open(payload));
+
+            assertEquals(payload, expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertSameBook(payload + " #" + i, expected.get(i), actual.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void streamParser_readsProjectedPayloadLikeFullPayload() throws Exception {
+        List<Book> full = QueryUtils.extractFeatureFromStream(open("/payloads/volumes_android.json"));
+        List<Book> projected = QueryUtils.extractFeatureFromStream(
+                open("/payloads/volumes_android_fields.json"));
+
+        assertEquals(full.size(), projected.size());
+        for (int i = 0; i < full.size(); i++) {
+            assertSameBook("#" + i, full.get(i), projected.get(i));
+        }
+    }
+
+    @Test
+    public void fieldSchema_generatesProjection() {
+        assertEquals("totalItems,items(id,volumeInfo(title,authors,publishedDate,categories,"
+                        + "pageCount,language,previewLink,printType,averageRating,description,"
+                        + "imageLinks(smallThumbnail)),saleInfo(retailPrice(amount,currencyCode),"
+                        + "buyLink),accessInfo(epub(isAvailable),pdf(isAvailable)))",
+                BookFieldSchema.getProjection());
+    }
+
+    @Test
+    public void streamParser_readsTotalItemsBeforeAndAfterItems() throws Exception {
+        assertEquals(1423, readTotalItems("/payloads/volumes_android.json"));
+        assertEquals(2749, readTotalItems("/payloads/volumes_tolkien.json"));
+        assertEquals(0, readTotalItems("/payloads/volumes_empty.json"));
+    }
+
+    @Test
+    public void streamParser_doesNotCarryValuesToNextBook() throws Exception {
+        List<Book> books = QueryUtils.extractFeatureFromStream(open("/payloads/volumes_tolkien.json"));
+
+        Book last = books.get(2);
+        assertEquals("", last.getAuthor());
+        assertEquals("", last.getThumbnailLink());
+        assertEquals(0.00, last.getRetailPrice(), 0);
+        assertEquals("", last.getCurrencyCode());
+        assertFalse(last.isTagEpub());
+    }
+
+    @Test
+    public void streamFailingPartWay_returnsNoPage() {
+        // The connection drops after part of the volumes were read
+        InputStream inputStream = new FilterInputStream(open("/payloads/volumes_android.json")) {
+            private int mBytesLeft = 4096;
+
+            @Override
+            public int read() throws IOException {
+                byte[] buffer = new byte[1];
+                return (read(buffer, 0, 1) == -1) ? -1 : buffer[0] & 0xff;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                if (mBytesLeft <= 0) {
+                    throw new SocketException("Connection reset");
+                }
+                int read = super.read(buffer, offset, Math.min(length, mBytesLeft));
+                mBytesLeft -= Math.max(read, 0);
+                return read;
+            }
+        };
+
+        assertNull(QueryUtils.extractPageFromStream(inputStream, 0, 10));
+    }
+
+    private static int readTotalItems(String payload) throws IOException {
+        BookStreamParser parser = new BookStreamParser(open(payload));
+        while (parser.nextBook() != null) {
+            // Drain the items array
+        }
+        parser.close();
+        return parser.getTotalItems();
+    }
+
+    private static InputStream open(String payload) {
+        InputStream inputStream = BookStreamParserTest.class.getResourceAsStream(payload);
+        assertNotNull(payload, inputStream);
+        return inputStream;
+    }
+
+    private static void assertSameBook(String message, Book expected, Book actual) {
+        assertEquals(message, expected.getId(), actual.getId());
+        assertEquals(message, expected.getTitle(), actual.getTitle());
+        assertEquals(message, expected.getAuthor(), actual.getAuthor());
+        assertEquals(message, expected.getPublishedDate(), actual.getPublishedDate());
+        assertEquals(message, expected.getCategories(), actual.getCategories());
+        assertEquals(message, expected.getLanguage(), actual.getLanguage());
+        assertEquals(message, expected.getPageCount(), actual.getPageCount());
+        assertEquals(message, expected.getPrintType(), actual.getPrintType());
+        assertEquals(message, expected.getRetailPrice(), actual.getRetailPrice(), 0);
+        assertEquals(message, expected.getCurrencyCode(), actual.getCurrencyCode());
+        assertEquals(message, expected.getBuyingLink(), actual.getBuyingLink());
+        assertEquals(message, expected.isTagEpub(), actual.isTagEpub());
+        assertEquals(message, expected.isTagPdf(), actual.isTagPdf());
+        assertEquals(message, expected.getRating(), actual.getRating(), 0);
+        assertEquals(message, expected.getDescription(), actual.getDescription());
+        assertEquals(message, expected.getThumbnailLink(), actual.getThumbnailLink());
+        assertEquals(message, expected.getPreviewlLink(), actual.getPreviewlLink());
+    }
+}
@@ -0,0 +1,118 @@
+package utilities;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link Histogram} and the text dump of {@link MetricsRegistry}
+ */
+public class HistogramTest {
+
+    @Test
+    public void buckets_coverEveryValueOnce() {
+        long previousUpperBound = -1;
+        for (int index = 0; index < Histogram.bucketIndex(Long.MAX_VALUE) + 1; index++) {
+            long upperBound = Histogram.bucketUpperBound(index);
+            assertTrue(upperBound > previousUpperBound);
+            assertEquals(index, Histogram.bucketIndex(previousUpperBound + 1));
+            assertEquals(index, Histogram.bucketIndex(upperBound));
+            previousUpperBound = upperBound;
+        }
+        assertEquals(Long.MAX_VALUE, previousUpperBound);
+    }
+
+    @Test
+    public void percentiles_areWithinBucketPrecision() {
+        Random random = new Random(42);
+        Histogram histogram = new Histogram(Histogram.Unit.NANOSECONDS);
+        long[] values = new long[10000];
+        for (int i = 0; i < values.length; i++) {
+            // Log-normal, as latencies are
+            values[i] = (long) Math.exp(14 + random.nextGaussian());
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        assertEquals(values.length, histogram.getCount());
+        assertEquals(values[values.length - 1], histogram.getMax());
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long estimate = histogram.getPercentile(percentile);
+            assertTrue(percentile + ": " + estimate + " vs " + exact,
+                    estimate >= exact && estimate <= exact * 1.125);
+        }
+    }
+
+    @Test
+    public void concurrentRecords_areAllCounted() throws InterruptedException {
+        final Histogram histogram = new Histogram(Histogram.Unit.COUNT);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        histogram.record(i % 1000);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(400000, histogram.getCount());
+        assertEquals(4 * 100 * 499500L, histogram.getSum());
+        assertEquals(999, histogram.getMax());
+    }
+
+    @Test
+    public void emptyAndReset() {
+        Histogram histogram = new Histogram(Histogram.Unit.BYTES);
+        assertEquals(0, histogram.getPercentile(99));
+        assertEquals(0, histogram.getMean(), 0);
+
+        histogram.record(-5);
+        histogram.record(2048);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void registry_dumpsMetricsByName() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.histogram("test.latency", Histogram.Unit.NANOSECONDS).record(2000000);
+        registry.counter("test.hits").addAndGet(3);
+        registry.registerGauge("test.gauge", new MetricsRegistry.Gauge() {
+            @Override
+            public long getValue() {
+                return 7;
+            }
+        });
+        registry.registerSection("Slowest", new MetricsRegistry.Section() {
+            @Override
+            public void dump(Appendable out) throws IOException {
+                out.append("detail line\n");
+            }
+        });
+        assertSame(registry.counter("test.hits"), registry.counter("test.hits"));
+
+        String dump = registry.dump();
+        assertTrue(dump, dump.matches("(?s).*test\\.latency \\(ms\\) +1 +2\\.00 .*"));
+        assertTrue(dump, dump.matches("(?s).*test\\.hits +3\\s.*"));
+        assertTrue(dump, dump.matches("(?s).*test\\.gauge +7\\s.*"));
+        assertTrue(dump, dump.matches("(?s).*\\sSlowest\\s+detail line\\s*"));
+
+        registry.reset();
+        assertTrue(registry.dump().matches("(?s).*test\\.hits +0\\s.*"));
+    }
+}
@@ -0,0 +1,174 @@
+package utilities;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link RequestHedger} against a local stub server answering after scripted delays
+ */
+public class RequestHedgerTest {
+
+    private static final byte[] BODY = "{\"totalItems\":0}".getBytes();
+
+    /** Requests answering fast, so the hedge delay is known */
+    private static final int WARM_UP_REQUESTS = 20;
+
+    private static final long SLOW_MILLIS = 3000;
+
+    private HttpServer mServer;
+    private ExecutorService mServerExecutor;
+    private URL mUrl;
+    private final ConcurrentLinkedQueue<Long> mDelays = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mHits = new AtomicInteger();
+    private final BooksHttpClient mClient = new BooksHttpClient(1000, 5000);
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/volumes", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mHits.incrementAndGet();
+                Long delay = mDelays.poll();
+                if (delay != null) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                exchange.sendResponseHeaders(200, BODY.length);
+                OutputStream body = exchange.getResponseBody();
+                body.write(BODY);
+                body.close();
+            }
+        });
+        // Answer the hedges while the slow requests are still sleeping
+        mServerExecutor = Executors.newCachedThreadPool();
+        mServer.setExecutor(mServerExecutor);
+        mServer.start();
+        mUrl = new URL("http://127.0.0.1:" + mServer.getAddress().getPort() + "/volumes?q=android");
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+        mServerExecutor.shutdownNow();
+    }
+
+    @Test
+    public void noHedge_untilResponseTimesAreKnown() throws IOException {
+        RequestHedger hedger = new RequestHedger(95, 1);
+        assertEquals(-1, hedger.getHedgeDelay());
+
+        mDelays.add(200L);
+        assertEquals(200, getCode(hedger, null));
+        assertEquals(0, hedger.getHedgeCount());
+        assertEquals(1, mHits.get());
+    }
+
+    @Test
+    public void slowRequest_isHedgedAndHedgeWins() throws IOException {
+        RequestHedger hedger = new RequestHedger(95, RequestHedger.DEFAULT_BUDGET_RATIO);
+        warmUp(hedger);
+        assertTrue(hedger.getHedgeDelay() >= 0);
+
+        mDelays.add(SLOW_MILLIS);
+        long start = System.nanoTime();
+        assertEquals(200, getCode(hedger, null));
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < SLOW_MILLIS / 2);
+        assertEquals(1, hedger.getHedgeCount());
+        assertEquals(1, hedger.getHedgeWinCount());
+        assertEquals(WARM_UP_REQUESTS + 2, mHits.get());
+    }
+
+    @Test
+    public void hedges_areCappedByBudget() throws IOException {
+        RequestHedger hedger = new RequestHedger(95, RequestHedger.DEFAULT_BUDGET_RATIO);
+        warmUp(hedger);
+
+        // The warm-up earned two hedges; slow requests beyond them wait for their own response
+        int slowRequests = 4;
+        for (int i = 0; i < slowRequests; i++) {
+            mDelays.add(300L);
+            getCode(hedger, null);
+        }
+
+        assertEquals(2, hedger.getHedgeCount());
+        assertEquals(WARM_UP_REQUESTS + slowRequests, hedger.getRequestCount());
+    }
+
+    @Test
+    public void cancel_abortsRequestAndHedge() throws Exception {
+        RequestHedger hedger = new RequestHedger(95, 1);
+        warmUp(hedger);
+
+        mDelays.add(SLOW_MILLIS);
+        mDelays.add(SLOW_MILLIS);
+        final CancellationToken token = new CancellationToken();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    // Cancel at once
+                }
+                token.cancel();
+            }
+        }).start();
+
+        long start = System.nanoTime();
+        try {
+            getCode(hedger, token);
+            fail("Canceled request returned a response");
+        } catch (InterruptedIOException e) {
+            // Expected: the canceled request failed, then its canceled hedge
+        } catch (IOException e) {
+            // Aborting the connection may also surface as a socket error
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertTrue("Took " + elapsedMillis + " ms", elapsedMillis < SLOW_MILLIS / 2);
+        assertEquals(1, hedger.getHedgeCount());
+        assertEquals(0, hedger.getHedgeWinCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidPercentile_isRejected() {
+        new RequestHedger(0, RequestHedger.DEFAULT_BUDGET_RATIO);
+    }
+
+    private void warmUp(RequestHedger hedger) throws IOException {
+        for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+            assertEquals(200, getCode(hedger, null));
+        }
+        assertEquals(0, hedger.getHedgeCount());
+    }
+
+    private int getCode(RequestHedger hedger, CancellationToken token) throws IOException {
+        BooksHttpClient.Response response = hedger.get(mClient, mUrl, null, token);
+        try {
+            return response.getCode();
+        } finally {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package utilities;
+
+import com.example.android.bookfinder.BookPage;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests of {@link ResilientHttpClient} against a local stub server injecting faults: error
+ * responses, Retry-After headers and dropped connections
+ */
+public class ResilientHttpClientTest {
+
+    /** Scripted fault dropping the connection without a response */
+    private static final int DROP_CONNECTION = -1;
+
+    private static final RetryPolicy FAST_RETRIES = new RetryPolicy(3, 10, 50, 2000);
+
+    private HttpServer mServer;
+    private URL mUrl;
+    private byte[] mPayload;
+    private final ConcurrentLinkedQueue<int[]> mFaults = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mHits = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        mPayload = readPayload("/payloads/volumes_android.json");
+
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        mServer.createContext("/volumes", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                mHits.incrementAndGet();
+                int[] fault = mFaults.poll();
+                if (fault == null) {
+                    // Healthy: the payload, stale at once so it is requested again
+                    exchange.getResponseHeaders().set("Cache-Control", "max-age=0");
+                    exchange.getResponseHeaders().set("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(200, mPayload.length);
+                    OutputStream body = exchange.getResponseBody();
+                    body.write(mPayload);
+                    body.close();
+                } else if (fault[0] == DROP_CONNECTION) {
+                    exchange.close();
+                } else {
+                    if (fault.length > 1) {
+                        exchange.getResponseHeaders().set("Retry-After", String.valueOf(fault[1]));
+                    }
+                    exchange.sendResponseHeaders(fault[0], -1);
+                    exchange.close();
+                }
+            }
+        });
+        mServer.start();
+        mUrl = new URL("http://127.0.0.1:" + mServer.getAddress().getPort() + "/volumes?q=android");
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+    }
+
+    @Test
+    public void serverErrors_areRetried() throws IOException {
+        mFaults.add(new int[]{503});
+        mFaults.add(new int[]{500});
+        ResilientHttpClient client = newClient(new CircuitBreaker(5, 60000));
+
+        assertEquals(200, getCode(client, null));
+        assertEquals(3, mHits.get());
+        assertEquals(2, client.getRetryCount());
+        assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitBreaker().getState());
+    }
+
+    @Test
+    public void droppedConnections_areRetried() throws IOException {
+        // HttpURLConnection itself resends a GET once after a dropped connection
+        for (int i = 0; i < 3; i++) {
+            mFaults.add(new int[]{DROP_CONNECTION});
+        }
+        ResilientHttpClient client = newClient(new CircuitBreaker(5, 60000));
+
+        assertEquals(200, getCode(client, null));
+        assertTrue(client.getRetryCount() >= 1);
+    }
+
+    @Test
+    public void retryAfter_isHonored() throws IOException {
+        mFaults.add(new int[]{429, 1});
+        ResilientHttpClient client = newClient(new CircuitBreaker(5, 60000));
+
+        long start = System.nanoTime();
+        assertEquals(200, getCode(client, null));
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertTrue("Waited " + elapsedMillis + " ms", elapsedMillis >= 900);
+        assertEquals(2, mHits.get());
+    }
+
+    @Test
+    public void retryAfterBeyondMaximum_isNotWaited() throws IOException {
+        mFaults.add(new int[]{503, 120});
+        ResilientHttpClient client = newClient(new CircuitBreaker(5, 60000));
+
+        assertEquals(503, getCode(client, null));
+        assertEquals(1, mHits.get());
+    }
+
+    @Test
+    public void clientError_isNotRetried() throws IOException {
+        mFaults.add(new int[]{404});
+        ResilientHttpClient client = newClient(new CircuitBreaker(5, 60000));
+
+        assertEquals(404, getCode(client, null));
+        assertEquals(1, mHits.get());
+        assertEquals(0, client.getRetryCount());
+    }
+
+    @Test
+    public void unexpectedException_endsHalfOpenTrial() throws IOException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.onFailure();
+        ResilientHttpClient client = newClient(breaker);
+
+        // Not an HTTP URL, so the client fails with a ClassCastException during the trial
+        try {
+            client.get(new URL("file:///"), null, null);
+            fail("Expected a RuntimeException");
+        } catch (RuntimeException expected) {
+            assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        }
+
+        assertEquals(200, getCode(client, null));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void retriesExhausted_returnLastResponse() throws IOException {
+        for (int i = 0; i < FAST_RETRIES.getMaxAttempts(); i++) {
+            mFaults.add(new int[]{502});
+        }
+        ResilientHttpClient client = newClient(new CircuitBreaker(5, 60000));
+
+        assertEquals(502, getCode(client, null));
+        assertEquals(FAST_RETRIES.getMaxAttempts(), mHits.get());
+    }
+
+    @Test
+    public void circuit_opensFailsFastAndRecovers() throws Exception {
+        final List<String> transitions = new ArrayList<>();
+        CircuitBreaker breaker = new CircuitBreaker(2, 200);
+        breaker.setListener(new CircuitBreaker.Listener() {
+            @Override
+            public void onStateChanged(CircuitBreaker.State from, CircuitBreaker.State to) {
+                transitions.add(from + ">" + to);
+            }
+        });
+        ResilientHttpClient client = new ResilientHttpClient(new BooksHttpClient(1000, 1000),
+                new RetryPolicy(1, 10, 50, 2000), breaker);
+
+        mFaults.add(new int[]{500});
+        mFaults.add(new int[]{500});
+        assertEquals(500, getCode(client, null));
+        assertEquals(500, getCode(client, null));
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        // Fails fast without reaching the server
+        try {
+            client.get(mUrl, null, null);
+            fail("Request sent while the circuit is open");
+        } catch (ResilientHttpClient.CircuitOpenException e) {
+            // Expected
+        }
+        assertEquals(2, mHits.get());
+        assertEquals(1, breaker.getRejectedCount());
+
+        // A successful trial request closes the circuit
+        Thread.sleep(250);
+        assertEquals(200, getCode(client, null));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals("[CLOSED>OPEN, OPEN>HALF_OPEN, HALF_OPEN>CLOSED]", transitions.toString());
+    }
+
+    @Test
+    public void failedTrial_reopensCircuit() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 100);
+        ResilientHttpClient client = new ResilientHttpClient(new BooksHttpClient(1000, 1000),
+                new RetryPolicy(1, 10, 50, 2000), breaker);
+
+        mFaults.add(new int[]{503});
+        mFaults.add(new int[]{503});
+        getCode(client, null);
+        Thread.sleep(150);
+        getCode(client, null);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getOpenCount());
+    }
+
+    @Test
+    public void cancel_stopsWaitingBeforeRetry() throws Exception {
+        mFaults.add(new int[]{503, 5});
+        ResilientHttpClient client = new ResilientHttpClient(new BooksHttpClient(1000, 1000),
+                new RetryPolicy(3, 10, 50, 10000), new CircuitBreaker(5, 60000));
+
+        final CancellationToken token = new CancellationToken();
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    // Cancel at once
+                }
+                token.cancel();
+            }
+        }).start();
+
+        long start = System.nanoTime();
+        try {
+            client.get(mUrl, null, token);
+            fail("Canceled request returned a response");
+        } catch (InterruptedIOException e) {
+            // Expected
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertTrue("Waited " + elapsedMillis + " ms", elapsedMillis < 2000);
+        assertEquals(1, mHits.get());
+    }
+
+    @Test
+    public void fetchBookPage_servesStalePageWhileFailing() throws IOException {
+        File cacheDirectory = File.createTempFile("books-api", "");
+        assertTrue(cacheDirectory.delete());
+        QueryUtils.setResponseCacheDirectory(cacheDirectory);
+        QueryUtils.setHttpClient(new ResilientHttpClient(new BooksHttpClient(1000, 1000),
+                new RetryPolicy(1, 10, 50, 2000), new CircuitBreaker(1, 60000)));
+        try {
+            String requestUrl = mUrl.toString();
+            BookPage fresh = QueryUtils.fetchBookPage(requestUrl, 0, 10);
+            assertFalse(fresh.getBooks().isEmpty());
+            assertFalse(fresh.isFailed());
+
+            // The server fails, then the circuit opens: the stale page is served both times
+            mFaults.add(new int[]{500});
+            BookPage stale = QueryUtils.fetchBookPage(requestUrl, 0, 10);
+            assertEquals(fresh.getBooks().size(), stale.getBooks().size());
+            assertEquals(CircuitBreaker.State.OPEN, QueryUtils.getCircuitBreaker().getState());
+
+            BookPage failFast = QueryUtils.fetchBookPage(requestUrl, 0, 10);
+            assertEquals(fresh.getBooks().size(), failFast.getBooks().size());
+            assertEquals(2, mHits.get());
+        } finally {
+            QueryUtils.setHttpClient(new ResilientHttpClient(BooksHttpClient.getInstance(),
+                    RetryPolicy.DEFAULT, new CircuitBreaker(5, 30000)));
+            deleteRecursively(cacheDirectory);
+        }
+    }
+
+    @Test
+    public void fetchBookPage_marksFailedPage() throws IOException {
+        File cacheDirectory = File.createTempFile("books-api", "");
+        assertTrue(cacheDirectory.delete());
+        QueryUtils.setResponseCacheDirectory(cacheDirectory);
+        QueryUtils.setHttpClient(new ResilientHttpClient(new BooksHttpClient(1000, 1000),
+                new RetryPolicy(1, 10, 50, 2000), new CircuitBreaker(5, 60000)));
+        try {
+            // Nothing cached to fall back on: the page is failed, not past the end of the results
+            mFaults.add(new int[]{500});
+            BookPage page = QueryUtils.fetchBookPage(mUrl.toString(), 20, 10);
+            assertTrue(page.isFailed());
+            assertTrue(page.getBooks().isEmpty());
+            assertEquals(20, page.getStartIndex());
+
+            // A page fetched as several API pages fails whole if one of them fails
+            mFaults.add(new int[]{500});
+            BookPage largePage = QueryUtils.fetchBookPage(mUrl.toString(), 40, 60);
+            assertTrue(largePage.isFailed());
+            assertTrue(largePage.getBooks().isEmpty());
+        } finally {
+            QueryUtils.setHttpClient(new ResilientHttpClient(BooksHttpClient.getInstance(),
+                    RetryPolicy.DEFAULT, new CircuitBreaker(5, 30000)));
+            deleteRecursively(cacheDirectory);
+        }
+    }
+
+    private ResilientHttpClient newClient(CircuitBreaker breaker) {
+        return new ResilientHttpClient(new BooksHttpClient(1000, 1000), FAST_RETRIES, breaker);
+    }
+
+    private int getCode(ResilientHttpClient client, CancellationToken token) throws IOException {
+        BooksHttpClient.Response response = client.get(mUrl, null, token);
+        try {
+            return response.getCode();
+        } finally {
+            response.close();
+        }
+    }
+
+    private static byte[] readPayload(String resource) throws IOException {
+        InputStream in = ResilientHttpClientTest.class.getResourceAsStream(resource);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}